@@ -0,0 +1,21 @@
+package com.jp.analyticsservice.aggregation;
+
+import java.time.Duration;
+
+/**
+ * Bucket sizes kept by the windowed metrics store.
+ */
+public enum Granularity {
+    MINUTE(Duration.ofMinutes(1)),
+    DAY(Duration.ofDays(1));
+
+    private final long millis;
+
+    Granularity(Duration bucket) {
+        this.millis = bucket.toMillis();
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
@@ -0,0 +1,78 @@
+package com.jp.analyticsservice.aggregation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Persists the windowed metrics to local disk so a restart resumes with its counts
+ * instead of rebuilding them from the topic. The snapshot is written to a temporary
+ * file and atomically moved into place, so a crash never leaves a truncated snapshot.
+ * Each snapshot carries the partition offsets its counts cover, and the consumer seeks to
+ * them on start, so records acknowledged after the last snapshot are counted again instead
+ * of being lost, and records counted in it are not counted twice.
+ */
+@Service
+public class MetricsSnapshotter {
+
+    private static final Logger log = LoggerFactory.getLogger(
+            MetricsSnapshotter.class);
+    private final PatientEventAggregator aggregator;
+    private final Path snapshotPath;
+
+    public MetricsSnapshotter(PatientEventAggregator aggregator,
+                              @Value("${analytics.snapshot.path:data/analytics-snapshot.bin}") String snapshotPath) {
+        this.aggregator = aggregator;
+        this.snapshotPath = Path.of(snapshotPath);
+    }
+
+    /**
+     * Restores the last snapshot before the Kafka listeners start.
+     */
+    @PostConstruct
+    public void restore() {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            aggregator.restore(in);
+            log.info("Restored analytics snapshot from {}", snapshotPath);
+        } catch (IOException e) {
+            log.warn("Could not restore analytics snapshot from {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.snapshot.interval-ms:60000}",
+            initialDelayString = "${analytics.snapshot.interval-ms:60000}")
+    @PreDestroy
+    public void snapshot() {
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // Serialized in memory so consumers are only paused for the copy, not for the disk write
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                aggregator.snapshot(out);
+            }
+            Path temp = Files.createTempFile(directory, "analytics-snapshot", ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote analytics snapshot to {}", snapshotPath);
+        } catch (IOException e) {
+            log.warn("Could not write analytics snapshot to {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+}
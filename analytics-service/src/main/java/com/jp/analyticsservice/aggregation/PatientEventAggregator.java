@@ -0,0 +1,236 @@
+package com.jp.analyticsservice.aggregation;
+
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Windowed store of patient event counts per event type, per minute and per day.
+ * Consumers first count a whole poll into a {@link Batch} without any locking and then
+ * merge it, so shared state is touched once per (type, bucket) and not once per event.
+ * Memory is bounded: each event type holds two fixed rings of longs and the number of
+ * distinct event types is capped, with any excess counted under {@link #OTHER}.
+ * Alongside the counts it tracks the next offset of every partition it has counted, so a
+ * snapshot holds exactly the counts of the records before its offsets and a restart can
+ * resume consuming from there, whatever offsets were committed to Kafka since.
+ */
+@Service
+public class PatientEventAggregator {
+
+    public static final String OTHER = "OTHER";
+    private static final Logger log = LoggerFactory.getLogger(
+            PatientEventAggregator.class);
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final int minuteSlots;
+    private final int daySlots;
+    private final int maxEventTypes;
+    private final Map<String, RollingCounter> perMinute = new ConcurrentHashMap<>();
+    private final Map<String, RollingCounter> perDay = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> nextOffsets = new ConcurrentHashMap<>();
+    // Batches are applied under the read lock; a snapshot takes the write lock so it never
+    // holds part of a batch, or counts that do not match its offsets
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Object admissionLock = new Object();
+
+    public PatientEventAggregator(
+            @Value("${analytics.window.minutes:1440}") int minuteSlots,
+            @Value("${analytics.window.days:90}") int daySlots,
+            @Value("${analytics.max-event-types:64}") int maxEventTypes) {
+        this.minuteSlots = minuteSlots;
+        this.daySlots = daySlots;
+        this.maxEventTypes = maxEventTypes;
+    }
+
+    /**
+     * Local, single-threaded counts of one consumer poll.
+     */
+    public static class Batch {
+        private final Map<String, Map<Long, long[]>> minuteCounts = new HashMap<>();
+        private final Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+
+        public void add(String eventType, long epochMillis) {
+            minuteCounts.computeIfAbsent(eventType, type -> new HashMap<>())
+                    .computeIfAbsent(Math.floorDiv(epochMillis, Granularity.MINUTE.getMillis()),
+                            minute -> new long[1])[0]++;
+        }
+
+        /**
+         * Records that a record was consumed, whether or not it held countable events.
+         */
+        public void consumed(String topic, int partition, long offset) {
+            nextOffsets.merge(new TopicPartition(topic, partition), offset + 1, Math::max);
+        }
+
+        public boolean isEmpty() {
+            return minuteCounts.isEmpty();
+        }
+    }
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Merges a batch into the rolling windows.
+     */
+    public void apply(Batch batch) {
+        snapshotLock.readLock().lock();
+        try {
+            batch.minuteCounts.forEach((eventType, minutes) -> {
+                String type = admit(eventType);
+                RollingCounter minuteCounter = counter(Granularity.MINUTE, type);
+                RollingCounter dayCounter = counter(Granularity.DAY, type);
+                minutes.forEach((minute, count) -> {
+                    minuteCounter.add(minute, count[0]);
+                    dayCounter.add(Math.floorDiv(minute * Granularity.MINUTE.getMillis(),
+                            Granularity.DAY.getMillis()), count[0]);
+                });
+            });
+            batch.nextOffsets.forEach((partition, offset) -> nextOffsets.merge(partition, offset, Math::max));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The offset after the last record of the partition counted here, if any.
+     */
+    public Long nextOffset(TopicPartition partition) {
+        return nextOffsets.get(partition);
+    }
+
+    /**
+     * Stops tracking partitions assigned to another consumer. Their counts stay, and a restart
+     * consumes them from the committed offsets, so records counted elsewhere are not counted again.
+     */
+    public void release(Collection<TopicPartition> partitions) {
+        snapshotLock.readLock().lock();
+        try {
+            partitions.forEach(nextOffsets::remove);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The event types seen so far.
+     */
+    public List<String> eventTypes() {
+        return perMinute.keySet().stream().sorted().toList();
+    }
+
+    /**
+     * Reads the counts of the buckets overlapping [fromMillis, toMillis).
+     * Buckets outside the retained window read as 0.
+     * @return One count per bucket, the first covering fromMillis.
+     */
+    public long[] query(String eventType, Granularity granularity, long fromMillis, long toMillis) {
+        long firstBucket = Math.floorDiv(fromMillis, granularity.getMillis());
+        long lastBucket = Math.floorDiv(toMillis - 1, granularity.getMillis());
+        RollingCounter counter = counters(granularity).get(eventType);
+        if (counter == null) {
+            return new long[(int) (lastBucket - firstBucket + 1)];
+        }
+        return counter.range(firstBucket, lastBucket);
+    }
+
+    /**
+     * @return How many buckets of the given granularity are retained.
+     */
+    public int retainedBuckets(Granularity granularity) {
+        return granularity == Granularity.MINUTE ? minuteSlots : daySlots;
+    }
+
+    /**
+     * Writes all counters in a compact binary form read back by {@link #restore(DataInput)}.
+     */
+    public void snapshot(DataOutput out) throws IOException {
+        snapshotLock.writeLock().lock();
+        try {
+            Map<String, RollingCounter> minutes = Map.copyOf(perMinute);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(minutes.size());
+            for (Map.Entry<String, RollingCounter> entry : minutes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().writeTo(out);
+                counter(Granularity.DAY, entry.getKey()).writeTo(out);
+            }
+            Map<TopicPartition, Long> offsets = Map.copyOf(nextOffsets);
+            out.writeInt(offsets.size());
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                out.writeUTF(entry.getKey().topic());
+                out.writeInt(entry.getKey().partition());
+                out.writeLong(entry.getValue());
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges a snapshot written by {@link #snapshot(DataOutput)} into the current counters.
+     */
+    public void restore(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            log.warn("Ignoring analytics snapshot with unsupported version {}", version);
+            return;
+        }
+        snapshotLock.writeLock().lock();
+        try {
+            int types = in.readInt();
+            for (int i = 0; i < types; i++) {
+                String type = admit(in.readUTF());
+                counter(Granularity.MINUTE, type).mergeFrom(in);
+                counter(Granularity.DAY, type).mergeFrom(in);
+            }
+            int partitions = in.readInt();
+            for (int i = 0; i < partitions; i++) {
+                nextOffsets.merge(new TopicPartition(in.readUTF(), in.readInt()), in.readLong(), Math::max);
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the type to count the event under, registering it if the cap allows. The cap
+     * is checked and the type registered under one lock, so concurrent batches cannot both
+     * take the last free slot.
+     */
+    private String admit(String eventType) {
+        if (perMinute.containsKey(eventType)) {
+            return eventType;
+        }
+        synchronized (admissionLock) {
+            if (perMinute.containsKey(eventType) || perMinute.size() < maxEventTypes) {
+                counter(Granularity.MINUTE, eventType);
+                return eventType;
+            }
+        }
+        return OTHER;
+    }
+
+    private RollingCounter counter(Granularity granularity, String eventType) {
+        return counters(granularity).computeIfAbsent(eventType,
+                type -> new RollingCounter(granularity.getMillis(), retainedBuckets(granularity)));
+    }
+
+    private Map<String, RollingCounter> counters(Granularity granularity) {
+        return granularity == Granularity.MINUTE ? perMinute : perDay;
+    }
+}
@@ -0,0 +1,108 @@
+package com.jp.analyticsservice.aggregation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of time buckets holding event counts.
+ * Bucket i covers [i * bucketMillis, (i + 1) * bucketMillis) in epoch time; only the most
+ * recent {@code slots} buckets are kept and older ones are overwritten as time moves on,
+ * so memory is two long arrays regardless of how many events are counted.
+ */
+public class RollingCounter {
+
+    private final long bucketMillis;
+    private final long[] bucketIds;
+    private final long[] counts;
+
+    public RollingCounter(long bucketMillis, int slots) {
+        this.bucketMillis = bucketMillis;
+        this.bucketIds = new long[slots];
+        this.counts = new long[slots];
+        Arrays.fill(bucketIds, -1);
+    }
+
+    public long bucketOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, bucketMillis);
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getSlots() {
+        return counts.length;
+    }
+
+    /**
+     * Adds to the bucket, unless the bucket is older than the retained window.
+     */
+    public synchronized void add(long bucketId, long delta) {
+        int slot = slotOf(bucketId);
+        if (bucketIds[slot] == bucketId) {
+            counts[slot] += delta;
+        } else if (bucketIds[slot] < bucketId) {
+            bucketIds[slot] = bucketId;
+            counts[slot] = delta;
+        }
+    }
+
+    /**
+     * @return The count of one bucket, or 0 if it is not retained.
+     */
+    public synchronized long get(long bucketId) {
+        int slot = slotOf(bucketId);
+        return bucketIds[slot] == bucketId ? counts[slot] : 0;
+    }
+
+    /**
+     * Copies the counts of the buckets in [fromBucket, toBucket], both inclusive.
+     * Buckets that are not retained read as 0.
+     * @return One count per bucket, starting at fromBucket.
+     */
+    public synchronized long[] range(long fromBucket, long toBucket) {
+        long[] result = new long[(int) (toBucket - fromBucket + 1)];
+        long from = Math.max(fromBucket, toBucket - counts.length + 1);
+        for (long bucketId = from; bucketId <= toBucket; bucketId++) {
+            int slot = slotOf(bucketId);
+            if (bucketIds[slot] == bucketId) {
+                result[(int) (bucketId - fromBucket)] = counts[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the counter in a compact binary form read back by {@link #mergeFrom(DataInput)}.
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(bucketMillis);
+        out.writeInt(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            out.writeLong(bucketIds[i]);
+            out.writeLong(counts[i]);
+        }
+    }
+
+    /**
+     * Reads a counter written by {@link #writeTo(DataOutput)} and merges its buckets into this one,
+     * so a snapshot taken with a different number of slots can still be restored.
+     */
+    public void mergeFrom(DataInput in) throws IOException {
+        long snapshotBucketMillis = in.readLong();
+        int slots = in.readInt();
+        for (int i = 0; i < slots; i++) {
+            long bucketId = in.readLong();
+            long count = in.readLong();
+            if (bucketId >= 0 && snapshotBucketMillis == bucketMillis) {
+                add(bucketId, count);
+            }
+        }
+    }
+
+    private int slotOf(long bucketId) {
+        return (int) Math.floorMod(bucketId, (long) counts.length);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jp.analyticsservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling periodic snapshots of the windowed metrics.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
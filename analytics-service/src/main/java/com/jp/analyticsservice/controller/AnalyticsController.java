@@ -0,0 +1,87 @@
+package com.jp.analyticsservice.controller;
+
+import com.jp.analyticsservice.aggregation.Granularity;
+import com.jp.analyticsservice.aggregation.PatientEventAggregator;
+import com.jp.analyticsservice.dto.BucketCountDTO;
+import com.jp.analyticsservice.dto.EventCountsDTO;
+import com.jp.analyticsservice.exception.InvalidQueryException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * REST Controller for querying the windowed patient event counts.
+ */
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+
+    private final PatientEventAggregator aggregator;
+
+    public AnalyticsController(PatientEventAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Lists the event types that have been counted.
+     */
+    @GetMapping("/event-types")
+    public ResponseEntity<List<String>> getEventTypes() {
+        return ResponseEntity.ok().body(aggregator.eventTypes());
+    }
+
+    /**
+     * Returns the counts of one event type per bucket over [from, to).
+     * Defaults to the last hour by minute. The range may not span more buckets than are retained.
+     * @param eventType The event type, e.g. PATIENT_CREATED.
+     * @param granularity MINUTE or DAY.
+     * @param from Inclusive start of the range in ISO-8601 format.
+     * @param to Exclusive end of the range in ISO-8601 format.
+     */
+    @GetMapping("/events/{eventType}")
+    public ResponseEntity<EventCountsDTO> getEventCounts(
+            @PathVariable String eventType,
+            @RequestParam(defaultValue = "MINUTE") Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+
+        long toMillis = to == null ? System.currentTimeMillis() : to.toEpochMilli();
+        long fromMillis = from == null ? toMillis - 60 * granularity.getMillis() : from.toEpochMilli();
+        if (fromMillis >= toMillis) {
+            throw new InvalidQueryException("from must be before to");
+        }
+        long buckets = Math.floorDiv(toMillis - 1, granularity.getMillis())
+                - Math.floorDiv(fromMillis, granularity.getMillis()) + 1;
+        if (buckets > aggregator.retainedBuckets(granularity)) {
+            throw new InvalidQueryException("Range spans " + buckets + " " + granularity
+                    + " buckets but only " + aggregator.retainedBuckets(granularity) + " are retained");
+        }
+
+        long[] counts = aggregator.query(eventType, granularity, fromMillis, toMillis);
+        long firstBucketStart = Math.floorDiv(fromMillis, granularity.getMillis()) * granularity.getMillis();
+        List<BucketCountDTO> bucketCounts = new ArrayList<>(counts.length);
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            bucketCounts.add(new BucketCountDTO(
+                    Instant.ofEpochMilli(firstBucketStart + i * granularity.getMillis()).toString(), counts[i]));
+        }
+
+        EventCountsDTO result = new EventCountsDTO();
+        result.setEventType(eventType);
+        result.setGranularity(granularity.name());
+        result.setFrom(Instant.ofEpochMilli(fromMillis).toString());
+        result.setTo(Instant.ofEpochMilli(toMillis).toString());
+        result.setTotal(total);
+        result.setBuckets(bucketCounts);
+        return ResponseEntity.ok().body(result);
+    }
+}
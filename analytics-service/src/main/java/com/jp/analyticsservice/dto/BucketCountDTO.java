@@ -0,0 +1,37 @@
+package com.jp.analyticsservice.dto;
+
+/**
+ * Data Transfer Object for the event count of one time bucket.
+ */
+public class BucketCountDTO {
+
+    private String start;
+    private long count;
+
+    public BucketCountDTO() {
+    }
+
+    public BucketCountDTO(String start, long count) {
+        this.start = start;
+        this.count = count;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public String getStart() {
+        return start;
+    }
+
+    public void setStart(String start) {
+        this.start = start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,67 @@
+package com.jp.analyticsservice.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the event counts of one event type over a time range.
+ */
+public class EventCountsDTO {
+
+    private String eventType;
+    private String granularity;
+    private String from;
+    private String to;
+    private long total;
+    private List<BucketCountDTO> buckets;
+
+    /**
+     * Getters and Setters
+     */
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public List<BucketCountDTO> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<BucketCountDTO> buckets) {
+        this.buckets = buckets;
+    }
+}
@@ -0,0 +1,35 @@
+package com.jp.analyticsservice.exception;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Global exception handler turning invalid analytics queries into 400 responses.
+ */
+@ControllerAdvice
+public class GlobalExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    @ExceptionHandler(InvalidQueryException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidQueryException(InvalidQueryException ex) {
+        log.warn("Invalid analytics query {}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("query", ex.getMessage());
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<Map<String, String>> handleTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put(ex.getName(), "Invalid value: " + ex.getValue());
+        return ResponseEntity.badRequest().body(errors);
+    }
+}
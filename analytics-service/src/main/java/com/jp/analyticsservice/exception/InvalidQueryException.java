@@ -0,0 +1,15 @@
+package com.jp.analyticsservice.exception;
+
+/**
+ * Exception thrown when an analytics query asks for an invalid or unbounded time range.
+ */
+public class InvalidQueryException extends RuntimeException {
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message The detail message explaining the error.
+     */
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
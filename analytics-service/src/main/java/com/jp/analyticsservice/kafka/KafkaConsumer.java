@@ -1,30 +1,171 @@
 package com.jp.analyticsservice.kafka;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.jp.analyticsservice.aggregation.PatientEventAggregator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.propagation.Propagator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
+import patient.events.PatientEventBatch;
+import patient.events.PatientEventType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
-public class KafkaConsumer {
+public class KafkaConsumer implements ConsumerSeekAware {
 
     private static final Logger log = LoggerFactory.getLogger(
             KafkaConsumer.class);
+    // Set by patient-service on records carrying a PatientEventBatch
+    private static final String FORMAT_HEADER = "patient-event-format";
+    private static final String BATCH_FORMAT = "batch";
+    private static final String TRACEPARENT = "traceparent";
+    private final PatientEventAggregator aggregator;
+    private final Timer batchTimer;
+    private final Timer eventDelayTimer;
+    private final Counter malformedCounter;
+    private final Propagator propagator;
+
+    /**
+     * Besides these meters, Spring Boot binds the consumer client's metrics to the same registry,
+     * including the per-partition lag in records (kafka.consumer.fetch.manager.records.lag).
+     */
+    public KafkaConsumer(PatientEventAggregator aggregator, MeterRegistry meterRegistry,
+                         Propagator propagator) {
+        this.aggregator = aggregator;
+        this.propagator = propagator;
+        this.batchTimer = Timer.builder("analytics.events.batch")
+                .description("Time to decode and aggregate one poll of patient event records")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.eventDelayTimer = Timer.builder("analytics.events.delay")
+                .description("Time from a patient change to the aggregation of its event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.malformedCounter = Counter.builder("analytics.events.malformed")
+                .description("Records skipped because they could not be decoded")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consumes one poll worth of records from the partitions assigned to this listener thread.
+     * A record holds either one PatientEvent or, when it has the batch format header, a
+     * PatientEventBatch. Events are counted by the time they occurred, or by the record timestamp
+     * for events that predate that field, into the rolling windows, and the offsets are
+     * committed only once the whole batch has been aggregated. If aggregation fails the batch
+     * is not acknowledged and is redelivered by the container's error handler.
+     * Records sent with a traceparent header get a consumer span in the producer's trace, so
+     * the time an event spent in the outbox and on the topic shows in the request's trace.
+     */
+    @KafkaListener(topics = "patient", groupId = "analytics-service",
+            concurrency = "${analytics.consumer.concurrency:3}")
+    public void consumeEvents(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        Timer.Sample sample = Timer.start();
+        long now = System.currentTimeMillis();
+        PatientEventAggregator.Batch batch = aggregator.newBatch();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            batch.consumed(record.topic(), record.partition(), record.offset());
+            Span span = startSpan(record);
+            try {
+                for (PatientEvent patientEvent : decode(record)) {
+                    long occurredAt = patientEvent.getOccurredAtMs() > 0
+                            ? patientEvent.getOccurredAtMs() : record.timestamp();
+                    batch.add(typeName(patientEvent), occurredAt);
+                    eventDelayTimer.record(Math.max(0, now - occurredAt), TimeUnit.MILLISECONDS);
+                }
+            } catch (InvalidProtocolBufferException e) {
+                // A malformed record can never succeed, so skip it instead of blocking the partition
+                malformedCounter.increment();
+                log.error("Error deserializing event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+                if (span != null) {
+                    span.error(e);
+                }
+            } finally {
+                if (span != null) {
+                    span.end();
+                }
+            }
+        }
+        aggregator.apply(batch);
+        acknowledgment.acknowledge();
+        sample.stop(batchTimer);
+        log.debug("Aggregated batch of {} patient events", records.size());
+    }
+
+    /**
+     * Resumes newly assigned partitions where the counts held here end, which differs from the
+     * committed offset when the service stopped between an acknowledgement and the next snapshot.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        assignments.forEach((partition, committed) -> {
+            Long next = aggregator.nextOffset(partition);
+            if (next != null && !next.equals(committed)) {
+                log.info("Seeking {} to offset {} of the analytics snapshot, committed offset is {}",
+                        partition, next, committed);
+                callback.seek(partition.topic(), partition.partition(), next);
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        aggregator.release(partitions);
+    }
+
+    private Span startSpan(ConsumerRecord<String, byte[]> record) {
+        if (record.headers().lastHeader(TRACEPARENT) == null) {
+            return null;
+        }
+        return propagator.extract(record.headers(), KafkaConsumer::header)
+                .name("patient receive")
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.destination.name", record.topic())
+                .tag("messaging.kafka.destination.partition", String.valueOf(record.partition()))
+                .tag("messaging.kafka.message.offset", String.valueOf(record.offset()))
+                .start();
+    }
+
+    private static String header(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static List<PatientEvent> decode(ConsumerRecord<String, byte[]> record)
+            throws InvalidProtocolBufferException {
+        Header format = record.headers().lastHeader(FORMAT_HEADER);
+        if (format != null && BATCH_FORMAT.equals(new String(format.value(), StandardCharsets.UTF_8))) {
+            return PatientEventBatch.parseFrom(record.value()).getEventsList();
+        }
+        return List.of(PatientEvent.parseFrom(record.value()));
+    }
 
-    @KafkaListener(topics="patient", groupId = "analytics-service")
-    public void consumeEvent(byte[] event) {
-        try {
-            PatientEvent patientEvent = PatientEvent.parseFrom(event);
-            // ... perform any business related to analytics here
-
-            log.info("Received Patient Event: [PatientId={},PatientName={},PatientEmail={}]",
-                    patientEvent.getPatientId(),
-                    patientEvent.getName(),
-                    patientEvent.getEmail());
-        } catch (InvalidProtocolBufferException e) {
-            log.error("Error deserializing event {}", e.getMessage());
+    /**
+     * Names the event by its type, or by the event_type string for producers that predate the type field.
+     */
+    @SuppressWarnings("deprecation")
+    private static String typeName(PatientEvent event) {
+        if (event.getType() != PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED
+                && event.getType() != PatientEventType.UNRECOGNIZED) {
+            return event.getType().name();
         }
+        return event.getEventType();
     }
-}
\ No newline at end of file
+}
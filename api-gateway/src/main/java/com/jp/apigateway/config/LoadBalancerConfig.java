@@ -0,0 +1,14 @@
+package com.jp.apigateway.config;
+
+import com.jp.apigateway.loadbalancer.UpstreamLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class making every {@code lb://} route balance with health checks, least
+ * outstanding requests and outlier ejection.
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = UpstreamLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,12 @@
+package com.jp.apigateway.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the background refresh of the JWT signing keys.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
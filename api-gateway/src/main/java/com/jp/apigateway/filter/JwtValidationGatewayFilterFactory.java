@@ -0,0 +1,77 @@
+package com.jp.apigateway.filter;
+
+import com.jp.apigateway.jwt.InvalidTokenException;
+import com.jp.apigateway.jwt.JwtValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Gateway filter, referenced as {@code JwtValidation} in the route definitions, that only lets
+ * requests with a valid bearer JWT through to the downstream service.
+ * Tokens are validated inside the gateway by {@link JwtValidator}, so no call to auth-service is
+ * made per request. The validated claims are exposed to later filters under {@link #CLAIMS_ATTRIBUTE}.
+ * Runs ahead of {@link ResponseCacheGatewayFilterFactory} so cached responses are never served
+ * without a valid token.
+ */
+@Component
+public class JwtValidationGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    /**
+     * Exchange attribute holding the JWTClaimsSet of the validated token.
+     */
+    public static final String CLAIMS_ATTRIBUTE = JwtValidationGatewayFilterFactory.class.getName() + ".claims";
+
+    /**
+     * Filter order, ahead of {@link RateLimitGatewayFilterFactory#ORDER}.
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3;
+
+    private static final Logger log = LoggerFactory.getLogger(JwtValidationGatewayFilterFactory.class);
+    private static final String BEARER_PREFIX = "Bearer ";
+    private final JwtValidator jwtValidator;
+
+    public JwtValidationGatewayFilterFactory(JwtValidator jwtValidator) {
+        this.jwtValidator = jwtValidator;
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (authorization == null
+                    || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+                return unauthorized(exchange, "Bearer realm=\"api-gateway\"");
+            }
+
+            String token = authorization.substring(BEARER_PREFIX.length()).trim();
+            return jwtValidator.validate(token)
+                    .map(claims -> {
+                        exchange.getAttributes().put(CLAIMS_ATTRIBUTE, claims);
+                        return true;
+                    })
+                    .onErrorResume(InvalidTokenException.class, e -> {
+                        log.debug("Rejected token for {}: {}", exchange.getRequest().getPath(), e.getMessage());
+                        return Mono.just(false);
+                    })
+                    .flatMap(valid -> valid ? chain.filter(exchange)
+                            : unauthorized(exchange, "Bearer realm=\"api-gateway\", error=\"invalid_token\""));
+        }, ORDER);
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange, String challenge) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, challenge);
+        return response.setComplete();
+    }
+}
@@ -0,0 +1,148 @@
+package com.jp.apigateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway filter, referenced as {@code RateLimit} in the route definitions, that applies a
+ * token-bucket limit per client and answers 429 once a client's bucket is empty.
+ * Clients are identified by the subject of their validated JWT, or by their remote address on
+ * routes without {@code JwtValidation}. Buckets live in memory, one set per route, and are
+ * dropped once a client has been idle long enough for its bucket to be full again.
+ */
+@Component
+public class RateLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<RateLimitGatewayFilterFactory.Config> {
+
+    /**
+     * Filter order, after {@link JwtValidationGatewayFilterFactory#ORDER} and ahead of
+     * {@link ResponseCacheGatewayFilterFactory#ORDER}, so cache hits count against the limit too.
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    private final long maxClients;
+
+    public RateLimitGatewayFilterFactory(@Value("${gateway.rate-limit.max-clients:100000}") long maxClients) {
+        super(Config.class);
+        this.maxClients = maxClients;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("replenishRate", "burstCapacity");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getReplenishRate() <= 0 || config.getBurstCapacity() < 1) {
+            throw new IllegalArgumentException("RateLimit needs a positive replenishRate and burstCapacity");
+        }
+        double secondsToFill = (double) config.getBurstCapacity() / config.getReplenishRate();
+        Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofMillis((long) Math.ceil(secondsToFill * 1000)).plusSeconds(1))
+                .build();
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            TokenBucket bucket = buckets.get(clientKey(exchange),
+                    key -> new TokenBucket(config.getBurstCapacity(), config.getReplenishRate()));
+            long waitNanos = bucket.tryConsume();
+            ServerHttpResponse response = exchange.getResponse();
+            if (waitNanos > 0) {
+                response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                response.getHeaders().set(REMAINING_HEADER, "0");
+                response.getHeaders().set("Retry-After",
+                        Long.toString(Math.max(1, (long) Math.ceil(waitNanos / 1e9))));
+                return response.setComplete();
+            }
+            response.getHeaders().set(REMAINING_HEADER, Long.toString(bucket.available()));
+            return chain.filter(exchange);
+        }, ORDER);
+    }
+
+    private String clientKey(ServerWebExchange exchange) {
+        Object claims = exchange.getAttribute(JwtValidationGatewayFilterFactory.CLAIMS_ATTRIBUTE);
+        if (claims instanceof JWTClaimsSet jwtClaims && jwtClaims.getSubject() != null) {
+            return "sub:" + jwtClaims.getSubject();
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remoteAddress == null ? "unknown" : remoteAddress.getAddress().getHostAddress());
+    }
+
+    /**
+     * Token bucket refilled continuously at the replenish rate, up to the burst capacity.
+     */
+    static final class TokenBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(int capacity, double tokensPerSecond) {
+            this.capacity = capacity;
+            this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * Takes one token.
+         * @return 0 if a token was taken, otherwise the nanoseconds until one is available.
+         */
+        synchronized long tryConsume() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        synchronized long available() {
+            return (long) tokens;
+        }
+    }
+
+    /**
+     * Per-route limit: replenishRate tokens per second, bursts of up to burstCapacity requests.
+     */
+    public static class Config {
+
+        private double replenishRate;
+        private int burstCapacity;
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+    }
+}
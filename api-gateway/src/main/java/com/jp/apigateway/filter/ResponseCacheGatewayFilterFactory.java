@@ -0,0 +1,291 @@
+package com.jp.apigateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Gateway filter, referenced as {@code ResponseCache} in the route definitions, that serves
+ * repeated GETs from memory and collapses concurrent identical GETs into one upstream call.
+ * <ul>
+ *     <li>200 responses are kept for the route's timeToLive, keyed by path, query and Accept
+ *     header. A zero timeToLive only coalesces.</li>
+ *     <li>Every cached response carries an ETag (the upstream one, or a hash of the body), and a
+ *     matching If-None-Match is answered with 304.</li>
+ *     <li>While a GET is in flight, identical GETs wait for its response instead of going
+ *     upstream themselves.</li>
+ *     <li>A successful POST, PUT, PATCH or DELETE evicts the cached responses for its path and its parent path,
+ *     e.g. PUT /api/patients/{id} evicts that patient and the patient list. It also bumps the
+ *     generation of those paths, and a GET that went upstream in an earlier generation does not
+ *     cache its response, which may have been read before the write.</li>
+ * </ul>
+ * Streaming responses, and responses marked no-store or private or setting cookies, are
+ * passed through uncached. The key does not include the caller, so this filter only belongs on
+ * routes whose GET responses are the same for every (authorised) client.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    /**
+     * Filter order. The response has to be decorated before {@link NettyWriteResponseFilter} writes it.
+     */
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+    // Paths share generation counters by hash, so memory is fixed; a collision only skips a put
+    private static final int GENERATION_STRIPES = 1024;
+    private static final List<MediaType> STREAMING_MEDIA_TYPES =
+            List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+    private final long maxEntries;
+
+    public ResponseCacheGatewayFilterFactory(@Value("${gateway.response-cache.max-entries:1000}") long maxEntries) {
+        super(Config.class);
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("timeToLive");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Cache<CacheKey, CachedResponse> cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(config.getTimeToLive())
+                .build();
+        boolean caching = !config.getTimeToLive().isZero() && !config.getTimeToLive().isNegative();
+        Map<CacheKey, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+        // Changed, and puts checked against it, under its own lock, so a put cannot slip in behind an evict
+        AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() == HttpMethod.HEAD || request.getMethod() == HttpMethod.OPTIONS) {
+                return chain.filter(exchange);
+            }
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange).doOnSuccess(done -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (caching && status != null && status.is2xxSuccessful()) {
+                        evict(cache, generations, request.getPath().value());
+                    }
+                });
+            }
+
+            CacheKey key = CacheKey.of(request);
+            CachedResponse cached = caching ? cache.getIfPresent(key) : null;
+            if (cached != null) {
+                return write(exchange, exchange.getResponse(), cached, "HIT");
+            }
+
+            CompletableFuture<CachedResponse> leader = new CompletableFuture<>();
+            CompletableFuture<CachedResponse> running = inFlight.putIfAbsent(key, leader);
+            if (running != null) {
+                // An uncacheable or failed leader response completes with null; go upstream then
+                return Mono.fromFuture(running, true)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(response -> response.isPresent()
+                                ? write(exchange, exchange.getResponse(), response.get(), "COALESCED")
+                                : chain.filter(exchange));
+            }
+
+            long generation = generations.get(stripe(key.path()));
+            ServerHttpResponse capturing = new CapturingResponse(exchange, response -> {
+                if (caching) {
+                    synchronized (generations) {
+                        if (generations.get(stripe(key.path())) == generation) {
+                            cache.put(key, response);
+                        }
+                    }
+                }
+                leader.complete(response);
+            });
+            return chain.filter(exchange.mutate().response(capturing).build())
+                    .doFinally(signal -> {
+                        inFlight.remove(key, leader);
+                        leader.complete(null);
+                    });
+        }, ORDER);
+    }
+
+    private static void evict(Cache<CacheKey, CachedResponse> cache, AtomicLongArray generations, String path) {
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        String parent = trimmed.substring(0, Math.max(0, trimmed.lastIndexOf('/')));
+        synchronized (generations) {
+            generations.incrementAndGet(stripe(trimmed));
+            generations.incrementAndGet(stripe(parent));
+            cache.asMap().keySet().removeIf(key -> key.path().equals(trimmed) || key.path().equals(parent));
+        }
+    }
+
+    private static int stripe(String path) {
+        return Math.floorMod(path.hashCode(), GENERATION_STRIPES);
+    }
+
+    private static Mono<Void> write(ServerWebExchange exchange, ServerHttpResponse response,
+                                    CachedResponse cached, String cacheStatus) {
+        response.setStatusCode(cached.status());
+        // Headers set by earlier filters for this request (e.g. the rate limit) win over captured ones
+        cached.headers().forEach((name, values) -> {
+            if (!response.getHeaders().containsKey(name)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        response.getHeaders().set(CACHE_STATUS_HEADER, cacheStatus);
+        if (cached.matches(exchange.getRequest().getHeaders())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static boolean isCacheable(HttpStatusCode status, HttpHeaders headers) {
+        if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        MediaType contentType = headers.getContentType();
+        if (contentType != null && STREAMING_MEDIA_TYPES.stream().anyMatch(contentType::isCompatibleWith)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null || !(cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    /**
+     * Response decorator that buffers a cacheable upstream body, hands it to the cache and to
+     * the waiting requests, and then writes it to its own client like a cache hit.
+     */
+    private static final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final Consumer<CachedResponse> onCaptured;
+
+        private CapturingResponse(ServerWebExchange exchange, Consumer<CachedResponse> onCaptured) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.onCaptured = onCaptured;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isCacheable(getStatusCode(), getHeaders())) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                CachedResponse cached = CachedResponse.of(getStatusCode(), getHeaders(), bytes);
+                onCaptured.accept(cached);
+                return write(exchange, getDelegate(), cached, "MISS");
+            });
+        }
+    }
+
+    /**
+     * Cache key; the Accept header is part of it because it selects the representation.
+     */
+    private record CacheKey(String path, String query, String accept) {
+
+        static CacheKey of(ServerHttpRequest request) {
+            return new CacheKey(request.getPath().value(),
+                    request.getURI().getRawQuery(),
+                    request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+        }
+    }
+
+    /**
+     * A buffered upstream response with its entity tag.
+     */
+    private record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+
+        static CachedResponse of(HttpStatusCode status, HttpHeaders upstreamHeaders, byte[] body) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(upstreamHeaders);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+            headers.remove(CACHE_STATUS_HEADER);
+            if (headers.getETag() == null) {
+                headers.setETag("\"" + hash(body) + "\"");
+            }
+            return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), body);
+        }
+
+        boolean matches(HttpHeaders requestHeaders) {
+            List<String> ifNoneMatch;
+            try {
+                ifNoneMatch = requestHeaders.getIfNoneMatch();
+            } catch (IllegalArgumentException e) {
+                // Malformed If-None-Match; answer with the full response
+                return false;
+            }
+            String etag = strip(headers.getETag());
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || strip(tag).equals(etag));
+        }
+
+        private static String strip(String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+
+        private static String hash(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                return HexFormat.of().formatHex(digest, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Per-route settings: how long a 200 response is served from memory.
+     */
+    public static class Config {
+
+        private Duration timeToLive = Duration.ZERO;
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.jp.apigateway.jwt;
+
+/**
+ * Thrown when a bearer token is malformed, expired or not signed by a trusted key.
+ */
+public class InvalidTokenException extends RuntimeException {
+
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+    public InvalidTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,191 @@
+package com.jp.apigateway.jwt;
+
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.RSAKey;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the public keys that JWTs are verified against.
+ * Keys come either from a fixed PEM public key or from the auth-service JWKS endpoint. The JWKS
+ * is refreshed in the background and on demand when a token names an unknown key ID, so a key
+ * rotation is picked up without a restart. On-demand refreshes are rate-limited, so tokens with
+ * made-up key IDs cannot turn into a request flood against auth-service.
+ */
+@Component
+public class JwtKeySource {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeySource.class);
+    private final WebClient webClient;
+    private final ResourceLoader resourceLoader;
+    private final String jwksUri;
+    private final String publicKeyLocation;
+    private final long minRefreshIntervalNanos;
+    private final Duration fetchTimeout;
+    private final AtomicReference<Mono<JWKSet>> inFlightRefresh = new AtomicReference<>();
+    private volatile JWKSet keys = new JWKSet();
+    private volatile boolean fixedKey;
+    private volatile boolean refreshed;
+    private volatile long lastRefreshNanos;
+
+    public JwtKeySource(WebClient.Builder webClientBuilder,
+                        ResourceLoader resourceLoader,
+                        @Value("${auth.jwt.jwks-uri:}") String jwksUri,
+                        @Value("${auth.jwt.public-key-location:}") String publicKeyLocation,
+                        @Value("${auth.jwt.min-refresh-interval-ms:30000}") long minRefreshIntervalMillis,
+                        @Value("${auth.jwt.fetch-timeout-ms:5000}") long fetchTimeoutMillis) {
+        this.webClient = webClientBuilder.build();
+        this.resourceLoader = resourceLoader;
+        this.jwksUri = jwksUri;
+        this.publicKeyLocation = publicKeyLocation;
+        this.minRefreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minRefreshIntervalMillis);
+        this.fetchTimeout = Duration.ofMillis(fetchTimeoutMillis);
+    }
+
+    /**
+     * Loads the fixed public key, if one is configured.
+     */
+    @PostConstruct
+    public void loadPublicKey() throws IOException, ParseException {
+        if (publicKeyLocation.isBlank()) {
+            return;
+        }
+        String pem = resourceLoader.getResource(publicKeyLocation).getContentAsString(StandardCharsets.UTF_8);
+        try {
+            keys = new JWKSet(parsePublicKey(pem));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot read the JWT public key at " + publicKeyLocation, e);
+        }
+        fixedKey = true;
+        log.info("Verifying JWTs against the public key at {}", publicKeyLocation);
+    }
+
+    /**
+     * Returns the keys that may have signed a token with this header.
+     * Fetches the JWKS again when none of the cached keys match and the last fetch is old enough.
+     */
+    public Mono<List<JWK>> keysFor(JWSHeader header) {
+        if (fixedKey) {
+            // A PEM key carries no key ID, so only the key type has to fit the algorithm
+            JWKMatcher matcher = new JWKMatcher.Builder()
+                    .keyType(KeyType.forAlgorithm(header.getAlgorithm()))
+                    .build();
+            return Mono.just(new JWKSelector(matcher).select(keys));
+        }
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(header));
+        List<JWK> matches = selector.select(keys);
+        if (!matches.isEmpty() || (refreshed && System.nanoTime() - lastRefreshNanos < minRefreshIntervalNanos)) {
+            return Mono.just(matches);
+        }
+        return refresh().map(selector::select);
+    }
+
+    /**
+     * Periodically re-fetches the JWKS so that retired keys stop being trusted.
+     */
+    @Scheduled(fixedDelayString = "${auth.jwt.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        if (!fixedKey) {
+            refresh().subscribe();
+        }
+    }
+
+    /**
+     * Fetches the JWKS, sharing a fetch that is already running.
+     * On failure the previously fetched keys stay in use.
+     */
+    Mono<JWKSet> refresh() {
+        if (jwksUri.isBlank()) {
+            return Mono.just(keys);
+        }
+        Mono<JWKSet> running = inFlightRefresh.get();
+        if (running != null) {
+            return running;
+        }
+        Mono<JWKSet> fetch = webClient.get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(fetchTimeout)
+                .map(this::parse)
+                .doOnNext(fetched -> {
+                    keys = fetched;
+                    log.debug("Fetched {} JWT signing keys from {}", fetched.size(), jwksUri);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Fetching the JWKS from {} failed, keeping {} cached keys: {}",
+                            jwksUri, keys.size(), e.getMessage());
+                    return Mono.just(keys);
+                })
+                .doFinally(signal -> inFlightRefresh.set(null))
+                .cache();
+        if (!inFlightRefresh.compareAndSet(null, fetch)) {
+            return refresh();
+        }
+        lastRefreshNanos = System.nanoTime();
+        refreshed = true;
+        return fetch;
+    }
+
+    /**
+     * Reads an RSA or EC key from a PEM "PUBLIC KEY" block. Nimbus' own PEM parser would need
+     * BouncyCastle's PKIX module, which the JDK's key factories make unnecessary here.
+     */
+    private static JWK parsePublicKey(String pem) throws GeneralSecurityException {
+        String base64 = pem.replaceAll("-----(BEGIN|END) PUBLIC KEY-----", "").replaceAll("\\s", "");
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(base64));
+        PublicKey key;
+        try {
+            key = KeyFactory.getInstance("RSA").generatePublic(spec);
+        } catch (InvalidKeySpecException e) {
+            key = KeyFactory.getInstance("EC").generatePublic(spec);
+        }
+        if (key instanceof RSAPublicKey rsa) {
+            return new RSAKey.Builder(rsa).build();
+        }
+        ECPublicKey ec = (ECPublicKey) key;
+        Curve curve = Curve.forECParameterSpec(ec.getParams());
+        if (curve == null) {
+            throw new InvalidKeySpecException("Unsupported EC curve");
+        }
+        return new ECKey.Builder(curve, ec).build();
+    }
+
+    private JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Malformed JWKS", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.jp.apigateway.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.AsymmetricJWK;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.SecretJWK;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.Key;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates bearer JWTs locally: the signature is checked against {@link JwtKeySource} and the
+ * expiry, not-before, issuer and audience claims against the configuration.
+ * Tokens that pass are remembered in a small bounded cache until they expire (or for at most
+ * the configured TTL), so repeated requests with the same token skip the parsing and the
+ * signature check entirely.
+ */
+@Component
+public class JwtValidator {
+
+    private final JwtKeySource keySource;
+    private final DefaultJWSVerifierFactory verifierFactory = new DefaultJWSVerifierFactory();
+    private final Cache<String, JWTClaimsSet> validatedTokens;
+    private final String issuer;
+    private final String audience;
+    private final long clockSkewMillis;
+
+    public JwtValidator(JwtKeySource keySource,
+                        @Value("${auth.jwt.issuer:}") String issuer,
+                        @Value("${auth.jwt.audience:}") String audience,
+                        @Value("${auth.jwt.clock-skew-ms:30000}") long clockSkewMillis,
+                        @Value("${auth.jwt.cache.max-size:10000}") long cacheMaxSize,
+                        @Value("${auth.jwt.cache.max-ttl-ms:300000}") long cacheMaxTtlMillis) {
+        this.keySource = keySource;
+        this.issuer = issuer;
+        this.audience = audience;
+        this.clockSkewMillis = clockSkewMillis;
+        this.validatedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry(TimeUnit.MILLISECONDS.toNanos(cacheMaxTtlMillis)))
+                .build();
+    }
+
+    /**
+     * Validates a compact-serialized JWT.
+     * @return The token's claims.
+     * @throws InvalidTokenException (as error signal) if the token must be rejected.
+     */
+    public Mono<JWTClaimsSet> validate(String token) {
+        JWTClaimsSet cached = validatedTokens.getIfPresent(token);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        SignedJWT jwt;
+        JWTClaimsSet claims;
+        try {
+            jwt = SignedJWT.parse(token);
+            claims = jwt.getJWTClaimsSet();
+            checkClaims(claims);
+        } catch (ParseException e) {
+            return Mono.error(new InvalidTokenException("Malformed token", e));
+        } catch (InvalidTokenException e) {
+            return Mono.error(e);
+        }
+
+        return keySource.keysFor(jwt.getHeader()).flatMap(keys -> {
+            if (!verify(jwt, keys)) {
+                return Mono.error(new InvalidTokenException("Signature not valid for any trusted key"));
+            }
+            validatedTokens.put(token, claims);
+            return Mono.just(claims);
+        });
+    }
+
+    private void checkClaims(JWTClaimsSet claims) {
+        long now = System.currentTimeMillis();
+        Date expiration = claims.getExpirationTime();
+        if (expiration == null) {
+            throw new InvalidTokenException("Token has no expiry");
+        }
+        if (expiration.getTime() + clockSkewMillis < now) {
+            throw new InvalidTokenException("Token expired at " + expiration.toInstant());
+        }
+        Date notBefore = claims.getNotBeforeTime();
+        if (notBefore != null && notBefore.getTime() - clockSkewMillis > now) {
+            throw new InvalidTokenException("Token not valid before " + notBefore.toInstant());
+        }
+        if (!issuer.isBlank() && !issuer.equals(claims.getIssuer())) {
+            throw new InvalidTokenException("Unexpected issuer " + claims.getIssuer());
+        }
+        if (!audience.isBlank() && (claims.getAudience() == null || !claims.getAudience().contains(audience))) {
+            throw new InvalidTokenException("Token not issued for " + audience);
+        }
+    }
+
+    private boolean verify(SignedJWT jwt, List<JWK> keys) {
+        for (JWK jwk : keys) {
+            try {
+                Key key = jwk instanceof AsymmetricJWK asymmetric ? asymmetric.toPublicKey()
+                        : jwk instanceof SecretJWK secret ? secret.toSecretKey()
+                        : null;
+                if (key != null && jwt.verify(verifierFactory.createJWSVerifier(jwt.getHeader(), key))) {
+                    return true;
+                }
+            } catch (JOSEException e) {
+                // Key does not fit the token's algorithm; try the next one
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps a validated token until its own expiry plus the clock skew, capped by the max TTL
+     * so that tokens signed with a since-retired key are not honoured for long.
+     */
+    private final class TokenExpiry implements Expiry<String, JWTClaimsSet> {
+
+        private final long maxTtlNanos;
+
+        private TokenExpiry(long maxTtlNanos) {
+            this.maxTtlNanos = maxTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String token, JWTClaimsSet claims, long currentTime) {
+            long untilExpiry = claims.getExpirationTime().getTime() + clockSkewMillis - System.currentTimeMillis();
+            return Math.max(0, Math.min(maxTtlNanos, TimeUnit.MILLISECONDS.toNanos(untilExpiry)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, JWTClaimsSet claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, JWTClaimsSet claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.jp.apigateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load balancer picking two distinct instances at random and sending the request to the one
+ * with fewer requests in flight ("power of two choices"). This keeps load close to what
+ * always picking the least loaded instance gives, without every gateway thread converging on
+ * the same instance between two updates of the counts, and adapts to instances of unequal
+ * speed, which round robin does not. Ejected instances are skipped.
+ */
+public class PowerOfTwoChoicesLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(PowerOfTwoChoicesLoadBalancer.class);
+    private final ObjectProvider<ServiceInstanceListSupplier> instanceListSupplier;
+    private final String serviceId;
+    private final UpstreamStats upstreamStats;
+
+    public PowerOfTwoChoicesLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> instanceListSupplier,
+                                         String serviceId,
+                                         UpstreamStats upstreamStats) {
+        this.instanceListSupplier = instanceListSupplier;
+        this.serviceId = serviceId;
+        this.upstreamStats = upstreamStats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = instanceListSupplier.getIfAvailable(
+                NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            log.warn("No healthy instance of {} available", serviceId);
+            return new EmptyResponse();
+        }
+        List<ServiceInstance> candidates = upstreamStats.withoutEjected(instances);
+        if (candidates.size() == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return new DefaultResponse(upstreamStats.inFlight(b) < upstreamStats.inFlight(a) ? b : a);
+    }
+}
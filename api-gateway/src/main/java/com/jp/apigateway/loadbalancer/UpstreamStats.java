@@ -0,0 +1,139 @@
+package com.jp.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-instance request statistics shared by the load balancers of all routes: the number of
+ * requests in flight, used to pick the less loaded instance, and passive outlier detection.
+ * An instance failing the configured number of requests in a row, with a connection error,
+ * timeout or 5xx response, is ejected from balancing for the base ejection time, doubled on
+ * every further ejection up to the maximum and reset by the next success. Active health
+ * checks are done separately by the instance list supplier; ejection catches failures
+ * between two checks and instances that pass their health check but fail requests.
+ */
+@Component
+public class UpstreamStats {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamStats.class);
+    private final Map<String, InstanceStats> instances = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int consecutiveFailures;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+
+    public UpstreamStats(MeterRegistry meterRegistry,
+                         @Value("${gateway.load-balancer.outlier.consecutive-failures:5}") int consecutiveFailures,
+                         @Value("${gateway.load-balancer.outlier.base-ejection-ms:30000}") long baseEjectionMillis,
+                         @Value("${gateway.load-balancer.outlier.max-ejection-ms:300000}") long maxEjectionMillis) {
+        this.meterRegistry = meterRegistry;
+        this.consecutiveFailures = consecutiveFailures;
+        this.baseEjectionNanos = Duration.ofMillis(baseEjectionMillis).toNanos();
+        this.maxEjectionNanos = Duration.ofMillis(maxEjectionMillis).toNanos();
+    }
+
+    /**
+     * @return The number of requests currently in flight to the instance.
+     */
+    public int inFlight(ServiceInstance instance) {
+        InstanceStats stats = instances.get(key(instance));
+        return stats == null ? 0 : stats.inFlight.get();
+    }
+
+    /**
+     * Leaves out ejected instances. If every instance is ejected, all of them are returned, since
+     * sending traffic to possibly failing instances beats failing every request at the gateway.
+     * @param candidates The instances that passed their health check.
+     * @return The instances to balance over.
+     */
+    public List<ServiceInstance> withoutEjected(List<ServiceInstance> candidates) {
+        long now = System.nanoTime();
+        List<ServiceInstance> available = candidates.stream()
+                .filter(instance -> !isEjected(instance, now))
+                .toList();
+        return available.isEmpty() ? candidates : available;
+    }
+
+    void requestStarted(ServiceInstance instance) {
+        stats(instance).inFlight.incrementAndGet();
+    }
+
+    /**
+     * Ends a request whose outcome is unknown, such as one the client cancelled: it is no longer
+     * in flight but counts neither as a success nor as a failure.
+     */
+    void requestCancelled(ServiceInstance instance) {
+        stats(instance).inFlight.decrementAndGet();
+    }
+
+    void requestFinished(ServiceInstance instance, boolean failed) {
+        InstanceStats stats = stats(instance);
+        stats.inFlight.decrementAndGet();
+        if (!failed) {
+            stats.consecutiveFailures.set(0);
+            stats.ejections.set(0);
+            return;
+        }
+        if (stats.consecutiveFailures.incrementAndGet() >= consecutiveFailures) {
+            synchronized (stats) {
+                long now = System.nanoTime();
+                if (stats.consecutiveFailures.get() < consecutiveFailures || now - stats.ejectedUntil < 0) {
+                    return;
+                }
+                int ejections = stats.ejections.getAndIncrement();
+                long ejection = Math.min(maxEjectionNanos, baseEjectionNanos << Math.min(ejections, 20));
+                stats.ejectedUntil = now + ejection;
+                stats.consecutiveFailures.set(0);
+                stats.ejectionCounter.increment();
+                log.warn("Ejecting {} instance {} for {} ms after {} consecutive failures",
+                        instance.getServiceId(), instance.getUri(), Duration.ofNanos(ejection).toMillis(),
+                        consecutiveFailures);
+            }
+        }
+    }
+
+    private boolean isEjected(ServiceInstance instance, long now) {
+        InstanceStats stats = instances.get(key(instance));
+        return stats != null && now - stats.ejectedUntil < 0;
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return instances.computeIfAbsent(key(instance), key -> new InstanceStats(instance));
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    private final class InstanceStats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicInteger ejections = new AtomicInteger();
+        private final Counter ejectionCounter;
+        private volatile long ejectedUntil = System.nanoTime();
+
+        InstanceStats(ServiceInstance instance) {
+            String address = instance.getHost() + ":" + instance.getPort();
+            Gauge.builder("gateway.upstream.in.flight", inFlight, AtomicInteger::get)
+                    .tags("service", instance.getServiceId(), "instance", address)
+                    .description("Requests in flight from the gateway to the instance")
+                    .register(meterRegistry);
+            this.ejectionCounter = Counter.builder("gateway.upstream.ejections")
+                    .tags("service", instance.getServiceId(), "instance", address)
+                    .description("Times the instance was ejected for consecutive failures")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.jp.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Records every proxied request in {@link UpstreamStats} against the instance the load balancer
+ * chose for it. Runs right after the load balancer filter and tracks the request until it ends,
+ * including when the client goes away first, which the load balancer's lifecycle callbacks miss.
+ * A cancelled request says nothing about the instance, so it leaves the outlier detection alone.
+ */
+@Component
+public class UpstreamStatsFilter implements GlobalFilter, Ordered {
+
+    private final UpstreamStats upstreamStats;
+
+    public UpstreamStatsFilter(UpstreamStats upstreamStats) {
+        this.upstreamStats = upstreamStats;
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> chosen = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (chosen == null || !chosen.hasServer()) {
+            return chain.filter(exchange);
+        }
+        ServiceInstance instance = chosen.getServer();
+        upstreamStats.requestStarted(instance);
+        return chain.filter(exchange).doFinally(signal -> {
+            if (signal == SignalType.CANCEL) {
+                upstreamStats.requestCancelled(instance);
+                return;
+            }
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            upstreamStats.requestFinished(instance, failed);
+        });
+    }
+}
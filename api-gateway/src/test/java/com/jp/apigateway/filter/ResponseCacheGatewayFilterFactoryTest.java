@@ -0,0 +1,202 @@
+package com.jp.apigateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private final GatewayFilter filter = filter(Duration.ofMinutes(1));
+    private final Upstream upstream = new Upstream();
+
+    @Test
+    void servesRepeatedGetsFromTheCache() {
+        upstream.body = "[\"patient 1\"]";
+        MockServerWebExchange first = get("/api/patients");
+        run(first);
+        upstream.body = "[\"changed\"]";
+        MockServerWebExchange second = get("/api/patients");
+        run(second);
+
+        assertThat(upstream.calls.get()).isEqualTo(1);
+        assertThat(first.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(second.getResponse().getBodyAsString().block(TIMEOUT)).isEqualTo("[\"patient 1\"]");
+        assertThat(second.getResponse().getHeaders().getETag())
+                .isNotNull()
+                .isEqualTo(first.getResponse().getHeaders().getETag());
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWithNotModified() {
+        MockServerWebExchange first = get("/api/patients");
+        run(first);
+        String etag = first.getResponse().getHeaders().getETag();
+
+        MockServerWebExchange revalidation = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients")
+                .header(HttpHeaders.IF_NONE_MATCH, etag));
+        run(revalidation);
+        MockServerWebExchange otherTag = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"other\""));
+        run(otherTag);
+
+        assertThat(revalidation.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidation.getResponse().getBodyAsString().block(TIMEOUT)).isEmpty();
+        assertThat(otherTag.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(otherTag.getResponse().getBodyAsString().block(TIMEOUT)).isEqualTo(upstream.body);
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalGets() {
+        Sinks.One<Void> release = upstream.hold();
+        MockServerWebExchange leader = get("/api/patients");
+        MockServerWebExchange follower = get("/api/patients");
+        Disposable leaderRun = filter.filter(leader, upstream).subscribe();
+        Disposable followerRun = filter.filter(follower, upstream).subscribe();
+
+        release.tryEmitEmpty();
+
+        assertThat(leader.getResponse().getBodyAsString().block(TIMEOUT)).isEqualTo(upstream.body);
+        assertThat(follower.getResponse().getBodyAsString().block(TIMEOUT)).isEqualTo(upstream.body);
+        assertThat(follower.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("COALESCED");
+        assertThat(upstream.calls.get()).isEqualTo(1);
+        leaderRun.dispose();
+        followerRun.dispose();
+    }
+
+    @Test
+    void successfulWritesEvictThePathAndItsParent() {
+        run(get("/api/patients"));
+        run(get("/api/patients/1"));
+        run(get("/api/patients/2"));
+
+        run(MockServerWebExchange.from(MockServerHttpRequest.put("/api/patients/1")));
+        run(get("/api/patients"));
+        run(get("/api/patients/1"));
+        run(get("/api/patients/2"));
+
+        // 3 misses, the PUT, then misses for the list and patient 1 only
+        assertThat(upstream.calls.get()).isEqualTo(6);
+    }
+
+    @Test
+    void failedWritesDoNotEvict() {
+        run(get("/api/patients/1"));
+        upstream.status = HttpStatus.CONFLICT;
+        run(MockServerWebExchange.from(MockServerHttpRequest.put("/api/patients/1")));
+        upstream.status = HttpStatus.OK;
+        run(get("/api/patients/1"));
+
+        assertThat(upstream.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotCacheAGetThatWentUpstreamBeforeAWrite() {
+        upstream.body = "stale";
+        Sinks.One<Void> release = upstream.hold();
+        MockServerWebExchange leader = get("/api/patients/1");
+        Disposable leaderRun = filter.filter(leader, upstream).subscribe();
+        upstream.delay = Mono.empty();
+
+        // The write completes while the GET is still waiting for its response
+        run(MockServerWebExchange.from(MockServerHttpRequest.put("/api/patients/1")));
+        release.tryEmitEmpty();
+        assertThat(leader.getResponse().getBodyAsString().block(TIMEOUT)).isEqualTo("stale");
+
+        upstream.body = "fresh";
+        MockServerWebExchange next = get("/api/patients/1");
+        run(next);
+
+        assertThat(next.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(next.getResponse().getBodyAsString().block(TIMEOUT)).isEqualTo("fresh");
+        leaderRun.dispose();
+    }
+
+    @Test
+    void passesNoStoreResponsesThroughUncached() {
+        upstream.cacheControl = "no-store";
+        run(get("/api/patients"));
+        MockServerWebExchange second = get("/api/patients");
+        run(second);
+
+        assertThat(upstream.calls.get()).isEqualTo(2);
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isNull();
+    }
+
+    @Test
+    void onlyCoalescesWithAZeroTimeToLive() {
+        GatewayFilter coalescing = filter(Duration.ZERO);
+        coalescing.filter(get("/api/patients"), upstream).block(TIMEOUT);
+        coalescing.filter(get("/api/patients"), upstream).block(TIMEOUT);
+
+        assertThat(upstream.calls.get()).isEqualTo(2);
+    }
+
+    private static GatewayFilter filter(Duration timeToLive) {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setTimeToLive(timeToLive);
+        return new ResponseCacheGatewayFilterFactory(100).apply(config);
+    }
+
+    private void run(ServerWebExchange exchange) {
+        filter.filter(exchange, upstream).block(TIMEOUT);
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).accept(MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Stands in for the rest of the filter chain and the upstream service.
+     */
+    private static final class Upstream implements GatewayFilterChain {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile String body = "[]";
+        private volatile HttpStatus status = HttpStatus.OK;
+        private volatile String cacheControl;
+        private volatile Mono<Void> delay = Mono.empty();
+
+        /**
+         * Holds responses back until the returned sink completes.
+         */
+        Sinks.One<Void> hold() {
+            Sinks.One<Void> release = Sinks.one();
+            delay = release.asMono();
+            return release;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            calls.incrementAndGet();
+            String responseBody = body;
+            return delay.then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(status);
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                if (cacheControl != null) {
+                    response.getHeaders().setCacheControl(cacheControl);
+                }
+                return response.writeWith(Mono.just(response.bufferFactory()
+                        .wrap(responseBody.getBytes(StandardCharsets.UTF_8))));
+            }));
+        }
+    }
+}
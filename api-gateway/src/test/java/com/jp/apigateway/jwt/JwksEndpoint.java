@@ -0,0 +1,39 @@
+package com.jp.apigateway.jwt;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the auth-service JWKS endpoint, serving the public halves of the current keys.
+ */
+class JwksEndpoint {
+
+    static final String URI = "http://auth-service/.well-known/jwks.json";
+
+    final AtomicInteger fetches = new AtomicInteger();
+    volatile List<JWK> keys = List.of();
+    volatile HttpStatus status = HttpStatus.OK;
+    volatile Duration delay = Duration.ZERO;
+
+    JwtKeySource keySource(long minRefreshIntervalMillis) {
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+            fetches.incrementAndGet();
+            return Mono.delay(delay).thenReturn(ClientResponse.create(status)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(new JWKSet(keys).toString())
+                    .build());
+        });
+        return new JwtKeySource(webClient, new DefaultResourceLoader(), URI, "", minRefreshIntervalMillis, 5000);
+    }
+}
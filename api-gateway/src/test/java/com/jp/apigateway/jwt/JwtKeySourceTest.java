@@ -0,0 +1,149 @@
+package com.jp.apigateway.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtKeySourceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private final JwksEndpoint jwks = new JwksEndpoint();
+    @TempDir
+    private Path tempDir;
+    private final RSAKey first = rsaKey("first");
+    private final RSAKey second = rsaKey("second");
+
+    @Test
+    void fetchesTheKeysOnFirstUse() {
+        jwks.keys = List.of(first);
+        JwtKeySource keySource = jwks.keySource(60_000);
+
+        assertThat(keysFor(keySource, "first")).extracting(JWK::getKeyID).containsExactly("first");
+        assertThat(keysFor(keySource, "first")).extracting(JWK::getKeyID).containsExactly("first");
+        assertThat(jwks.fetches).hasValue(1);
+    }
+
+    @Test
+    void refreshesOnceForAnUnknownKeyId() throws InterruptedException {
+        jwks.keys = List.of(first);
+        JwtKeySource keySource = jwks.keySource(100);
+        keysFor(keySource, "first");
+        jwks.keys = List.of(first, second);
+        Thread.sleep(150);
+
+        assertThat(keysFor(keySource, "second")).extracting(JWK::getKeyID).containsExactly("second");
+        assertThat(keysFor(keySource, "unknown")).isEmpty();
+        assertThat(keysFor(keySource, "unknown")).isEmpty();
+        assertThat(jwks.fetches).hasValue(2);
+    }
+
+    @Test
+    void doesNotRefreshForUnknownKeyIdsWithinTheMinimumInterval() {
+        jwks.keys = List.of(first);
+        JwtKeySource keySource = jwks.keySource(60_000);
+        keysFor(keySource, "first");
+        jwks.keys = List.of(first, second);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(keysFor(keySource, "made-up-" + i)).isEmpty();
+        }
+        assertThat(keysFor(keySource, "second")).isEmpty();
+        assertThat(jwks.fetches).hasValue(1);
+    }
+
+    @Test
+    void sharesARunningFetch() {
+        jwks.keys = List.of(first);
+        jwks.delay = Duration.ofMillis(200);
+        JwtKeySource keySource = jwks.keySource(0);
+
+        List<List<JWK>> results = Mono.zip(keySource.keysFor(header("first")), keySource.keysFor(header("first")),
+                List::of).block(TIMEOUT);
+
+        assertThat(results).allSatisfy(keys -> assertThat(keys).extracting(JWK::getKeyID).containsExactly("first"));
+        assertThat(jwks.fetches).hasValue(1);
+    }
+
+    @Test
+    void keepsTheFetchedKeysWhenARefreshFails() throws InterruptedException {
+        jwks.keys = List.of(first);
+        JwtKeySource keySource = jwks.keySource(100);
+        keysFor(keySource, "first");
+        jwks.status = HttpStatus.SERVICE_UNAVAILABLE;
+        Thread.sleep(150);
+
+        assertThat(keysFor(keySource, "unknown")).isEmpty();
+        assertThat(keysFor(keySource, "first")).extracting(JWK::getKeyID).containsExactly("first");
+        assertThat(jwks.fetches).hasValue(2);
+    }
+
+    @Test
+    void matchesAFixedRsaKeyByKeyTypeOnly() throws Exception {
+        JwtKeySource keySource = fixedKeySource(first.toPublicKey());
+
+        assertThat(keySource.keysFor(header("any")).block(TIMEOUT)).singleElement()
+                .satisfies(key -> assertThat(key.toRSAKey().toPublicKey()).isEqualTo(first.toPublicKey()));
+        assertThat(keySource.keysFor(new JWSHeader(JWSAlgorithm.HS256)).block(TIMEOUT)).isEmpty();
+        assertThat(keySource.keysFor(new JWSHeader(JWSAlgorithm.ES256)).block(TIMEOUT)).isEmpty();
+    }
+
+    @Test
+    void readsAFixedEcKey() throws Exception {
+        ECKey ecKey = new ECKeyGenerator(Curve.P_256).generate();
+        JwtKeySource keySource = fixedKeySource(ecKey.toPublicKey());
+
+        assertThat(keySource.keysFor(new JWSHeader(JWSAlgorithm.ES256)).block(TIMEOUT)).singleElement()
+                .satisfies(key -> assertThat(key.toECKey().toPublicKey()).isEqualTo(ecKey.toPublicKey()));
+        assertThat(keySource.keysFor(header("any")).block(TIMEOUT)).isEmpty();
+    }
+
+    private JwtKeySource fixedKeySource(PublicKey publicKey) throws IOException, ParseException {
+        Path pem = tempDir.resolve("jwt.pem");
+        Files.writeString(pem, "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder().encodeToString(publicKey.getEncoded())
+                + "\n-----END PUBLIC KEY-----\n");
+        JwtKeySource keySource = new JwtKeySource(WebClient.builder(), new DefaultResourceLoader(), "",
+                pem.toUri().toString(), 60_000, 5000);
+        keySource.loadPublicKey();
+        return keySource;
+    }
+
+    private static List<JWK> keysFor(JwtKeySource keySource, String keyId) {
+        return keySource.keysFor(header(keyId)).block(TIMEOUT);
+    }
+
+    private static JWSHeader header(String keyId) {
+        return new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(keyId).build();
+    }
+
+    static RSAKey rsaKey(String keyId) {
+        try {
+            return new RSAKeyGenerator(2048).keyID(keyId).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.jp.apigateway.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static com.jp.apigateway.jwt.JwtKeySourceTest.rsaKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtValidatorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final String ISSUER = "https://auth.example.com";
+    private static final String AUDIENCE = "patient-api";
+    private static final long CLOCK_SKEW_MILLIS = 30_000;
+    private final JwksEndpoint jwks = new JwksEndpoint();
+    private final RSAKey rsaKey = rsaKey("rsa");
+    private final ECKey ecKey = ecKey("ec");
+    private final JwtValidator validator = validator(CLOCK_SKEW_MILLIS, 300_000);
+
+    JwtValidatorTest() {
+        jwks.keys = List.of(rsaKey, ecKey);
+    }
+
+    @Test
+    void acceptsATokenSignedByATrustedKey() {
+        assertThat(validate(sign(rsaKey, claims().build())).getSubject()).isEqualTo("user-1");
+        assertThat(validate(sign(ecKey, claims().build())).getSubject()).isEqualTo("user-1");
+    }
+
+    @Test
+    void rejectsABadSignature() {
+        // Same key ID, but signed by a key the endpoint does not publish
+        String forged = sign(rsaKey("rsa"), claims().build());
+
+        assertRejected(forged, "Signature not valid");
+    }
+
+    @Test
+    void rejectsATamperedPayload() {
+        String[] parts = sign(rsaKey, claims().build()).split("\\.");
+        String payload = Base64URL.encode(claims().subject("admin").build().toString()).toString();
+
+        assertRejected(parts[0] + "." + payload + "." + parts[2], "Signature not valid");
+    }
+
+    @Test
+    void rejectsAnExpiredTokenBeyondTheClockSkew() {
+        Instant expired = Instant.now().minusMillis(CLOCK_SKEW_MILLIS + 5_000);
+
+        assertRejected(sign(rsaKey, claims().expirationTime(Date.from(expired)).build()),
+                "Token expired");
+    }
+
+    @Test
+    void acceptsAnExpiredTokenWithinTheClockSkew() {
+        Instant expired = Instant.now().minusMillis(CLOCK_SKEW_MILLIS - 5_000);
+
+        assertThat(validate(sign(rsaKey, claims().expirationTime(Date.from(expired)).build())))
+                .isNotNull();
+    }
+
+    @Test
+    void rejectsATokenWithoutExpiry() {
+        assertRejected(sign(rsaKey, claims().expirationTime(null).build()), "no expiry");
+    }
+
+    @Test
+    void honoursNotBeforeWithTheClockSkew() {
+        Instant soon = Instant.now().plusMillis(CLOCK_SKEW_MILLIS - 5_000);
+        Instant later = Instant.now().plusMillis(CLOCK_SKEW_MILLIS + 5_000);
+
+        assertThat(validate(sign(rsaKey, claims().notBeforeTime(Date.from(soon)).build())))
+                .isNotNull();
+        assertRejected(sign(rsaKey, claims().notBeforeTime(Date.from(later)).build()),
+                "not valid before");
+    }
+
+    @Test
+    void rejectsAnHmacTokenKeyedWithTheRsaPublicKey() {
+        // The algorithm confusion attack: HS256 with the public key, which anyone has, as the secret
+        byte[] secret = rsaKey.toPublicJWK().toJSONString().getBytes(StandardCharsets.UTF_8);
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("rsa").build(),
+                claims().build());
+        try {
+            jwt.sign(new MACSigner(secret));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+
+        assertRejected(jwt.serialize(), "Signature not valid");
+    }
+
+    @Test
+    void rejectsAnUnsecuredToken() {
+        String unsecured = new PlainJWT(claims().build()).serialize();
+        String withKeyId = Base64URL.encode("{\"alg\":\"none\",\"kid\":\"rsa\"}") + "."
+                + unsecured.split("\\.")[1] + ".";
+
+        assertRejected(unsecured, "Malformed token");
+        assertRejected(withKeyId, "Malformed token");
+    }
+
+    @Test
+    void rejectsTheWrongIssuer() {
+        assertRejected(sign(rsaKey, claims().issuer("https://evil.example.com").build()),
+                "Unexpected issuer");
+        assertRejected(sign(rsaKey, claims().issuer(null).build()), "Unexpected issuer");
+    }
+
+    @Test
+    void rejectsTheWrongAudience() {
+        assertRejected(sign(rsaKey, claims().audience("billing-api").build()),
+                "not issued for");
+        assertRejected(sign(rsaKey, claims().audience((String) null).build()),
+                "not issued for");
+    }
+
+    @Test
+    void servesARepeatedTokenFromTheCache() {
+        String token = sign(rsaKey, claims().build());
+
+        assertThat(validate(token)).isSameAs(validate(token));
+    }
+
+    @Test
+    void dropsACachedTokenWhenItExpires() throws InterruptedException {
+        JwtValidator withoutSkew = validator(0, 300_000);
+        // JWT times have a resolution of a second
+        Instant expiry = Instant.now().plusSeconds(2).truncatedTo(ChronoUnit.SECONDS);
+        String token = sign(rsaKey, claims().expirationTime(Date.from(expiry)).build());
+        JWTClaimsSet validated = withoutSkew.validate(token).block(TIMEOUT);
+        assertThat(withoutSkew.validate(token).block(TIMEOUT)).isSameAs(validated);
+
+        Thread.sleep(Duration.between(Instant.now(), expiry).toMillis() + 100);
+
+        assertThatThrownBy(() -> withoutSkew.validate(token).block(TIMEOUT))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("Token expired");
+    }
+
+    @Test
+    void revalidatesACachedTokenAfterTheMaximumTtl() throws InterruptedException {
+        JwtValidator shortTtl = validator(CLOCK_SKEW_MILLIS, 100);
+        String token = sign(rsaKey, claims().build());
+        JWTClaimsSet validated = shortTtl.validate(token).block(TIMEOUT);
+
+        Thread.sleep(200);
+
+        assertThat(shortTtl.validate(token).block(TIMEOUT)).isNotSameAs(validated);
+    }
+
+    private JwtValidator validator(long clockSkewMillis, long cacheMaxTtlMillis) {
+        return new JwtValidator(jwks.keySource(60_000), ISSUER, AUDIENCE, clockSkewMillis, 1000, cacheMaxTtlMillis);
+    }
+
+    private JWTClaimsSet validate(String token) {
+        return validator.validate(token).block(TIMEOUT);
+    }
+
+    private void assertRejected(String token, String reason) {
+        assertThatThrownBy(() -> validate(token))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining(reason);
+    }
+
+    private static JWTClaimsSet.Builder claims() {
+        return new JWTClaimsSet.Builder()
+                .subject("user-1")
+                .issuer(ISSUER)
+                .audience(AUDIENCE)
+                .expirationTime(Date.from(Instant.now().plusSeconds(600)));
+    }
+
+    private static String sign(JWK key, JWTClaimsSet claims) {
+        JWSAlgorithm algorithm = key instanceof ECKey ? JWSAlgorithm.ES256 : JWSAlgorithm.RS256;
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(algorithm).keyID(key.getKeyID()).build(), claims);
+        try {
+            jwt.sign(key instanceof ECKey ec ? new ECDSASigner(ec) : new RSASSASigner(key.toRSAKey()));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+
+    private static ECKey ecKey(String keyId) {
+        try {
+            return new ECKeyGenerator(Curve.P_256).keyID(keyId).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.jp.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PowerOfTwoChoicesLoadBalancerTest {
+
+    private static final String SERVICE_ID = "patient-service";
+    private final UpstreamStats stats = new UpstreamStats(new SimpleMeterRegistry(), 3, 60000, 60000);
+    private final ServiceInstance a = new DefaultServiceInstance("a", SERVICE_ID, "a", 4000, false);
+    private final ServiceInstance b = new DefaultServiceInstance("b", SERVICE_ID, "b", 4000, false);
+    private final ServiceInstance c = new DefaultServiceInstance("c", SERVICE_ID, "c", 4000, false);
+
+    @Test
+    void picksTheLessBusyOfTwoInstances() {
+        inFlight(a, 5);
+        inFlight(b, 1);
+
+        Map<String, Integer> chosen = chooseMany(balancer(a, b, c), 300);
+
+        // a loses every pair it is drawn in, b only wins against a
+        assertThat(chosen).doesNotContainKey("a");
+        assertThat(chosen.get("b")).isBetween(50, 150);
+        assertThat(chosen.get("c")).isBetween(150, 250);
+    }
+
+    @Test
+    void skipsEjectedInstances() {
+        for (int i = 0; i < 3; i++) {
+            stats.requestStarted(c);
+            stats.requestFinished(c, true);
+        }
+        inFlight(a, 5);
+
+        Map<String, Integer> chosen = chooseMany(balancer(a, b, c), 100);
+
+        assertThat(chosen).containsOnlyKeys("b");
+    }
+
+    @Test
+    void returnsTheOnlyInstance() {
+        inFlight(a, 5);
+
+        assertThat(chooseMany(balancer(a), 10)).containsOnlyKeys("a");
+    }
+
+    @Test
+    void returnsNoInstanceWhenNoneIsHealthy() {
+        Response<ServiceInstance> response = balancer().choose(new DefaultRequest<>()).block();
+
+        assertThat(response).isNotNull();
+        assertThat(response.hasServer()).isFalse();
+    }
+
+    private PowerOfTwoChoicesLoadBalancer balancer(ServiceInstance... instances) {
+        return new PowerOfTwoChoicesLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE_ID, instances),
+                SERVICE_ID, stats);
+    }
+
+    private void inFlight(ServiceInstance instance, int requests) {
+        for (int i = 0; i < requests; i++) {
+            stats.requestStarted(instance);
+        }
+    }
+
+    private static Map<String, Integer> chooseMany(PowerOfTwoChoicesLoadBalancer balancer, int times) {
+        Map<String, Integer> chosen = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            Response<ServiceInstance> response = balancer.choose(new DefaultRequest<>()).block();
+            chosen.merge(response.getServer().getInstanceId(), 1, Integer::sum);
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,114 @@
+package com.jp.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamStatsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamStats stats = new UpstreamStats(meterRegistry, 3, 200, 500);
+    private final ServiceInstance a = new DefaultServiceInstance("a", "patient-service", "a", 4000, false);
+    private final ServiceInstance b = new DefaultServiceInstance("b", "patient-service", "b", 4000, false);
+
+    @Test
+    void countsRequestsInFlight() {
+        stats.requestStarted(a);
+        stats.requestStarted(a);
+        stats.requestStarted(a);
+        assertThat(stats.inFlight(a)).isEqualTo(3);
+        assertThat(stats.inFlight(b)).isZero();
+
+        stats.requestFinished(a, false);
+        stats.requestFinished(a, true);
+        stats.requestCancelled(a);
+        assertThat(stats.inFlight(a)).isZero();
+    }
+
+    @Test
+    void ejectsAfterConsecutiveFailures() {
+        fail(a, 2);
+        assertThat(stats.withoutEjected(List.of(a, b))).containsExactly(a, b);
+
+        fail(a, 1);
+        assertThat(stats.withoutEjected(List.of(a, b))).containsExactly(b);
+        assertThat(meterRegistry.get("gateway.upstream.ejections").tag("instance", "a:4000").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        fail(a, 2);
+        succeed(a);
+        fail(a, 2);
+        assertThat(stats.withoutEjected(List.of(a, b))).containsExactly(a, b);
+    }
+
+    @Test
+    void cancelledRequestsNeitherFailNorSucceed() {
+        fail(a, 2);
+        stats.requestStarted(a);
+        stats.requestCancelled(a);
+        assertThat(stats.withoutEjected(List.of(a, b))).containsExactly(a, b);
+
+        fail(a, 1);
+        assertThat(stats.withoutEjected(List.of(a, b))).containsExactly(b);
+    }
+
+    @Test
+    void returnsAllInstancesWhenAllAreEjected() {
+        fail(a, 3);
+        fail(b, 3);
+        assertThat(stats.withoutEjected(List.of(a, b))).containsExactly(a, b);
+    }
+
+    @Test
+    void doublesEjectionTimeUpToTheMaximum() throws InterruptedException {
+        // 200 ms
+        fail(a, 3);
+        assertThat(isEjected(a)).isTrue();
+        Thread.sleep(300);
+        assertThat(isEjected(a)).isFalse();
+
+        // 400 ms
+        fail(a, 3);
+        Thread.sleep(300);
+        assertThat(isEjected(a)).isTrue();
+        Thread.sleep(300);
+        assertThat(isEjected(a)).isFalse();
+
+        // 800 ms, capped to 500 ms
+        fail(a, 3);
+        Thread.sleep(300);
+        assertThat(isEjected(a)).isTrue();
+        Thread.sleep(400);
+        assertThat(isEjected(a)).isFalse();
+
+        // A success resets the backoff to 200 ms
+        succeed(a);
+        fail(a, 3);
+        Thread.sleep(300);
+        assertThat(isEjected(a)).isFalse();
+    }
+
+    private boolean isEjected(ServiceInstance instance) {
+        return !stats.withoutEjected(List.of(instance, b)).contains(instance);
+    }
+
+    private void fail(ServiceInstance instance, int times) {
+        for (int i = 0; i < times; i++) {
+            stats.requestStarted(instance);
+            stats.requestFinished(instance, true);
+        }
+    }
+
+    private void succeed(ServiceInstance instance) {
+        stats.requestStarted(instance);
+        stats.requestFinished(instance, false);
+    }
+}
@@ -0,0 +1,16 @@
+package com.jp.benchmarks;
+
+import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.repository.PatientRepository;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Minimal Spring context exposing the patient-service repository over an embedded H2 database.
+ */
+@SpringBootApplication
+@EntityScan(basePackageClasses = Patient.class)
+@EnableJpaRepositories(basePackageClasses = PatientRepository.class)
+public class BenchmarkApplication {
+}
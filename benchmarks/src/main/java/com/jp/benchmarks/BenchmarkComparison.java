@@ -0,0 +1,124 @@
+package com.jp.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON report with a baseline report and exits with status 1 when a benchmark
+ * got slower, or allocates more per operation, by more than the allowed fraction. A score
+ * only counts as slower when the difference also exceeds both runs' error margins, so noise
+ * between two runs on the same machine does not fail the build. Benchmarks missing from the
+ * baseline are reported and not compared.
+ * Usage: BenchmarkComparison baseline.json current.json maxRegression
+ */
+public class BenchmarkComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // Allocation per operation varies by a few bytes between runs, e.g. with TLAB refills
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> <max-regression>");
+            System.exit(2);
+        }
+        Path baselinePath = Path.of(args[0]);
+        if (!Files.exists(baselinePath)) {
+            System.err.println("No benchmark baseline at " + baselinePath + ". Record one on the benchmark machine by "
+                    + "copying target/jmh-result.json of a run of the previous release there.");
+            System.exit(1);
+        }
+        Map<String, JsonNode> baseline = read(baselinePath);
+        Map<String, JsonNode> current = read(Path.of(args[1]));
+        double maxRegression = Double.parseDouble(args[2]);
+
+        List<String> regressions = new ArrayList<>();
+        current.forEach((key, result) -> {
+            JsonNode previous = baseline.get(key);
+            if (previous == null) {
+                System.out.println("NEW   " + key);
+                return;
+            }
+            String regression = compareScore(previous, result, maxRegression);
+            if (regression == null) {
+                regression = compareAllocation(previous, result, maxRegression);
+            }
+            System.out.println((regression == null ? "OK    " : "SLOWER") + " " + key
+                    + (regression == null ? "" : ": " + regression));
+            if (regression != null) {
+                regressions.add(key + ": " + regression);
+            }
+        });
+
+        if (!regressions.isEmpty()) {
+            System.err.println(regressions.size() + " benchmarks regressed by more than "
+                    + Math.round(maxRegression * 100) + "% against " + baselinePath + ":");
+            regressions.forEach(regression -> System.err.println("  " + regression));
+            System.exit(1);
+        }
+        System.out.println("No benchmark regressed by more than " + Math.round(maxRegression * 100) + "%");
+    }
+
+    private static String compareScore(JsonNode baseline, JsonNode current, double maxRegression) {
+        JsonNode before = baseline.get("primaryMetric");
+        JsonNode after = current.get("primaryMetric");
+        double scoreBefore = before.get("score").asDouble();
+        double scoreAfter = after.get("score").asDouble();
+        // Throughput is better when higher, every other mode measures time per operation
+        boolean higherIsBetter = "thrpt".equals(current.get("mode").asText());
+        double worse = higherIsBetter ? scoreBefore - scoreAfter : scoreAfter - scoreBefore;
+        double margin = errorOf(before) + errorOf(after);
+        if (worse > scoreBefore * maxRegression && worse > margin) {
+            return String.format("%.3f -> %.3f %s", scoreBefore, scoreAfter, after.get("scoreUnit").asText());
+        }
+        return null;
+    }
+
+    private static String compareAllocation(JsonNode baseline, JsonNode current, double maxRegression) {
+        JsonNode before = baseline.path("secondaryMetrics").get(ALLOCATION);
+        JsonNode after = current.path("secondaryMetrics").get(ALLOCATION);
+        if (before == null || after == null) {
+            return null;
+        }
+        double bytesBefore = before.get("score").asDouble();
+        double bytesAfter = after.get("score").asDouble();
+        if (bytesAfter - bytesBefore > bytesBefore * maxRegression + ALLOCATION_SLACK_BYTES) {
+            return String.format("%.1f -> %.1f B/op allocated", bytesBefore, bytesAfter);
+        }
+        return null;
+    }
+
+    private static double errorOf(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    /**
+     * @return The results of the report by benchmark, mode and parameters.
+     */
+    private static Map<String, JsonNode> read(Path report) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(report.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            String key = result.get("benchmark").asText() + " [" + result.get("mode").asText() + "]"
+                    + (params.isEmpty() ? "" : " " + params);
+            results.put(key, result);
+        }
+        return results;
+    }
+}
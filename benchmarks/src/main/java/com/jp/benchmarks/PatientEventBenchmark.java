@@ -0,0 +1,81 @@
+package com.jp.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.jp.patientservice.mapping.PatientEventMapper;
+import com.jp.patientservice.models.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import patient.events.PatientEvent;
+import patient.events.PatientEventBatch;
+import patient.events.PatientEventType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protobuf encoding of PatientEvent on the producer side and decoding in analytics-service,
+ * and the PatientEventBatch envelope the outbox relay can wrap 100 events into.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientEventBenchmark {
+
+    private static final int EVENTS_PER_BATCH = 100;
+
+    private Patient patient;
+    private byte[] encoded;
+    private List<byte[]> outboxPayloads;
+    private byte[] encodedBatch;
+
+    @Setup
+    public void setUp() {
+        patient = PatientFixtures.patient(42);
+        encoded = PatientEventMapper.toEvent(patient, PatientEventType.PATIENT_CREATED).toByteArray();
+        outboxPayloads = new ArrayList<>(EVENTS_PER_BATCH);
+        for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+            outboxPayloads.add(PatientEventMapper.toEvent(PatientFixtures.patient(i),
+                    PatientEventType.PATIENT_CREATED).toByteArray());
+        }
+        encodedBatch = wrapBatch();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return PatientEventMapper.toEvent(patient, PatientEventType.PATIENT_CREATED).toByteArray();
+    }
+
+    @Benchmark
+    public PatientEvent parse() throws InvalidProtocolBufferException {
+        return PatientEvent.parseFrom(encoded);
+    }
+
+    /**
+     * Relay side: stamps the sequence onto 100 outbox payloads and wraps them into one record value.
+     */
+    @Benchmark
+    public byte[] wrapBatch() {
+        List<byte[]> events = new ArrayList<>(outboxPayloads.size());
+        for (int i = 0; i < outboxPayloads.size(); i++) {
+            events.add(PatientEventMapper.withSequence(outboxPayloads.get(i), i));
+        }
+        return PatientEventMapper.toBatch(events);
+    }
+
+    @Benchmark
+    public PatientEventBatch parseBatch() throws InvalidProtocolBufferException {
+        return PatientEventBatch.parseFrom(encodedBatch);
+    }
+}
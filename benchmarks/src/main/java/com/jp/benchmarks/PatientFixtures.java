@@ -0,0 +1,56 @@
+package com.jp.benchmarks;
+
+import com.jp.patientservice.dto.PatientRequestDTO;
+import com.jp.patientservice.models.Patient;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Deterministic patient data shared by the benchmark suites.
+ */
+final class PatientFixtures {
+
+    private PatientFixtures() {
+    }
+
+    static PatientRequestDTO request(int i) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName("Patient " + i);
+        request.setEmail("patient" + i + "@example.com");
+        request.setAddress(i + " Main Street, Springfield");
+        request.setDateOfBirth(LocalDate.of(1950, 1, 1).plusDays(i % 20000).toString());
+        request.setRegisteredDate(LocalDate.of(2024, 1, 1).plusDays(i % 365).toString());
+        return request;
+    }
+
+    /**
+     * A patient as loaded from the database, with its ID assigned.
+     */
+    static Patient patient(int i) {
+        Patient patient = newPatient(i);
+        try {
+            // The entity only exposes its generated ID through a getter
+            Field id = Patient.class.getDeclaredField("id");
+            id.setAccessible(true);
+            id.set(patient, new UUID(0x0190000000007000L + i, 0x8000000000000000L + i));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return patient;
+    }
+
+    /**
+     * A patient not yet persisted, whose ID is generated on save.
+     */
+    static Patient newPatient(int i) {
+        Patient patient = new Patient();
+        patient.setName("Patient " + i);
+        patient.setEmail("patient" + i + "@example.com");
+        patient.setAddress(i + " Main Street, Springfield");
+        patient.setDateOfBirth(LocalDate.of(1950, 1, 1).plusDays(i % 20000));
+        patient.setRegisteredDate(LocalDate.of(2024, 1, 1).plusDays(i % 365));
+        return patient;
+    }
+}
@@ -0,0 +1,61 @@
+package com.jp.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jp.patientservice.dto.PatientPageDTO;
+import com.jp.patientservice.dto.PatientResponseDTO;
+import com.jp.patientservice.mapping.PatientMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Jackson serialization of the patient lists returned by GET /patients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientJsonBenchmark {
+
+    @Param({"50", "500"})
+    private int size;
+
+    private ObjectWriter writer;
+    private List<PatientResponseDTO> patients;
+    private PatientPageDTO page;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper().writer();
+        patients = IntStream.range(0, size)
+                .mapToObj(i -> PatientMapper.toDTO(PatientFixtures.patient(i)))
+                .toList();
+        page = new PatientPageDTO(patients, "MDE5MDAwMDAtMDAwMC03MDAw");
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(patients);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(page);
+    }
+}
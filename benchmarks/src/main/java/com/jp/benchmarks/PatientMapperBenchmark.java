@@ -0,0 +1,49 @@
+package com.jp.benchmarks;
+
+import com.jp.patientservice.dto.PatientRequestDTO;
+import com.jp.patientservice.dto.PatientResponseDTO;
+import com.jp.patientservice.mapping.PatientMapper;
+import com.jp.patientservice.models.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity/DTO mapping done on every request, including the LocalDate parsing in toModel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientMapperBenchmark {
+
+    private Patient patient;
+    private PatientRequestDTO request;
+
+    @Setup
+    public void setUp() {
+        patient = PatientFixtures.patient(42);
+        request = PatientFixtures.request(42);
+    }
+
+    @Benchmark
+    public PatientResponseDTO toDTO() {
+        return PatientMapper.toDTO(patient);
+    }
+
+    @Benchmark
+    public Patient toModel() {
+        return PatientMapper.toModel(request);
+    }
+}
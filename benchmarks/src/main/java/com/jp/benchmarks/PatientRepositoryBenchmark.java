@@ -0,0 +1,83 @@
+package com.jp.benchmarks;
+
+import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.repository.PatientRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Repository queries behind the patient endpoints, run against an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientRepositoryBenchmark {
+
+    private static final int SEEDED_PATIENTS = 10_000;
+    private static final int INSERT_BATCH = 100;
+
+    private ConfigurableApplicationContext context;
+    private PatientRepository patientRepository;
+    private TransactionTemplate transactionTemplate;
+    private UUID middleCursor;
+    private int nextPatient = SEEDED_PATIENTS;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(BenchmarkApplication.class);
+        patientRepository = context.getBean(PatientRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        transactionTemplate.executeWithoutResult(status -> patientRepository.saveAll(
+                IntStream.range(0, SEEDED_PATIENTS).mapToObj(PatientFixtures::newPatient).toList()));
+        middleCursor = patientRepository.findAllByOrderByIdAsc(Limit.of(SEEDED_PATIENTS / 2))
+                .get(SEEDED_PATIENTS / 2 - 1).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Patient> keysetPage() {
+        return transactionTemplate.execute(status ->
+                patientRepository.findByIdGreaterThanOrderByIdAsc(middleCursor, Limit.of(51)));
+    }
+
+    @Benchmark
+    public boolean existsByEmail() {
+        return patientRepository.existsByEmail("patient" + (SEEDED_PATIENTS / 2) + "@example.com");
+    }
+
+    @Benchmark
+    public List<Patient> insertBatch() {
+        List<Patient> patients = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < INSERT_BATCH; i++) {
+            patients.add(PatientFixtures.newPatient(nextPatient++));
+        }
+        return transactionTemplate.execute(status -> patientRepository.saveAll(patients));
+    }
+}
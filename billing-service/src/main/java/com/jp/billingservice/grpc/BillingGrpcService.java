@@ -1,18 +1,43 @@
 package com.jp.billingservice.grpc;
 
+import billing.BillingAccountDetails;
+import billing.BillingAccountPage;
+import billing.BillingAccountResult;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc.BillingServiceImplBase;
+import billing.GetBillingAccountRequest;
+import billing.ListAccountsRequest;
+import com.jp.billingservice.store.BillingAccount;
+import com.jp.billingservice.store.BillingAccountStore;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @GrpcService
 public class BillingGrpcService extends BillingServiceImplBase {
 
     private static final Logger log = LoggerFactory.getLogger(
             BillingGrpcService.class);
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private final BillingAccountStore accountStore;
+
+    public BillingGrpcService(BillingAccountStore accountStore) {
+        this.accountStore = accountStore;
+    }
+
+    /**
+     * Creates the billing account of a patient. Idempotent: a retry for a patient that already
+     * has an account returns that account, so callers can safely retry after a timeout.
+     */
 
     @Override
     public void createBillingAccount(BillingRequest billingRequest,
@@ -20,14 +45,151 @@ public class BillingGrpcService extends BillingServiceImplBase {
 
         log.info("createBillingAccount request received {}", billingRequest.toString());
 
+        BillingResponse response;
+        try {
+            response = createAccount(billingRequest);
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        } catch (UncheckedIOException e) {
+            log.error("Could not store billing account for patient {}", billingRequest.getPatientId(), e);
+            responseObserver.onError(Status.UNAVAILABLE.withDescription("Billing account store unavailable")
+                    .asRuntimeException());
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void getBillingAccount(GetBillingAccountRequest request,
+                                  StreamObserver<BillingAccountDetails> responseObserver) {
+        accountStore.find(request.getPatientId()).ifPresentOrElse(account -> {
+            responseObserver.onNext(toDetails(account));
+            responseObserver.onCompleted();
+        }, () -> responseObserver.onError(Status.NOT_FOUND
+                .withDescription("No billing account for patient " + request.getPatientId())
+                .asRuntimeException()));
+    }
+
+    /**
+     * Streams every account in patient ID order, in pages.
+     * Pages are only written while the outbound side is ready, so a slow reader pauses the
+     * listing instead of having the whole store buffered in memory.
+     */
+    @Override
+    public void listAccounts(ListAccountsRequest request,
+                             StreamObserver<BillingAccountPage> responseObserver) {
+
+        ServerCallStreamObserver<BillingAccountPage> serverObserver =
+                (ServerCallStreamObserver<BillingAccountPage>) responseObserver;
+        Iterator<BillingAccount> accounts = accountStore.listAfter(request.getAfterPatientId()).iterator();
+        int pageSize = request.getPageSize() <= 0 ? DEFAULT_PAGE_SIZE : Math.min(request.getPageSize(), MAX_PAGE_SIZE);
+        AtomicBoolean completed = new AtomicBoolean(false);
+
+        serverObserver.setOnCancelHandler(() ->
+                log.info("listAccounts stream cancelled by client"));
+        serverObserver.setOnReadyHandler(() -> {
+            while (serverObserver.isReady() && !serverObserver.isCancelled() && accounts.hasNext()) {
+                BillingAccountPage.Builder page = BillingAccountPage.newBuilder();
+                while (page.getAccountsCount() < pageSize && accounts.hasNext()) {
+                    page.addAccounts(toDetails(accounts.next()));
+                }
+                serverObserver.onNext(page.build());
+            }
+            if (!accounts.hasNext() && !serverObserver.isCancelled() && completed.compareAndSet(false, true)) {
+                serverObserver.onCompleted();
+            }
+        });
+    }
+
+    /**
+     * Streaming variant creating one account per inbound request.
+     * Inbound flow control is manual: the next request is only pulled from the client
+     * while the outbound side can accept another result, so a slow reader throttles
+     * the writer instead of buffering results in memory.
+     * Requests are deduplicated by patient ID in the store, so a batch resent after a
+     * failed stream only returns the accounts already created.
+     */
+    @Override
+    public StreamObserver<BillingRequest> createBillingAccounts(
+            StreamObserver<BillingAccountResult> responseObserver) {
+
+        ServerCallStreamObserver<BillingAccountResult> serverObserver =
+                (ServerCallStreamObserver<BillingAccountResult>) responseObserver;
+        serverObserver.disableAutoRequest();
+
+        AtomicBoolean wasReady = new AtomicBoolean(false);
+        // Once set, results written after the client went away are dropped instead of throwing
+        serverObserver.setOnCancelHandler(() ->
+                log.info("createBillingAccounts stream cancelled by client"));
+        serverObserver.setOnReadyHandler(() -> {
+            if (serverObserver.isReady() && wasReady.compareAndSet(false, true)) {
+                serverObserver.request(1);
+            }
+        });
+
+        return new StreamObserver<>() {
+            private int accounts;
+
+            @Override
+            public void onNext(BillingRequest billingRequest) {
+                if (serverObserver.isCancelled()) {
+                    return;
+                }
+                BillingAccountResult.Builder result = BillingAccountResult.newBuilder()
+                        .setPatientId(billingRequest.getPatientId());
+                try {
+                    BillingResponse response = createAccount(billingRequest);
+                    result.setAccountId(response.getAccountId()).setStatus(response.getStatus());
+                    accounts++;
+                } catch (RuntimeException e) {
+                    log.warn("Could not create billing account for patient {}: {}",
+                            billingRequest.getPatientId(), e.getMessage());
+                    result.setStatus("FAILED").setError(String.valueOf(e.getMessage()));
+                }
+                serverObserver.onNext(result.build());
 
+                if (serverObserver.isReady()) {
+                    serverObserver.request(1);
+                } else {
+                    wasReady.set(false);
+                }
+            }
 
-        BillingResponse response = BillingResponse.newBuilder()
-                .setAccountId("12345")
-                .setStatus("ACTIVE")
+            @Override
+            public void onError(Throwable t) {
+                log.warn("createBillingAccounts stream failed after {} accounts: {}", accounts, t.getMessage());
+                if (!serverObserver.isCancelled()) {
+                    serverObserver.onError(Status.fromThrowable(t).asRuntimeException());
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                log.info("createBillingAccounts stream completed, {} accounts created", accounts);
+                serverObserver.onCompleted();
+            }
+        };
+    }
+
+    private BillingResponse createAccount(BillingRequest billingRequest) {
+        BillingAccount account = accountStore.create(billingRequest.getPatientId(),
+                billingRequest.getName(), billingRequest.getEmail());
+        return BillingResponse.newBuilder()
+                .setAccountId(account.accountId())
+                .setStatus(account.status())
                 .build();
+    }
 
-        responseObserver.onNext(response);
-        responseObserver.onCompleted();
+    private static BillingAccountDetails toDetails(BillingAccount account) {
+        return BillingAccountDetails.newBuilder()
+                .setPatientId(account.patientId())
+                .setAccountId(account.accountId())
+                .setName(account.name())
+                .setEmail(account.email())
+                .setStatus(account.status())
+                .setCreatedAt(account.createdAt().toEpochMilli())
+                .build();
     }
-}
\ No newline at end of file
+}
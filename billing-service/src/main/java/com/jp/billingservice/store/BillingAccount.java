@@ -0,0 +1,16 @@
+package com.jp.billingservice.store;
+
+import java.time.Instant;
+
+/**
+ * A patient's billing account, as stored in the account log.
+ * @param accountId Generated ID of the account.
+ * @param patientId ID of the patient owning the account; a patient has at most one account.
+ * @param name Name of the patient when the account was created.
+ * @param email Email of the patient when the account was created.
+ * @param status Status of the account, e.g. ACTIVE.
+ * @param createdAt When the account was created.
+ */
+public record BillingAccount(String accountId, String patientId, String name, String email, String status,
+                             Instant createdAt) {
+}
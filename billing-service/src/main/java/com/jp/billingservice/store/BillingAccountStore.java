@@ -0,0 +1,285 @@
+package com.jp.billingservice.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Billing accounts keyed by patient ID, stored in an append-only log with an in-memory index.
+ * Every account is appended to the log as one record: its payload length, a CRC32C of the
+ * payload and the payload itself. Lookups are served from the index without touching the file;
+ * the index is sorted by patient ID so accounts can also be listed in that order.
+ * On startup the log is replayed into the index. Only the last record can have been cut short
+ * by a crash, so a bad record that reaches the end of the file is dropped and the log truncated
+ * there, letting later appends follow a valid record. A bad record with more data after it is
+ * corruption: truncating would silently drop every account after it and give those patients
+ * new account IDs, so startup fails instead.
+ * Records are written to the OS without forcing them to disk, which keeps creates in the
+ * microseconds and survives a crash of the service but not of the machine; set
+ * billing.store.sync-on-write to force every record to disk at the cost of a disk flush per create.
+ */
+@Component
+public class BillingAccountStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingAccountStore.class);
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    // Longest string writeUTF can encode
+    private static final int MAX_FIELD_BYTES = 65535;
+    private static final byte RECORD_VERSION = 1;
+    private static final String ACTIVE = "ACTIVE";
+
+    private final NavigableMap<String, BillingAccount> accountsByPatientId = new ConcurrentSkipListMap<>();
+    // Guards appends, so a patient never gets two accounts and records are never interleaved
+    private final Object appendLock = new Object();
+    private final Path path;
+    private final boolean syncOnWrite;
+    private final FileChannel channel;
+    private long end;
+
+    public BillingAccountStore(@Value("${billing.store.path:data/billing-accounts.log}") String path,
+                               @Value("${billing.store.sync-on-write:false}") boolean syncOnWrite) throws IOException {
+        this.path = Path.of(path);
+        this.syncOnWrite = syncOnWrite;
+        Files.createDirectories(this.path.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(this.path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.end = recover();
+    }
+
+    /**
+     * Creates the account of a patient, or returns the existing one. Calling it again for the
+     * same patient, including concurrently, always returns the same account.
+     * @param patientId ID of the patient.
+     * @param name Name of the patient.
+     * @param email Email of the patient.
+     * @return The account of the patient.
+     * @throws IllegalArgumentException If the patient ID is blank or a field is longer than 64 KB encoded.
+     * @throws UncheckedIOException If the account could not be written to the log.
+     */
+    public BillingAccount create(String patientId, String name, String email) {
+        if (patientId == null || patientId.isBlank()) {
+            throw new IllegalArgumentException("patientId is required");
+        }
+        requireEncodable("patientId", patientId);
+        requireEncodable("name", name);
+        requireEncodable("email", email);
+        BillingAccount existing = accountsByPatientId.get(patientId);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (appendLock) {
+            existing = accountsByPatientId.get(patientId);
+            if (existing != null) {
+                return existing;
+            }
+            BillingAccount account = new BillingAccount(UUID.randomUUID().toString(), patientId,
+                    name, email, ACTIVE, Instant.now().truncatedTo(ChronoUnit.MILLIS));
+            append(account);
+            accountsByPatientId.put(patientId, account);
+            return account;
+        }
+    }
+
+    /**
+     * @param patientId ID of the patient.
+     * @return The account of the patient, if one was created.
+     */
+    public Optional<BillingAccount> find(String patientId) {
+        return Optional.ofNullable(accountsByPatientId.get(patientId));
+    }
+
+    /**
+     * Lists accounts in ascending patient ID order, as a live view of the index. Accounts created
+     * while the view is iterated may or may not be included.
+     * @param afterPatientId Only accounts of patients after this ID are listed; empty for all.
+     * @return The accounts, ordered by patient ID.
+     */
+    public Collection<BillingAccount> listAfter(String afterPatientId) {
+        return accountsByPatientId.tailMap(afterPatientId, false).values();
+    }
+
+    /**
+     * @return The number of accounts.
+     */
+    public int size() {
+        return accountsByPatientId.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void append(BillingAccount account) {
+        ByteBuffer record = encode(account);
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record, end + record.position());
+            }
+            if (syncOnWrite) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // Drop whatever part of the record was written, so the next append follows a valid record
+            try {
+                channel.truncate(end);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Could not append billing account to " + path, e);
+        }
+        end += record.limit();
+    }
+
+    private long recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        String problem = null;
+        boolean tornTail = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (position < size) {
+                if (size - position < HEADER_BYTES) {
+                    problem = "truncated record header";
+                    tornTail = true;
+                    break;
+                }
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    problem = "invalid record length " + length;
+                    // The file system may have extended the file without writing the record
+                    tornTail = isZeroFilled(position, size);
+                    break;
+                }
+                if (position + HEADER_BYTES + length > size) {
+                    problem = "truncated record";
+                    tornTail = true;
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (checksum != checksum(payload)) {
+                    problem = "checksum mismatch";
+                    tornTail = position + HEADER_BYTES + length == size;
+                    break;
+                }
+                BillingAccount account = decode(payload);
+                accountsByPatientId.put(account.patientId(), account);
+                position += HEADER_BYTES + length;
+            }
+        }
+
+        if (position < size) {
+            if (!tornTail) {
+                throw new IOException("Corrupt billing account record (" + problem + ") at offset " + position
+                        + " of " + path + ", followed by more records; refusing to truncate "
+                        + (size - position) + " bytes");
+            }
+            log.warn("Discarding {} bytes of an incomplete record ({}) at the end of {}", size - position, problem, path);
+            channel.truncate(position);
+        }
+        log.info("Recovered {} billing accounts from {}", accountsByPatientId.size(), path);
+        return position;
+    }
+
+    private boolean isZeroFilled(long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != 0) {
+                    return false;
+                }
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private static ByteBuffer encode(BillingAccount account) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            out.writeUTF(account.accountId());
+            out.writeUTF(account.patientId());
+            out.writeUTF(nullToEmpty(account.name()));
+            out.writeUTF(nullToEmpty(account.email()));
+            out.writeUTF(account.status());
+            out.writeLong(account.createdAt().toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .flip();
+    }
+
+    private static BillingAccount decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = in.readByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unsupported billing account record version " + version);
+        }
+        return new BillingAccount(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                Instant.ofEpochMilli(in.readLong()));
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void requireEncodable(String field, String value) {
+        if (value == null || value.length() * 3L <= MAX_FIELD_BYTES) {
+            return;
+        }
+        // Length in the modified UTF-8 written by writeUTF
+        long bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        if (bytes > MAX_FIELD_BYTES) {
+            throw new IllegalArgumentException(field + " is longer than " + MAX_FIELD_BYTES + " bytes");
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
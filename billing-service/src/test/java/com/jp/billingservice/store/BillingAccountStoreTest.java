@@ -0,0 +1,157 @@
+package com.jp.billingservice.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BillingAccountStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversAccountsFromTheLog() throws IOException {
+        Path log = dir.resolve("accounts.log");
+        BillingAccount first;
+        BillingAccount second;
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            first = store.create("p1", "Ann", "ann@example.com");
+            second = store.create("p2", "Bob", "bob@example.com");
+        }
+
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.find("p1")).contains(first);
+            assertThat(store.find("p2")).contains(second);
+            assertThat(store.create("p1", "Ann", "ann@example.com")).isEqualTo(first);
+        }
+    }
+
+    @Test
+    void truncatesTornLastRecord() throws IOException {
+        Path log = dir.resolve("accounts.log");
+        BillingAccount first;
+        long validLength;
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            first = store.create("p1", "Ann", "ann@example.com");
+            validLength = Files.size(log);
+            store.create("p2", "Bob", "bob@example.com");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            assertThat(Files.size(log)).isEqualTo(validLength);
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.find("p1")).contains(first);
+            store.create("p3", "Cat", "cat@example.com");
+        }
+
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.find("p3")).isPresent();
+        }
+    }
+
+    @Test
+    void truncatesZeroFilledTail() throws IOException {
+        Path log = dir.resolve("accounts.log");
+        long validLength;
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            store.create("p1", "Ann", "ann@example.com");
+            validLength = Files.size(log);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(validLength + 100);
+        }
+
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(Files.size(log)).isEqualTo(validLength);
+        }
+    }
+
+    @Test
+    void failsOnCorruptionBeforeTheLastRecord() throws IOException {
+        Path log = dir.resolve("accounts.log");
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            store.create("p1", "Ann", "ann@example.com");
+            store.create("p2", "Bob", "bob@example.com");
+            store.create("p3", "Cat", "cat@example.com");
+        }
+        long length = Files.size(log);
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            // Flip a byte in the payload of the first record
+            file.seek(20);
+            int value = file.read();
+            file.seek(20);
+            file.write(value ^ 0xFF);
+        }
+
+        assertThatThrownBy(() -> new BillingAccountStore(log.toString(), false))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum mismatch");
+        assertThat(Files.size(log)).isEqualTo(length);
+    }
+
+    @Test
+    void concurrentCreatesForOnePatientReturnOneAccount() throws Exception {
+        Path log = dir.resolve("accounts.log");
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<BillingAccount>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return store.create("p1", "Ann", "ann@example.com");
+                }));
+            }
+            start.countDown();
+            Set<String> accountIds = new HashSet<>();
+            for (Future<BillingAccount> future : futures) {
+                accountIds.add(future.get().accountId());
+            }
+            assertThat(accountIds).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.listAfter("").stream().map(BillingAccount::patientId).collect(Collectors.toList()))
+                    .containsExactly("p1");
+        }
+    }
+
+    @Test
+    void rejectsFieldsTooLongToEncode() throws IOException {
+        Path log = dir.resolve("accounts.log");
+        try (BillingAccountStore store = new BillingAccountStore(log.toString(), false)) {
+            String name = "é".repeat(40_000);
+            assertThatThrownBy(() -> store.create("p1", name, "ann@example.com"))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(store.size()).isZero();
+            assertThat(Files.size(log)).isZero();
+            assertThat(store.create("p1", "é".repeat(30_000), "ann@example.com")).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.jp.loadtest;
+
+import billing.BillingRequest;
+import com.jp.billingservice.grpc.BillingGrpcService;
+import com.jp.billingservice.store.BillingAccountStore;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The real BillingGrpcService served in-process, recording when each patient's
+ * billing request arrives. Accounts are stored in a temporary log deleted on close.
+ */
+class BillingStandIn implements AutoCloseable {
+
+    private final Map<String, Long> arrivals = new ConcurrentHashMap<>();
+    private final Path accountLog;
+    private final BillingAccountStore accountStore;
+    private final Server server;
+
+    BillingStandIn(int port) throws IOException {
+        this.accountLog = Files.createTempFile("billing-accounts", ".log");
+        this.accountStore = new BillingAccountStore(accountLog.toString(), false);
+        this.server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                .addService(ServerInterceptors.intercept(new BillingGrpcService(accountStore), new ArrivalInterceptor()))
+                .build()
+                .start();
+    }
+
+    int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * @return System.nanoTime() of the first billing request per patient ID.
+     */
+    Map<String, Long> getArrivals() {
+        return arrivals;
+    }
+
+    @Override
+    public void close() throws InterruptedException, IOException {
+        server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+        accountStore.close();
+        Files.deleteIfExists(accountLog);
+    }
+
+    private class ArrivalInterceptor implements ServerInterceptor {
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                     ServerCallHandler<ReqT, RespT> next) {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+                @Override
+                public void onMessage(ReqT message) {
+                    if (message instanceof BillingRequest request) {
+                        arrivals.putIfAbsent(request.getPatientId(), System.nanoTime());
+                    }
+                    super.onMessage(message);
+                }
+            };
+        }
+    }
+}
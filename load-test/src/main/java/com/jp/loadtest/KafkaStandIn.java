@@ -0,0 +1,99 @@
+package com.jp.loadtest;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import patient.events.PatientEvent;
+import patient.events.PatientEventBatch;
+import patient.events.PatientEventType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-node embedded Kafka broker with a consumer recording when each
+ * PATIENT_CREATED event reaches the patient topic's consumers.
+ */
+class KafkaStandIn implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaStandIn.class);
+    private static final String TOPIC = "patient";
+    private final Map<String, Long> arrivals = new ConcurrentHashMap<>();
+    private final EmbeddedKafkaKraftBroker broker;
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final Thread consumerThread;
+
+    KafkaStandIn() {
+        this.broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "load-test",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"),
+                new StringDeserializer(), new ByteArrayDeserializer());
+        consumer.subscribe(List.of(TOPIC));
+        this.consumerThread = new Thread(this::consume, "load-test-kafka-consumer");
+        consumerThread.start();
+    }
+
+    String getBootstrapServers() {
+        return broker.getBrokersAsString();
+    }
+
+    /**
+     * @return System.nanoTime() of the first PATIENT_CREATED event per patient ID.
+     */
+    Map<String, Long> getArrivals() {
+        return arrivals;
+    }
+
+    private void consume() {
+        try {
+            while (true) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+                    long now = System.nanoTime();
+                    try {
+                        for (PatientEvent event : decode(record)) {
+                            if (event.getType() == PatientEventType.PATIENT_CREATED) {
+                                arrivals.putIfAbsent(event.getPatientId(), now);
+                            }
+                        }
+                    } catch (InvalidProtocolBufferException e) {
+                        log.warn("Undecodable event at offset {}", record.offset());
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // Closing
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private static List<PatientEvent> decode(ConsumerRecord<String, byte[]> record)
+            throws InvalidProtocolBufferException {
+        Header format = record.headers().lastHeader("patient-event-format");
+        if (format != null && "batch".equals(new String(format.value(), StandardCharsets.UTF_8))) {
+            return PatientEventBatch.parseFrom(record.value()).getEventsList();
+        }
+        return List.of(PatientEvent.parseFrom(record.value()));
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        consumer.wakeup();
+        consumerThread.join();
+        broker.destroy();
+    }
+}
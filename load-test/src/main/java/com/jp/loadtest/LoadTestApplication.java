@@ -0,0 +1,109 @@
+package com.jp.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test of the patient create path on a single machine.
+ * Starts an embedded Kafka broker and an in-process billing-service, launches patient-service
+ * against them (unless --target points at an already running instance or the gateway), then
+ * drives POST /patients at each configured arrival rate. For every rate it reports, from the
+ * intended send time of each request:
+ * <ul>
+ *     <li>http: until the create response arrived</li>
+ *     <li>billing: until billing-service received the account request</li>
+ *     <li>kafka: until the PATIENT_CREATED event was consumed from the patient topic</li>
+ * </ul>
+ * Patients never seen by billing-service or Kafka within the drain timeout count as errors of that stage.
+ */
+public class LoadTestApplication {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestApplication.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        try (KafkaStandIn kafka = new KafkaStandIn();
+             BillingStandIn billing = new BillingStandIn(options.billingPort());
+             PatientServiceProcess patientService = options.target() == null
+                     ? new PatientServiceProcess(options.java(), options.patientServiceJar(),
+                     options.patientServiceArgs(), options.patientServicePort(),
+                     kafka.getBootstrapServers(), billing.getPort())
+                     : null) {
+            log.info("Kafka stand-in at {}, billing stand-in on port {}", kafka.getBootstrapServers(), billing.getPort());
+            String target = options.target();
+            if (patientService != null) {
+                patientService.awaitReady();
+                target = patientService.getCreateUrl();
+            }
+
+            try (OpenModelLoadGenerator generator = new OpenModelLoadGenerator(
+                    target, options.requestTimeout(), options.maxInFlight())) {
+                if (!options.warmup().isZero()) {
+                    log.info("Warming up at {} req/s for {}", options.rates().get(0), options.warmup());
+                    generator.run(-1, options.rates().get(0), options.warmup(), null);
+                }
+
+                List<StageStats[]> steps = new ArrayList<>();
+                List<Integer> peaks = new ArrayList<>();
+                for (int step = 0; step < options.rates().size(); step++) {
+                    int rate = options.rates().get(step);
+                    StageStats[] stats = {new StageStats("http", rate), new StageStats("billing", rate),
+                            new StageStats("kafka", rate)};
+                    steps.add(stats);
+                    log.info("Running {} req/s for {}", rate, options.stepDuration());
+                    peaks.add(generator.run(step, rate, options.stepDuration(), stats[0]));
+                }
+
+                Map<String, OpenModelLoadGenerator.Created> created = generator.getCreated();
+                awaitDownstream(created, billing.getArrivals(), kafka.getArrivals(), options);
+                for (Map.Entry<String, OpenModelLoadGenerator.Created> patient : created.entrySet()) {
+                    int step = patient.getValue().step();
+                    if (step < 0) {
+                        continue;
+                    }
+                    long intended = patient.getValue().intendedNanos();
+                    recordArrival(steps.get(step)[1], billing.getArrivals().get(patient.getKey()), intended);
+                    recordArrival(steps.get(step)[2], kafka.getArrivals().get(patient.getKey()), intended);
+                }
+
+                PrintStream out = System.out;
+                out.println();
+                StageStats.printHeader(out);
+                for (StageStats[] stats : steps) {
+                    for (StageStats stage : stats) {
+                        stage.print(out, options.stepDuration());
+                    }
+                }
+                out.println();
+                for (int step = 0; step < steps.size(); step++) {
+                    out.printf("%d req/s: peak %d requests in flight%n", options.rates().get(step), peaks.get(step));
+                }
+            }
+        }
+    }
+
+    private static void awaitDownstream(Map<String, OpenModelLoadGenerator.Created> created,
+                                        Map<String, Long> billingArrivals, Map<String, Long> kafkaArrivals,
+                                        LoadTestOptions options) throws InterruptedException {
+        log.info("Waiting up to {} for billing accounts and events", options.drainTimeout());
+        long deadline = System.nanoTime() + options.drainTimeout().toNanos();
+        while (System.nanoTime() < deadline
+                && !(billingArrivals.keySet().containsAll(created.keySet())
+                && kafkaArrivals.keySet().containsAll(created.keySet()))) {
+            Thread.sleep(200);
+        }
+    }
+
+    private static void recordArrival(StageStats stats, Long arrivalNanos, long intendedNanos) {
+        if (arrivalNanos == null) {
+            stats.error();
+        } else {
+            stats.record(arrivalNanos - intendedNanos);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.jp.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, given as --name=value.
+ * @param rates Arrival rates in requests per second, run one after the other.
+ * @param stepDuration How long each rate is held.
+ * @param warmup Unrecorded run at the first rate before measuring.
+ * @param drainTimeout How long to wait for billing accounts and events after the last request.
+ * @param requestTimeout Per-request HTTP timeout; a timed out request counts as an error.
+ * @param maxInFlight Requests allowed to be outstanding; arrivals beyond it count as errors.
+ * @param target Create endpoint to drive. When null, patient-service is launched from patientServiceJar.
+ * @param patientServiceJar Executable patient-service jar launched against the stand-ins.
+ * @param patientServicePort HTTP port of the launched patient-service.
+ * @param java Java launcher used for patient-service, e.g. a Java 21 one for the virtual-threads profile.
+ * @param patientServiceArgs Extra arguments for patient-service, e.g. --spring.profiles.active=virtual-threads.
+ * @param billingPort Port of the in-process billing-service, 0 for any free port.
+ */
+record LoadTestOptions(List<Integer> rates,
+                       Duration stepDuration,
+                       Duration warmup,
+                       Duration drainTimeout,
+                       Duration requestTimeout,
+                       int maxInFlight,
+                       String target,
+                       Path patientServiceJar,
+                       int patientServicePort,
+                       String java,
+                       List<String> patientServiceArgs,
+                       int billingPort) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(
+                Arrays.stream(values.getOrDefault("rates", "50,100,200").split(","))
+                        .map(String::trim).map(Integer::parseInt).toList(),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("step-seconds", "30"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup-seconds", "10"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("drain-seconds", "30"))),
+                Duration.ofMillis(Long.parseLong(values.getOrDefault("request-timeout-ms", "10000"))),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "10000")),
+                values.get("target"),
+                Path.of(values.getOrDefault("patient-service-jar",
+                        "../patient-service/target/patient-service-0.0.1-SNAPSHOT.jar")),
+                Integer.parseInt(values.getOrDefault("patient-service-port", "4100")),
+                values.getOrDefault("java", "java"),
+                values.containsKey("patient-service-args")
+                        ? List.of(values.get("patient-service-args").trim().split("\\s+"))
+                        : List.of(),
+                Integer.parseInt(values.getOrDefault("billing-port", "0")));
+    }
+}
@@ -0,0 +1,136 @@
+package com.jp.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends POST /patients at a fixed arrival rate regardless of how fast responses come back
+ * (open model). Each request has an intended send time on the rate schedule, and all
+ * latencies are measured from it.
+ */
+class OpenModelLoadGenerator implements AutoCloseable {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+    private final URI target;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService responseExecutor = Executors.newFixedThreadPool(4);
+    private final HttpClient client;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Created> created = new ConcurrentHashMap<>();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    /**
+     * A patient created by the run.
+     * @param step Index of the rate step, or -1 during warmup.
+     * @param intendedNanos Intended send time of its create request.
+     */
+    record Created(int step, long intendedNanos) {
+    }
+
+    OpenModelLoadGenerator(String target, Duration requestTimeout, int maxInFlight) {
+        this.target = URI.create(target);
+        this.requestTimeout = requestTimeout;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(responseExecutor)
+                .build();
+    }
+
+    /**
+     * Runs one rate step and waits for its requests to complete.
+     * @param http Stats receiving the create latencies, or null to discard them.
+     * @return The highest number of requests outstanding at once during the step.
+     */
+    int run(int step, int rate, Duration duration, StageStats http) throws InterruptedException {
+        peakInFlight.set(0);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(step, intended, http);
+        }
+        awaitInFlight();
+        return peakInFlight.get();
+    }
+
+    /**
+     * @return Every patient created so far by its ID.
+     */
+    Map<String, Created> getCreated() {
+        return created;
+    }
+
+    private void send(int step, long intended, StageStats http) {
+        if (!inFlight.tryAcquire()) {
+            if (http != null) {
+                http.error();
+            }
+            return;
+        }
+        peakInFlight.accumulateAndGet(maxInFlight - inFlight.availablePermits(), Math::max);
+        long n = sequence.incrementAndGet();
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"name":"Load Test %d","email":"load-%s-%d@example.com","address":"%d Main Street",\
+                        "dateOfBirth":"1990-01-01","registeredDate":"2025-01-01"}""".formatted(n, runId, n, n)))
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            long latency = System.nanoTime() - intended;
+            inFlight.release();
+            Matcher id = error == null && response.statusCode() / 100 == 2 ? ID.matcher(response.body()) : null;
+            if (id == null || !id.find()) {
+                if (http != null) {
+                    http.error();
+                }
+                return;
+            }
+            created.put(id.group(1), new Created(step, intended));
+            if (http != null) {
+                http.record(latency);
+            }
+        });
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        // Every request completes or times out within requestTimeout
+        long deadline = System.nanoTime() + requestTimeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.availablePermits() < maxInFlight && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public void close() {
+        responseExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.jp.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * patient-service launched in its own JVM against the stand-ins, with its embedded H2 database.
+ */
+class PatientServiceProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+    private final Process process;
+    private final int port;
+
+    PatientServiceProcess(String java, Path jar, List<String> extraArgs, int port, String kafkaBootstrapServers,
+                          int billingPort) throws IOException {
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException(jar + " not found, build patient-service first (mvn -B package)");
+        }
+        this.port = port;
+        Path log = Path.of("target", "patient-service.log");
+        Files.createDirectories(log.getParent());
+        List<String> command = new ArrayList<>(List.of(java, "-jar", jar.toString(),
+                "--server.port=" + port,
+                "--spring.kafka.bootstrap-servers=" + kafkaBootstrapServers,
+                "--billing.service.address=localhost",
+                "--billing.service.grpc.port=" + billingPort,
+                "--grpc.server.port=-1",
+                "--logging.level.root=warn"));
+        command.addAll(extraArgs);
+        this.process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    String getCreateUrl() {
+        return "http://localhost:" + port + "/patients";
+    }
+
+    void awaitReady() throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("patient-service exited, see target/patient-service.log");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("patient-service did not become healthy within " + STARTUP_TIMEOUT);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.jp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and errors of one stage of the create path at one arrival rate.
+ * Latencies are measured from the intended send time of the request, not the actual one,
+ * so a stalled generator or server cannot hide queueing delay (coordinated omission).
+ */
+class StageStats {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private final String stage;
+    private final int rate;
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    StageStats(String stage, int rate) {
+        this.stage = stage;
+        this.rate = rate;
+    }
+
+    void record(long latencyNanos) {
+        latencies.recordValue(Math.min(Math.max(latencyNanos, 0), MAX_LATENCY_NANOS));
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    static void printHeader(PrintStream out) {
+        out.printf("%-8s %6s %8s %7s %7s %9s %9s %9s %9s %9s %9s%n", "stage", "rate", "ok", "errors",
+                "error%", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    void print(PrintStream out, Duration stepDuration) {
+        long ok = latencies.getTotalCount();
+        long failed = errors.get();
+        long total = ok + failed;
+        out.printf("%-8s %6d %8d %7d %6.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", stage, rate, ok, failed,
+                total == 0 ? 0.0 : 100.0 * failed / total,
+                ok / (stepDuration.toMillis() / 1000.0),
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.jp.patientservice.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configuration class enabling the patient read-through cache.
+ * The caching advice wraps the transactional advice, so evictions run after the commit
+ * and a concurrent read cannot repopulate the cache with the pre-update row.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+    /**
+     * Name of the cache holding PatientResponseDTOs by patient ID.
+     */
+    public static final String PATIENTS_CACHE = "patients";
+}
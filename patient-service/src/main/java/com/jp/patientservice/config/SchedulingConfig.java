@@ -0,0 +1,12 @@
+package com.jp.patientservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the background jobs that drain the outbox tables.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,56 +1,203 @@
 package com.jp.patientservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.jp.patientservice.dto.PatientChangesDTO;
+import com.jp.patientservice.dto.PatientPageDTO;
+import com.jp.patientservice.dto.PatientPatchDTO;
 import com.jp.patientservice.dto.PatientRequestDTO;
 import com.jp.patientservice.dto.PatientResponseDTO;
+import com.jp.patientservice.mapping.PatientVersionTag;
+import com.jp.patientservice.service.PatientSearchService;
 import com.jp.patientservice.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.UUID;
 
 /**
  * REST Controller for handling patient-related requests.
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/patients")
 @Tag(name = "Patient Controller", description = "Handles patient management operations")
 public class PatientController {
 
     private final PatientService patientService;
+    private final PatientSearchService patientSearchService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Constructor for injecting PatientService dependency.
      *
      * @param patientService Service layer handling patient business logic.
+     * @param patientSearchService Service layer handling patient searches.
+     * @param objectMapper JSON mapper used to write streamed responses.
      */
-    public PatientController(PatientService patientService) {
+    public PatientController(PatientService patientService, PatientSearchService patientSearchService,
+                             ObjectMapper objectMapper) {
         this.patientService = patientService;
+        this.patientSearchService = patientSearchService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Retrieves a list of all patients.
-     * @return ResponseEntity containing a list of PatientResponseDTO.
+     * Retrieves a page of patients using keyset pagination.
+     * @param cursor Continuation token returned by the previous page.
+     * @param size Maximum number of patients to return.
+     * @return ResponseEntity containing a PatientPageDTO.
      */
-    @GetMapping
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(
-            summary = "Retrieve all patients",
-            description = "Fetches a list of all patients from the system",
+            summary = "Retrieve a page of patients",
+            description = "Fetches a page of patients ordered by ID. Pass nextCursor back to get the following page",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "List of patients retrieved successfully"),
+                    @ApiResponse(responseCode = "200", description = "Page of patients retrieved successfully"),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
-    public ResponseEntity<List<PatientResponseDTO>> getPatients() {
-        List<PatientResponseDTO> patients = patientService.getPatients();
-        return ResponseEntity.ok().body(patients);
+    public ResponseEntity<PatientPageDTO> getPatients(
+            @Parameter(description = "Continuation token from the previous page")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Number of patients per page, capped by the server", example = "50")
+            @RequestParam(required = false) Integer size) {
+        PatientPageDTO page = patientService.getPatients(cursor, size);
+        return ResponseEntity.ok().body(page);
+    }
+
+    /**
+     * Streams all patients as newline-delimited JSON.
+     * @return ResponseEntity whose body writes one PatientResponseDTO per line.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Stream all patients",
+            description = "Streams every patient as newline-delimited JSON without buffering the full list",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Patients streamed successfully"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> streamPatients() {
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer()
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                patientService.streamPatients(patient -> {
+                    try {
+                        writer.write(patient);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                writer.flush();
+                outputStream.write('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Retrieves the patient changes that follow a position of the change feed.
+     * @param since Last position the client has seen.
+     * @param size Maximum number of changes to return.
+     * @return ResponseEntity containing a PatientChangesDTO.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Retrieve patient changes",
+            description = "Fetches the patients created, updated or deleted after a change feed position. "
+                    + "Start with since=0 and pass nextSince back to continue",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Changes retrieved successfully")
+            }
+    )
+    public ResponseEntity<PatientChangesDTO> getChanges(
+            @Parameter(description = "Last change feed position already processed", example = "0")
+            @RequestParam(defaultValue = "0") long since,
+
+            @Parameter(description = "Number of changes per response, capped by the server", example = "50")
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok().body(patientService.getChanges(since, size));
     }
 
+    /**
+     * Searches patients by name, email prefix and date of birth range.
+     * @param name Text contained in the name.
+     * @param email Prefix of the email.
+     * @param bornFrom First date of birth of the range.
+     * @param bornTo Last date of birth of the range.
+     * @param cursor Continuation token returned by the previous page.
+     * @param size Maximum number of patients to return.
+     * @return ResponseEntity containing a PatientPageDTO.
+     */
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Search patients",
+            description = "Fetches a page of the patients matching all the given criteria, ordered by ID. "
+                    + "At least a name, an email prefix or a bounded date of birth range is required",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Matching patients retrieved successfully"),
+                    @ApiResponse(responseCode = "400", description = "Criteria not selective enough or invalid cursor")
+            }
+    )
+    public ResponseEntity<PatientPageDTO> searchPatients(
+            @Parameter(description = "Text contained in the name, ignoring case", example = "smit")
+            @RequestParam(required = false) String name,
+
+            @Parameter(description = "Prefix of the email, ignoring case", example = "juan")
+            @RequestParam(required = false) String email,
+
+            @Parameter(description = "First date of birth of the range", example = "1990-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+
+            @Parameter(description = "Last date of birth of the range", example = "1990-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo,
+
+            @Parameter(description = "Continuation token from the previous page")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Number of patients per page, capped by the server", example = "50")
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok().body(patientSearchService.search(name, email, bornFrom, bornTo, cursor, size));
+    }
+
+    /**
+     * Retrieves a single patient by ID.
+     * @param id The UUID of the patient.
+     * @return ResponseEntity containing the PatientResponseDTO.
+     */
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Retrieve a patient",
+            description = "Fetches a single patient by ID",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Patient retrieved successfully"),
+                    @ApiResponse(responseCode = "404", description = "Patient not found")
+            }
+    )
+    public ResponseEntity<PatientResponseDTO> getPatient(
+            @Parameter(description = "UUID of the patient", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479", required = true)
+            @PathVariable UUID id) {
+        PatientResponseDTO patient = patientService.getPatient(id);
+        return ResponseEntity.ok().eTag(PatientVersionTag.format(patient.getVersion())).body(patient);
+    }
 
     @PostMapping
     @Operation(
@@ -70,6 +217,13 @@ public class PatientController {
     }
 
 
+    /**
+     * Updates a patient. With an If-Match header the update only applies to that version.
+     * @param id The UUID of the patient to update.
+     * @param ifMatch ETag of the version the client read, if any.
+     * @param patientRequestDTO The updated patient data.
+     * @return ResponseEntity containing the updated PatientResponseDTO and its ETag.
+     */
     @PutMapping("/{id}")
     @Operation(
             summary = "Update a patient",
@@ -77,6 +231,7 @@ public class PatientController {
             responses = {
                     @ApiResponse(responseCode = "200", description = "Patient updated successfully"),
                     @ApiResponse(responseCode = "404", description = "Patient not found"),
+                    @ApiResponse(responseCode = "409", description = "Patient modified since the If-Match version"),
                     @ApiResponse(responseCode = "400", description = "Invalid input data")
             }
     )
@@ -84,11 +239,50 @@ public class PatientController {
             @Parameter(description = "UUID of the patient to update", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479", required = true)
             @PathVariable UUID id,
 
+            @Parameter(description = "ETag of the patient version being updated", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+
             @Parameter(description = "Updated patient data", required = true)
-            @RequestBody PatientRequestDTO patientRequestDTO) {
+            @Valid @RequestBody PatientRequestDTO patientRequestDTO) {
 
-        PatientResponseDTO patientResponseDTO = patientService.updatePatient(id, patientRequestDTO);
-        return ResponseEntity.ok().body(patientResponseDTO);
+        PatientResponseDTO patientResponseDTO = patientService.updatePatient(id, patientRequestDTO,
+                PatientVersionTag.parse(ifMatch));
+        return ResponseEntity.ok().eTag(PatientVersionTag.format(patientResponseDTO.getVersion()))
+                .body(patientResponseDTO);
+    }
+
+    /**
+     * Changes only the fields present in the request body.
+     * @param id The UUID of the patient to update.
+     * @param ifMatch ETag of the version the client read, if any.
+     * @param patientPatchDTO The fields to change.
+     * @return ResponseEntity containing the updated PatientResponseDTO and its ETag.
+     */
+    @PatchMapping("/{id}")
+    @Operation(
+            summary = "Partially update a patient",
+            description = "Changes the given fields of an existing patient and leaves the others as they are",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Patient updated successfully"),
+                    @ApiResponse(responseCode = "404", description = "Patient not found"),
+                    @ApiResponse(responseCode = "409", description = "Patient modified since the If-Match version"),
+                    @ApiResponse(responseCode = "400", description = "Invalid input data")
+            }
+    )
+    public ResponseEntity<PatientResponseDTO> patchPatient(
+            @Parameter(description = "UUID of the patient to update", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479", required = true)
+            @PathVariable UUID id,
+
+            @Parameter(description = "ETag of the patient version being updated", example = "\"3\"")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+
+            @Parameter(description = "Fields to change", required = true)
+            @Valid @RequestBody PatientPatchDTO patientPatchDTO) {
+
+        PatientResponseDTO patientResponseDTO = patientService.patchPatient(id, patientPatchDTO,
+                PatientVersionTag.parse(ifMatch));
+        return ResponseEntity.ok().eTag(PatientVersionTag.format(patientResponseDTO.getVersion()))
+                .body(patientResponseDTO);
     }
 
 
@@ -0,0 +1,104 @@
+package com.jp.patientservice.controller;
+
+import com.jp.patientservice.dto.ImportJobDTO;
+import com.jp.patientservice.mapping.PatientImportReader;
+import com.jp.patientservice.service.PatientImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * REST Controller for bulk patient imports.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/patients/imports")
+@Tag(name = "Patient Import Controller", description = "Handles bulk patient imports")
+public class PatientImportController {
+
+    private final PatientImportService patientImportService;
+
+    /**
+     * Constructor for injecting PatientImportService dependency.
+     *
+     * @param patientImportService Service layer handling bulk imports.
+     */
+    public PatientImportController(PatientImportService patientImportService) {
+        this.patientImportService = patientImportService;
+    }
+
+    /**
+     * Starts a bulk import from a CSV file with a header line.
+     * @param body The CSV content, streamed from the request.
+     * @return ResponseEntity with the queued job and its status URL.
+     */
+    @PostMapping(consumes = "text/csv")
+    @Operation(
+            summary = "Import patients from CSV",
+            description = "Queues a bulk import. The first line must name the columns name, email, address, dateOfBirth and registeredDate",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Import job queued"),
+                    @ApiResponse(responseCode = "503", description = "Too many imports queued"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<ImportJobDTO> importCsv(InputStream body) throws IOException {
+        return accepted(patientImportService.startImport(body, PatientImportReader.Format.CSV));
+    }
+
+    /**
+     * Starts a bulk import from newline-delimited JSON, one PatientRequestDTO per line.
+     * @param body The NDJSON content, streamed from the request.
+     * @return ResponseEntity with the queued job and its status URL.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Import patients from NDJSON",
+            description = "Queues a bulk import of one patient JSON object per line",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Import job queued"),
+                    @ApiResponse(responseCode = "503", description = "Too many imports queued"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<ImportJobDTO> importNdjson(InputStream body) throws IOException {
+        return accepted(patientImportService.startImport(body, PatientImportReader.Format.NDJSON));
+    }
+
+    /**
+     * Retrieves the progress and rejected rows of an import job.
+     * @param id The UUID of the import job.
+     * @return ResponseEntity containing the ImportJobDTO.
+     */
+    @GetMapping("/{id}")
+    @Operation(
+            summary = "Get import job status",
+            description = "Returns the progress counters and per-row errors of an import job",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Import job found"),
+                    @ApiResponse(responseCode = "404", description = "Import job not found")
+            }
+    )
+    public ResponseEntity<ImportJobDTO> getImportJob(
+            @Parameter(description = "UUID of the import job", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
+            @PathVariable UUID id) {
+        return ResponseEntity.ok().body(patientImportService.getImportJob(id));
+    }
+
+    private ResponseEntity<ImportJobDTO> accepted(ImportJobDTO job) {
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+}
@@ -0,0 +1,121 @@
+package com.jp.patientservice.controller;
+
+import com.jp.patientservice.dto.PatientChangesDTO;
+import com.jp.patientservice.dto.PatientPageDTO;
+import com.jp.patientservice.dto.PatientPatchDTO;
+import com.jp.patientservice.dto.PatientRequestDTO;
+import com.jp.patientservice.dto.PatientResponseDTO;
+import com.jp.patientservice.mapping.PatientVersionTag;
+import com.jp.patientservice.service.PatientSearchService;
+import com.jp.patientservice.service.ReactivePatientService;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * WebFlux REST Controller exposing the same patient API as {@link PatientController},
+ * active under the reactive profile.
+ */
+@RestController
+@RequestMapping("/patients")
+@Profile("reactive")
+@Tag(name = "Patient Controller", description = "Handles patient management operations")
+public class ReactivePatientController {
+
+    private final ReactivePatientService patientService;
+    private final PatientSearchService patientSearchService;
+
+    public ReactivePatientController(ReactivePatientService patientService,
+                                     PatientSearchService patientSearchService) {
+        this.patientService = patientService;
+        this.patientSearchService = patientSearchService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PatientPageDTO> getPatients(
+            @Parameter(description = "Continuation token from the previous page")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Number of patients per page, capped by the server", example = "50")
+            @RequestParam(required = false) Integer size) {
+        return patientService.getPatients(cursor, size);
+    }
+
+    /**
+     * Streams all patients as newline-delimited JSON, pulling rows as the client reads them.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PatientResponseDTO> streamPatients() {
+        return patientService.streamPatients();
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PatientChangesDTO> getChanges(@RequestParam(defaultValue = "0") long since,
+                                              @RequestParam(required = false) Integer size) {
+        return patientService.getChanges(since, size);
+    }
+
+    /**
+     * Searches patients with the same JPA query as {@link PatientController}, run on a worker thread.
+     */
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PatientPageDTO> searchPatients(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return Mono.fromCallable(() -> patientSearchService.search(name, email, bornFrom, bornTo, cursor, size))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<PatientResponseDTO>> getPatient(@PathVariable UUID id) {
+        return patientService.getPatient(id).map(ReactivePatientController::withETag);
+    }
+
+    @PostMapping
+    public Mono<PatientResponseDTO> createPatient(@Valid @RequestBody PatientRequestDTO patientRequestDTO) {
+        return patientService.createPatient(patientRequestDTO);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<PatientResponseDTO>> updatePatient(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody PatientRequestDTO patientRequestDTO) {
+        return patientService.updatePatient(id, patientRequestDTO, PatientVersionTag.parse(ifMatch))
+                .map(ReactivePatientController::withETag);
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<PatientResponseDTO>> patchPatient(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody PatientPatchDTO patientPatchDTO) {
+        return patientService.patchPatient(id, patientPatchDTO, PatientVersionTag.parse(ifMatch))
+                .map(ReactivePatientController::withETag);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deletePatient(@PathVariable UUID id) {
+        return patientService.deletePatient(id).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    private static ResponseEntity<PatientResponseDTO> withETag(PatientResponseDTO patient) {
+        return ResponseEntity.ok().eTag(PatientVersionTag.format(patient.getVersion())).body(patient);
+    }
+}
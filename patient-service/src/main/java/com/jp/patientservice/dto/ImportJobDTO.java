@@ -0,0 +1,125 @@
+package com.jp.patientservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object reporting the progress of a bulk patient import.
+ */
+@Schema(description = "DTO for the status of a bulk patient import job")
+public class ImportJobDTO {
+
+    @Schema(description = "Unique identifier of the import job", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
+    private String id;
+
+    @Schema(description = "State of the job: QUEUED, RUNNING, COMPLETED or FAILED", example = "RUNNING")
+    private String status;
+
+    @Schema(description = "Format of the import file: CSV or NDJSON", example = "CSV")
+    private String format;
+
+    @Schema(description = "Number of rows read so far", example = "120000")
+    private long processedRows;
+
+    @Schema(description = "Number of patients created so far", example = "119990")
+    private long importedRows;
+
+    @Schema(description = "Number of rows rejected so far", example = "10")
+    private long rejectedRows;
+
+    @Schema(description = "Instant the job started, in ISO-8601 format", example = "2025-04-17T10:15:30Z")
+    private String startedAt;
+
+    @Schema(description = "Instant the job finished, in ISO-8601 format", example = "2025-04-17T10:17:02Z")
+    private String finishedAt;
+
+    @Schema(description = "Reason the whole job failed, if it did")
+    private String failureReason;
+
+    @Schema(description = "Rejected rows, capped to the first entries reported")
+    private List<ImportRowErrorDTO> errors;
+
+    /**
+     * Getters and Setters
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public long getProcessedRows() {
+        return processedRows;
+    }
+
+    public void setProcessedRows(long processedRows) {
+        this.processedRows = processedRows;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public void setImportedRows(long importedRows) {
+        this.importedRows = importedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(String startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public String getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(String finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public List<ImportRowErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ImportRowErrorDTO> errors) {
+        this.errors = errors;
+    }
+}
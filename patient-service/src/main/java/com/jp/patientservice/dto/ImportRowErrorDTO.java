@@ -0,0 +1,43 @@
+package com.jp.patientservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Data Transfer Object describing why one row of a bulk import was rejected.
+ */
+@Schema(description = "DTO for a rejected row of a bulk patient import")
+public class ImportRowErrorDTO {
+
+    @Schema(description = "Line number of the rejected row in the import file", example = "42")
+    private long row;
+
+    @Schema(description = "Reason the row was rejected", example = "email: Email address already exists")
+    private String message;
+
+    public ImportRowErrorDTO() {
+    }
+
+    public ImportRowErrorDTO(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
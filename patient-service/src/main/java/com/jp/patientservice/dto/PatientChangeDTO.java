@@ -0,0 +1,98 @@
+package com.jp.patientservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Data Transfer Object for one entry of the patient change feed.
+ */
+@Schema(description = "DTO for a patient change: the current state of a created or updated patient, or a deletion")
+public class PatientChangeDTO {
+
+    /**
+     * Change types reported by the feed.
+     */
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    @Schema(description = "Position of the change in the feed; pass the last one back as since", example = "42")
+    private long seq;
+
+    @Schema(description = "UPSERT for a created or updated patient, DELETE for a deleted one", example = "UPSERT")
+    private String type;
+
+    @Schema(description = "ID of the patient", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
+    private String id;
+
+    @Schema(description = "Version of the patient after the change", example = "3")
+    private long version;
+
+    @Schema(description = "Instant of the change in ISO-8601 format", example = "2025-04-17T10:15:30Z")
+    private String changedAt;
+
+    @Schema(description = "Current state of the patient, absent for deletions")
+    private PatientResponseDTO patient;
+
+    public PatientChangeDTO() {
+    }
+
+    public PatientChangeDTO(long seq, String type, String id, long version, String changedAt,
+                            PatientResponseDTO patient) {
+        this.seq = seq;
+        this.type = type;
+        this.id = id;
+        this.version = version;
+        this.changedAt = changedAt;
+        this.patient = patient;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(String changedAt) {
+        this.changedAt = changedAt;
+    }
+
+    public PatientResponseDTO getPatient() {
+        return patient;
+    }
+
+    public void setPatient(PatientResponseDTO patient) {
+        this.patient = patient;
+    }
+}
@@ -0,0 +1,57 @@
+package com.jp.patientservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for returning one batch of the patient change feed.
+ */
+@Schema(description = "DTO for a batch of patient changes in feed order")
+public class PatientChangesDTO {
+
+    @Schema(description = "Changes after the requested position, in feed order")
+    private List<PatientChangeDTO> changes;
+
+    @Schema(description = "Position to pass as since on the next request", example = "42")
+    private long nextSince;
+
+    @Schema(description = "Whether more changes are available right away", example = "false")
+    private boolean hasMore;
+
+    public PatientChangesDTO() {
+    }
+
+    public PatientChangesDTO(List<PatientChangeDTO> changes, long nextSince, boolean hasMore) {
+        this.changes = changes;
+        this.nextSince = nextSince;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public List<PatientChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<PatientChangeDTO> changes) {
+        this.changes = changes;
+    }
+
+    public long getNextSince() {
+        return nextSince;
+    }
+
+    public void setNextSince(long nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
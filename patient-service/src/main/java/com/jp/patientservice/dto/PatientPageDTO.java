@@ -0,0 +1,46 @@
+package com.jp.patientservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for returning one keyset-paginated page of patients.
+ */
+@Schema(description = "DTO for a page of patients with an opaque continuation token")
+public class PatientPageDTO {
+
+    @Schema(description = "Patients contained in this page, ordered by ID")
+    private List<PatientResponseDTO> patients;
+
+    @Schema(description = "Opaque token to request the next page, absent on the last page",
+            example = "MTIzZTQ1NjctZTg5Yi0xMmQzLWE0NTYtNDI2NjE0MTc0MDA0")
+    private String nextCursor;
+
+    public PatientPageDTO() {
+    }
+
+    public PatientPageDTO(List<PatientResponseDTO> patients, String nextCursor) {
+        this.patients = patients;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public List<PatientResponseDTO> getPatients() {
+        return patients;
+    }
+
+    public void setPatients(List<PatientResponseDTO> patients) {
+        this.patients = patients;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
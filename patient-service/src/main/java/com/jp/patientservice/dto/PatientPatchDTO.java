@@ -0,0 +1,66 @@
+package com.jp.patientservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Data Transfer Object for partial patient updates.
+ * Fields left out of the request keep their current value.
+ */
+@Schema(description = "DTO for partial patient updates, absent fields are left unchanged")
+public class PatientPatchDTO {
+
+    @Schema(description = "Full name of the patient", example = "Juan Rodriguez")
+    @Size(min = 1, max = 100, message = "Must be between 1 and 100 characters.")
+    private String name;
+
+    @Schema(description = "Email address of the patient", example = "juanro@gmail.com")
+    @Email(message = "Email should be valid.")
+    @Size(min = 1, message = "Email cannot be empty.")
+    private String email;
+
+    @Schema(description = "Residential address of the patient", example = "123 Main Street")
+    @Size(min = 1, message = "Address cannot be empty.")
+    private String address;
+
+    @Schema(description = "Date of birth of the patient in YYYY-MM-DD format", example = "1990-01-01")
+    @Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Date of birth must be in YYYY-MM-DD format.")
+    private String dateOfBirth;
+
+    /**
+     * Getters and Setters
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getDateOfBirth() {
+        return dateOfBirth;
+    }
+
+    public void setDateOfBirth(String dateOfBirth) {
+        this.dateOfBirth = dateOfBirth;
+    }
+}
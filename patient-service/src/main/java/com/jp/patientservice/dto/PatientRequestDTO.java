@@ -3,6 +3,7 @@ package com.jp.patientservice.dto;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 /**
@@ -28,10 +29,12 @@ public class PatientRequestDTO {
 
 @Schema(description = "Date of birth of the patient in YYYY-MM-DD format", example = "1990-01-01")
 @NotBlank(message = "Date of birth is required.")
+@Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Date of birth must be in YYYY-MM-DD format.")
     private String dateOfBirth;
 
 @Schema(description = "Registration date of the patient in YYYY-MM-DD format", example = "2025-04-17")
 @NotBlank(message = "Registered date is required.")
+@Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}", message = "Registered date must be in YYYY-MM-DD format.")
     private String registeredDate;
 
 
@@ -23,6 +23,9 @@ public class PatientResponseDTO {
     @Schema(description = "Date of birth of the patient in YYYY-MM-DD format", example = "1990-01-01")
     private String dateOfBirth;
 
+    @Schema(description = "Version of the patient, sent back in If-Match to update it", example = "0")
+    private long version;
+
     /**
      * Getters and Setters
      */
@@ -65,4 +68,12 @@ public class PatientResponseDTO {
     public void setDateOfBirth(String dateOfBirth) {
         this.dateOfBirth = dateOfBirth;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
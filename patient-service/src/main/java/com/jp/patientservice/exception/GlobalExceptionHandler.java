@@ -5,10 +5,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -41,6 +44,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(errors);
     }
 
+    /**
+     * Validation errors raised by the reactive controllers, reported like
+     * {@link #handleValidationException(MethodArgumentNotValidException)}.
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleWebExchangeBindException(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+        return ResponseEntity.badRequest().body(errors);
+    }
+
     @ExceptionHandler(EmailAlreadyExistsException.class)
     @Operation(
             summary = "Handles duplicate email errors",
@@ -76,7 +90,110 @@ public class GlobalExceptionHandler {
         log.warn("Patient not found{}",ex.getMessage());
         Map<String, String> errors = new HashMap<>();
         errors.put("patient", "Patient not found");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errors);
+    }
+
+    @ExceptionHandler(PatientVersionConflictException.class)
+    @Operation(
+            summary = "Handles concurrent modification errors",
+            description = "Returns an error response when an update names a patient version that is no longer current",
+            responses = {
+                    @ApiResponse(responseCode = "409", description = "Patient modified since it was read",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    schema = @Schema(implementation = Map.class)))
+            }
+    )
+    public ResponseEntity<Map<String, String>> handlePatientVersionConflictException(
+            PatientVersionConflictException ex) {
+        log.warn("Patient version conflict{}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("version", "Patient was modified by another request");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    /**
+     * A write that lost a race with a concurrent one and was not retried, reported like
+     * {@link #handlePatientVersionConflictException(PatientVersionConflictException)}.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex) {
+        log.warn("Concurrent patient modification{}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("version", "Patient was modified by another request");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @Operation(
+            summary = "Handles invalid pagination cursors",
+            description = "Returns an error response when a continuation token cannot be decoded",
+            responses = {
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    schema = @Schema(implementation = Map.class)))
+            }
+    )
+    public ResponseEntity<Map<String, String>> handleInvalidCursorException(
+            InvalidCursorException ex) {
+        log.warn("Invalid cursor{}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("cursor", "Invalid pagination cursor");
         return ResponseEntity.badRequest().body(errors);
     }
 
+    @ExceptionHandler(InvalidSearchException.class)
+    @Operation(
+            summary = "Handles unselective searches",
+            description = "Returns an error response when search criteria would scan the patient table",
+            responses = {
+                    @ApiResponse(responseCode = "400", description = "Search criteria not selective enough",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    schema = @Schema(implementation = Map.class)))
+            }
+    )
+    public ResponseEntity<Map<String, String>> handleInvalidSearchException(
+            InvalidSearchException ex) {
+        log.warn("Invalid search{}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("search", ex.getMessage());
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    @Operation(
+            summary = "Handles import job not found errors",
+            description = "Returns an error response when an import job ID is unknown or expired",
+            responses = {
+                    @ApiResponse(responseCode = "404", description = "Import job not found",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    schema = @Schema(implementation = Map.class)))
+            }
+    )
+    public ResponseEntity<Map<String, String>> handleImportJobNotFoundException(
+            ImportJobNotFoundException ex) {
+        log.warn("Import job not found{}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("importJob", "Import job not found");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errors);
+    }
+
+    @ExceptionHandler(ImportQueueFullException.class)
+    @Operation(
+            summary = "Handles full import queue errors",
+            description = "Returns an error response when no more imports can be queued",
+            responses = {
+                    @ApiResponse(responseCode = "503", description = "Import queue full",
+                            content = @io.swagger.v3.oas.annotations.media.Content(
+                                    schema = @Schema(implementation = Map.class)))
+            }
+    )
+    public ResponseEntity<Map<String, String>> handleImportQueueFullException(
+            ImportQueueFullException ex) {
+        log.warn("Import rejected{}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("import", "Too many imports queued, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errors);
+    }
+
 }
@@ -0,0 +1,18 @@
+package com.jp.patientservice.exception;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Exception thrown when a requested import job is not found.
+ */
+@Schema(description = "Exception thrown when the import job ID is not found or has expired.")
+public class ImportJobNotFoundException extends RuntimeException {
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message The detail message explaining the error.
+     */
+    public ImportJobNotFoundException(String message) {
+        super(message);
+    }
+}
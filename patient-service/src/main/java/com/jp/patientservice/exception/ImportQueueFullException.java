@@ -0,0 +1,18 @@
+package com.jp.patientservice.exception;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Exception thrown when an import cannot be queued because too many imports are waiting.
+ */
+@Schema(description = "Exception thrown when the import queue is full.")
+public class ImportQueueFullException extends RuntimeException {
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message The detail message explaining the error.
+     */
+    public ImportQueueFullException(String message) {
+        super(message);
+    }
+}
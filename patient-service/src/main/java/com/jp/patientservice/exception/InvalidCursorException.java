@@ -0,0 +1,18 @@
+package com.jp.patientservice.exception;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Exception thrown when a pagination cursor cannot be decoded.
+ */
+@Schema(description = "Exception thrown when the continuation token of a paginated request is invalid.")
+public class InvalidCursorException extends RuntimeException {
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message The detail message explaining the error.
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.jp.patientservice.exception;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Exception thrown when a patient search is not selective enough to be served from an index.
+ */
+@Schema(description = "Exception thrown when the criteria of a patient search would scan the whole table.")
+public class InvalidSearchException extends RuntimeException {
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message The detail message explaining the error.
+     */
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+}
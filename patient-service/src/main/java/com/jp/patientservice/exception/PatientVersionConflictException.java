@@ -0,0 +1,18 @@
+package com.jp.patientservice.exception;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Exception thrown when an update names a patient version that is no longer current.
+ */
+@Schema(description = "Exception thrown when a patient was modified since the version the client read.")
+public class PatientVersionConflictException extends RuntimeException {
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message The detail message explaining the error.
+     */
+    public PatientVersionConflictException(String message) {
+        super(message);
+    }
+}
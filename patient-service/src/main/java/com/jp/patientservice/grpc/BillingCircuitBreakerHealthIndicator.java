@@ -0,0 +1,28 @@
+package com.jp.patientservice.grpc;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the billing-service circuit breaker state under /actuator/health.
+ * An open circuit is reported as UNKNOWN rather than DOWN: billing is delivered through
+ * the outbox, so patient-service itself keeps serving requests.
+ */
+@Component
+public class BillingCircuitBreakerHealthIndicator implements HealthIndicator {
+
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+
+    public BillingCircuitBreakerHealthIndicator(BillingServiceGrpcClient billingServiceGrpcClient) {
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+    }
+
+    @Override
+    public Health health() {
+        CircuitBreaker.State state = billingServiceGrpcClient.getCircuitBreakerState();
+        Health.Builder health = state == CircuitBreaker.State.OPEN ? Health.unknown() : Health.up();
+        return health.withDetail("circuitBreaker", state.name()).build();
+    }
+}
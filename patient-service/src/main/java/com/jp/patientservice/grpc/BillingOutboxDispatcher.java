@@ -0,0 +1,238 @@
+package com.jp.patientservice.grpc;
+
+import billing.BillingAccountResult;
+import billing.BillingRequest;
+import com.jp.patientservice.models.BillingOutboxEntry;
+import com.jp.patientservice.models.BillingOutboxStatus;
+import com.jp.patientservice.repository.BillingOutboxRepository;
+import com.jp.patientservice.tracing.TraceContexts;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Background job that drains the billing outbox to billing-service.
+ * Entries are claimed in batches, delivered over one streaming call per batch and rescheduled
+ * with exponential backoff when billing-service rejects an item or is slow or unavailable.
+ * Claiming marks the entries IN_PROGRESS until the claim timeout in a short transaction, so
+ * no row lock or connection is held during the call; the results are recorded in a second
+ * transaction. Entries of a dispatcher that died become due again once their claim expires.
+ * A batch is sent in its own trace, since its entries come from many requests. Each entry
+ * written during a traced request gets a span in that trace covering its delivery, tagged
+ * with the trace ID of the batch that carried it.
+ */
+@Service
+public class BillingOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(
+            BillingOutboxDispatcher.class);
+    private static final Set<BillingOutboxStatus> CLAIMABLE =
+            EnumSet.of(BillingOutboxStatus.PENDING, BillingOutboxStatus.IN_PROGRESS);
+    private final BillingOutboxRepository billingOutboxRepository;
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final TraceContexts traceContexts;
+    private final ObservationRegistry observationRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimTimeout;
+
+    public BillingOutboxDispatcher(
+            BillingOutboxRepository billingOutboxRepository,
+            BillingServiceGrpcClient billingServiceGrpcClient,
+            TraceContexts traceContexts,
+            ObservationRegistry observationRegistry,
+            TransactionTemplate transactionTemplate,
+            @Value("${billing.outbox.batch-size:500}") int batchSize,
+            @Value("${billing.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${billing.outbox.initial-backoff-ms:500}") long initialBackoffMillis,
+            @Value("${billing.outbox.max-backoff-ms:60000}") long maxBackoffMillis,
+            @Value("${billing.outbox.claim-timeout-ms:30000}") long claimTimeoutMillis,
+            @Value("${billing.service.grpc.batch-deadline-ms:10000}") long batchDeadlineMillis) {
+        this.billingOutboxRepository = billingOutboxRepository;
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.traceContexts = traceContexts;
+        this.observationRegistry = observationRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        // Another dispatcher must not take over a batch whose call is still running
+        this.claimTimeout = Duration.ofMillis(Math.max(claimTimeoutMillis, 2 * batchDeadlineMillis));
+    }
+
+    /**
+     * Delivers due entries until the outbox has no more work for now.
+     */
+    @Scheduled(fixedDelayString = "${billing.outbox.poll-interval-ms:500}")
+    public void dispatchPending() {
+        Integer dispatched;
+        do {
+            dispatched = dispatchBatch();
+        } while (dispatched == batchSize);
+    }
+
+    private int dispatchBatch() {
+        // Millisecond precision, so the claim reads back equal from any database column
+        Instant claimedUntil = Instant.now().plus(claimTimeout).truncatedTo(ChronoUnit.MILLIS);
+        List<BillingOutboxEntry> entries = transactionTemplate.execute(status -> claim(claimedUntil));
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        List<BillingRequest> requests = entries.stream()
+                .map(entry -> BillingRequest.newBuilder()
+                        .setPatientId(entry.getPatientId().toString())
+                        .setName(entry.getName())
+                        .setEmail(entry.getEmail())
+                        .build())
+                .toList();
+
+        List<Span> spans = entries.stream().map(this::startSpan).toList();
+        String[] batchTraceId = new String[1];
+        List<BillingAccountResult> results;
+        try {
+            results = Observation.createNotStarted("billing.outbox.dispatch", observationRegistry)
+                    .highCardinalityKeyValue("billing.batch.size", String.valueOf(entries.size()))
+                    .observe(() -> {
+                        batchTraceId[0] = traceContexts.currentTraceId();
+                        return billingServiceGrpcClient.createBillingAccounts(requests);
+                    });
+        } catch (CallNotPermittedException e) {
+            // The circuit is open: release the entries so waiting does not use up attempts
+            log.debug("Billing service circuit is open, postponing {} entries", entries.size());
+            record(entries, claimedUntil, BillingOutboxEntry::release);
+            endSpans(spans, batchTraceId[0], e);
+            return 0;
+        } catch (RuntimeException e) {
+            log.warn("Billing account stream for {} patients failed, retrying later: {}",
+                    entries.size(), e.getMessage());
+            record(entries, claimedUntil, entry -> entry.markFailed(e.getMessage(), retryAt(entry)));
+            endSpans(spans, batchTraceId[0], e);
+            // Stop draining until the next poll instead of failing every pending batch in a row
+            return 0;
+        }
+
+        Map<UUID, BillingAccountResult> resultsByPatient = new HashMap<>();
+        for (int i = 0; i < entries.size() && i < results.size(); i++) {
+            resultsByPatient.put(entries.get(i).getPatientId(), results.get(i));
+        }
+        record(entries, claimedUntil, entry -> {
+            BillingAccountResult result = resultsByPatient.get(entry.getPatientId());
+            if (result == null) {
+                retryLater(entry, "No result returned by billing-service");
+            } else if (result.getError().isEmpty()) {
+                entry.markSent(result.getAccountId());
+            } else {
+                retryLater(entry, result.getError());
+            }
+        });
+
+        for (int i = 0; i < entries.size(); i++) {
+            BillingAccountResult result = i < results.size() ? results.get(i) : null;
+            Span span = spans.get(i);
+            if (span != null) {
+                span.tag("billing.batch.trace_id", String.valueOf(batchTraceId[0]));
+                if (result == null || !result.getError().isEmpty()) {
+                    span.error(new IllegalStateException(result == null
+                            ? "No result returned by billing-service" : result.getError()));
+                }
+                span.end();
+            }
+        }
+        return entries.size();
+    }
+
+    /**
+     * Locks the due entries and claims them until the given instant.
+     */
+    private List<BillingOutboxEntry> claim(Instant claimedUntil) {
+        List<BillingOutboxEntry> entries = billingOutboxRepository
+                .findByStatusInAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                        CLAIMABLE, Instant.now(), Limit.of(batchSize));
+        entries.forEach(entry -> entry.claim(claimedUntil));
+        return entries;
+    }
+
+    /**
+     * Applies the outcome of a call to the entries it carried, in one transaction. Entries whose
+     * claim expired during the call may have been claimed again by another dispatcher and are
+     * left to it.
+     */
+    private void record(List<BillingOutboxEntry> entries, Instant claimedUntil,
+                        Consumer<BillingOutboxEntry> outcome) {
+        List<UUID> patientIds = entries.stream().map(BillingOutboxEntry::getPatientId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (BillingOutboxEntry entry : billingOutboxRepository.findAllById(patientIds)) {
+                if (entry.isClaimedUntil(claimedUntil)) {
+                    outcome.accept(entry);
+                } else {
+                    log.warn("Claim on the billing outbox entry of patient {} expired during the call",
+                            entry.getPatientId());
+                }
+            }
+        });
+    }
+
+    private Span startSpan(BillingOutboxEntry entry) {
+        if (entry.getTraceParent() == null) {
+            return null;
+        }
+        return traceContexts.startSpan("billing account create", Span.Kind.CLIENT, entry.getTraceParent())
+                .tag("billing.attempt", String.valueOf(entry.getAttempts() + 1));
+    }
+
+    private static void endSpans(List<Span> spans, String batchTraceId, Throwable error) {
+        for (Span span : spans) {
+            if (span != null) {
+                span.tag("billing.batch.trace_id", String.valueOf(batchTraceId)).error(error).end();
+            }
+        }
+    }
+
+    private void retryLater(BillingOutboxEntry entry, String error) {
+        Instant retryAt = retryAt(entry);
+        entry.markFailed(error, retryAt);
+        if (retryAt == null) {
+            log.error("Giving up creating billing account for patient {} after {} attempts: {}",
+                    entry.getPatientId(), entry.getAttempts(), error);
+        } else {
+            log.warn("Billing account creation for patient {} failed, retrying at {}: {}",
+                    entry.getPatientId(), retryAt, error);
+        }
+    }
+
+    private Instant retryAt(BillingOutboxEntry entry) {
+        return entry.getAttempts() + 1 >= maxAttempts ? null : nextAttemptAt(entry.getAttempts());
+    }
+
+    private Instant nextAttemptAt(int attempts) {
+        long backoff = Math.min(maxBackoff.toMillis(),
+                initialBackoff.toMillis() << Math.min(attempts, 20));
+        // Up to 20% jitter so retries of a burst do not hit billing-service in lockstep
+        long jitter = ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+        return Instant.now().plusMillis(backoff + jitter);
+    }
+}
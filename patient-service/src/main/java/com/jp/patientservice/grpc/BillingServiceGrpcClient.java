@@ -1,43 +1,340 @@
 package com.jp.patientservice.grpc;
 
+import billing.BillingAccountDetails;
+import billing.BillingAccountPage;
+import billing.BillingAccountResult;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import billing.ListAccountsRequest;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.grpc.ClientInterceptors;
+import io.grpc.Context;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.NameResolverRegistry;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Client for billing-service. Calls are spread over a small pool of channels, each
+ * balancing round-robin over every resolved billing-service address, and guarded by a
+ * circuit breaker so a hung billing-service makes callers fail fast instead of waiting.
+ */
 @Service
 public class BillingServiceGrpcClient {
 
     private static final Logger log = LoggerFactory.getLogger(
             BillingServiceGrpcClient.class);
-    private final BillingServiceGrpc.BillingServiceBlockingStub blockingStub;
+    static final Metadata.Key<String> IDEMPOTENCY_KEY =
+            Metadata.Key.of("idempotency-key", Metadata.ASCII_STRING_MARSHALLER);
+    private static final Set<Status.Code> FAILURE_CODES = Set.of(Status.Code.UNAVAILABLE,
+            Status.Code.DEADLINE_EXCEEDED, Status.Code.RESOURCE_EXHAUSTED, Status.Code.INTERNAL,
+            Status.Code.UNKNOWN);
+
+    static {
+        NameResolverRegistry.getDefaultRegistry().register(new StaticAddressNameResolverProvider());
+    }
+
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final List<BillingServiceGrpc.BillingServiceFutureStub> futureStubs = new ArrayList<>();
+    private final List<BillingServiceGrpc.BillingServiceStub> asyncStubs = new ArrayList<>();
+    private final List<BillingServiceGrpc.BillingServiceBlockingStub> blockingStubs = new ArrayList<>();
+    private final AtomicInteger nextChannel = new AtomicInteger();
+    private final CircuitBreaker circuitBreaker;
+    private final long deadlineMillis;
+    private final long batchDeadlineMillis;
 
     public BillingServiceGrpcClient(
             @Value("${billing.service.address:localhost}") String serverAddress,
-            @Value("${billing.service.grpc.port:9001}") int serverPort) {
+            @Value("${billing.service.grpc.port:9001}") int serverPort,
+            @Value("${billing.service.addresses:}") String serverAddresses,
+            @Value("${billing.service.grpc.channels:2}") int channelCount,
+            @Value("${billing.service.grpc.deadline-ms:2000}") long deadlineMillis,
+            @Value("${billing.service.grpc.batch-deadline-ms:10000}") long batchDeadlineMillis,
+            @Value("${billing.service.grpc.max-attempts:3}") int maxAttempts,
+            @Value("${billing.service.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${billing.service.circuit-breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${billing.service.circuit-breaker.open-duration-ms:10000}") long openDurationMillis,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry) {
+
+        // A static list balances over fixed instances; otherwise every A record of the host is used
+        String target = serverAddresses.isBlank()
+                ? "dns:///" + serverAddress + ":" + serverPort
+                : StaticAddressNameResolverProvider.SCHEME + ":///" + serverAddresses.replace(" ", "");
+        log.info("Connecting to Billing Service GRPC service at {} over {} channels",
+                target, channelCount);
 
-        log.info("Connecting to Billing Service GRPC service at {}:{}",
-                serverAddress, serverPort);
+        GrpcClientMetricsInterceptor metricsInterceptor = new GrpcClientMetricsInterceptor(meterRegistry);
+        // Starts a client span for each call and sends its context to billing-service as metadata
+        ObservationGrpcClientInterceptor tracingInterceptor = new ObservationGrpcClientInterceptor(observationRegistry);
+        for (int i = 0; i < Math.max(1, channelCount); i++) {
+            ManagedChannel channel = ManagedChannelBuilder.forTarget(target)
+                    .usePlaintext()
+                    .defaultServiceConfig(serviceConfig(maxAttempts))
+                    .enableRetry()
+                    .keepAliveTime(30, TimeUnit.SECONDS)
+                    .keepAliveTimeout(10, TimeUnit.SECONDS)
+                    .idleTimeout(5, TimeUnit.MINUTES)
+                    .build();
+            channels.add(channel);
+            futureStubs.add(BillingServiceGrpc.newFutureStub(
+                    ClientInterceptors.intercept(channel, metricsInterceptor, tracingInterceptor)));
+            asyncStubs.add(BillingServiceGrpc.newStub(
+                    ClientInterceptors.intercept(channel, metricsInterceptor, tracingInterceptor)));
+            blockingStubs.add(BillingServiceGrpc.newBlockingStub(
+                    ClientInterceptors.intercept(channel, metricsInterceptor, tracingInterceptor)));
+        }
 
-        ManagedChannel channel = ManagedChannelBuilder.forAddress(serverAddress,
-                serverPort).usePlaintext().build();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(Math.min(10, slidingWindowSize))
+                .waitDurationInOpenState(Duration.ofMillis(openDurationMillis))
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(e -> e instanceof StatusRuntimeException sre
+                        && FAILURE_CODES.contains(sre.getStatus().getCode()))
+                .build());
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("billing-service");
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Billing service circuit breaker {}", event.getStateTransition()));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
 
-        blockingStub = BillingServiceGrpc.newBlockingStub(channel);
+        this.deadlineMillis = deadlineMillis;
+        this.batchDeadlineMillis = batchDeadlineMillis;
     }
 
-    public BillingResponse createBillingAccount(String patientId, String name,
-                                                String email) {
+    /**
+     * Creates the billing account of a patient without blocking the caller.
+     * The patient ID doubles as idempotency key, so retries of the same request can be
+     * recognised by billing-service.
+     * @return A future failed with {@link CallNotPermittedException} while the circuit is open.
+     */
+    public CompletableFuture<BillingResponse> createBillingAccountAsync(String patientId, String name,
+                                                                        String email) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(
+                    CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+        }
 
         BillingRequest request = BillingRequest.newBuilder().setPatientId(patientId)
                 .setName(name).setEmail(email).build();
 
-        BillingResponse response = blockingStub.createBillingAccount(request);
-        log.info("Received response from billing service via GRPC: {}", response);
-        return response;
+        Metadata headers = new Metadata();
+        headers.put(IDEMPOTENCY_KEY, patientId);
+
+        long start = System.nanoTime();
+        CompletableFuture<BillingResponse> result = new CompletableFuture<>();
+        Futures.addCallback(futureStub()
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
+                .createBillingAccount(request), new FutureCallback<>() {
+            @Override
+            public void onSuccess(BillingResponse response) {
+                circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.info("Received response from billing service via GRPC: {}", response);
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, t);
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * Blocking variant of {@link #createBillingAccountAsync(String, String, String)}.
+     */
+    public BillingResponse createBillingAccount(String patientId, String name,
+                                                String email) {
+        try {
+            return createBillingAccountAsync(patientId, name, email).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    /**
+     * Creates many billing accounts over a single stream and waits for all results.
+     * Requests are only written while the transport is ready, so a slow billing-service
+     * applies backpressure instead of having the whole batch buffered in the channel.
+     * @param requests The accounts to create. Headers apply to the whole call, so the stream
+     *                 carries no idempotency-key header: billing-service deduplicates every
+     *                 request by its patient ID, as it does for unary calls.
+     * @throws StatusRuntimeException if the stream fails as a whole, e.g. on deadline.
+     * @throws CallNotPermittedException while the circuit is open.
+     * @return One result per request, in request order.
+     */
+    public List<BillingAccountResult> createBillingAccounts(List<BillingRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        return circuitBreaker.executeSupplier(() -> streamBillingAccounts(requests));
+    }
+
+    /**
+     * Streams billing-service's accounts in ascending patient ID order.
+     * Accounts arrive in pages that are pulled one at a time as the stream is consumed, so only
+     * about a page is held in memory however many accounts there are. Not guarded by the circuit breaker: this is a background
+     * listing, not a call on the request path.
+     * The stream must be closed; closing it before the end cancels the call.
+     * @param afterPatientId Only accounts of patients after this ID are listed; empty for all.
+     * @param pageSize Number of accounts per page.
+     * @param deadlineMillis Time allowed for the whole listing.
+     * @throws StatusRuntimeException while consuming, if the stream fails, e.g. on deadline.
+     * @return The accounts, ordered by patient ID compared as strings.
+     */
+    public Stream<BillingAccountDetails> streamAccounts(String afterPatientId, int pageSize, long deadlineMillis) {
+        ListAccountsRequest request = ListAccountsRequest.newBuilder()
+                .setAfterPatientId(afterPatientId)
+                .setPageSize(pageSize)
+                .build();
+        BillingServiceGrpc.BillingServiceBlockingStub stub = blockingStubs.get(
+                Math.floorMod(nextChannel.getAndIncrement(), blockingStubs.size()))
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS);
+
+        // The call is bound to this context, so cancelling it ends the call when the stream is closed early
+        Context.CancellableContext context = Context.current().withCancellation();
+        Iterator<BillingAccountPage> pages;
+        Context previous = context.attach();
+        try {
+            pages = stub.listAccounts(request);
+        } finally {
+            context.detach(previous);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .flatMap(page -> page.getAccountsList().stream())
+                .onClose(() -> context.cancel(null));
+    }
+
+    /**
+     * @return The current circuit breaker state, e.g. CLOSED or OPEN.
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        channels.forEach(ManagedChannel::shutdown);
+    }
+
+    private List<BillingAccountResult> streamBillingAccounts(List<BillingRequest> requests) {
+        CompletableFuture<List<BillingAccountResult>> done = new CompletableFuture<>();
+
+        asyncStub().withDeadlineAfter(batchDeadlineMillis, TimeUnit.MILLISECONDS)
+                .createBillingAccounts(new ClientResponseObserver<BillingRequest, BillingAccountResult>() {
+                    private final List<BillingAccountResult> results = new ArrayList<>(requests.size());
+                    private final Iterator<BillingRequest> pending = requests.iterator();
+                    private boolean halfClosed;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<BillingRequest> requestStream) {
+                        requestStream.setOnReadyHandler(() -> {
+                            while (requestStream.isReady() && pending.hasNext()) {
+                                requestStream.onNext(pending.next());
+                            }
+                            if (!pending.hasNext() && !halfClosed) {
+                                halfClosed = true;
+                                requestStream.onCompleted();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(BillingAccountResult result) {
+                        results.add(result);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        done.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        done.complete(results);
+                    }
+                });
+
+        try {
+            List<BillingAccountResult> results = done.get();
+            log.info("Created {} billing accounts via GRPC stream", results.size());
+            return results;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating billing accounts", e);
+        }
+    }
+
+    private BillingServiceGrpc.BillingServiceFutureStub futureStub() {
+        return futureStubs.get(Math.floorMod(nextChannel.getAndIncrement(), futureStubs.size()));
+    }
+
+    private BillingServiceGrpc.BillingServiceStub asyncStub() {
+        return asyncStubs.get(Math.floorMod(nextChannel.getAndIncrement(), asyncStubs.size()));
+    }
+
+    /**
+     * Round-robin over all resolved addresses, and transparent retries of the unary call
+     * on UNAVAILABLE. Numbers must be doubles in a gRPC service config.
+     */
+    private static Map<String, Object> serviceConfig(int maxAttempts) {
+        Map<String, Object> retryPolicy = Map.of(
+                "maxAttempts", (double) maxAttempts,
+                "initialBackoff", "0.1s",
+                "maxBackoff", "1s",
+                "backoffMultiplier", 2.0,
+                "retryableStatusCodes", List.of("UNAVAILABLE"));
+        Map<String, Object> methodConfig = Map.of(
+                "name", List.of(Map.of("service", "BillingService", "method", "CreateBillingAccount")),
+                "retryPolicy", retryPolicy);
+        return Map.of(
+                "loadBalancingConfig", List.of(Map.of("round_robin", Map.of())),
+                "methodConfig", List.of(methodConfig));
     }
-}
\ No newline at end of file
+}
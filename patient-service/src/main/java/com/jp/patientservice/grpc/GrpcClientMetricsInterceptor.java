@@ -0,0 +1,49 @@
+package com.jp.patientservice.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records a latency histogram per gRPC method and status code, measured from call start
+ * until the server closes the call.
+ */
+class GrpcClientMetricsInterceptor implements ClientInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    GrpcClientMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        sample.stop(Timer.builder("grpc.client.calls")
+                                .description("Latency of outgoing gRPC calls")
+                                .tag("method", method.getFullMethodName())
+                                .tag("status", status.getCode().name())
+                                .publishPercentileHistogram()
+                                .register(meterRegistry));
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+}
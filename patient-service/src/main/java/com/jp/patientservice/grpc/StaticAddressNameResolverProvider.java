@@ -0,0 +1,63 @@
+package com.jp.patientservice.grpc;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves "static:///host1:port1,host2:port2" targets to a fixed list of addresses,
+ * so a channel can balance over several billing-service instances without DNS or a registry.
+ */
+class StaticAddressNameResolverProvider extends NameResolverProvider {
+
+    static final String SCHEME = "static";
+
+    @Override
+    protected boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected int priority() {
+        return 5;
+    }
+
+    @Override
+    public String getDefaultScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+        if (!SCHEME.equals(targetUri.getScheme())) {
+            return null;
+        }
+        List<EquivalentAddressGroup> groups = new ArrayList<>();
+        for (String hostPort : targetUri.getPath().substring(1).split(",")) {
+            URI address = URI.create("tcp://" + hostPort.trim());
+            SocketAddress socketAddress = new InetSocketAddress(address.getHost(), address.getPort());
+            groups.add(new EquivalentAddressGroup(socketAddress));
+        }
+        return new NameResolver() {
+            @Override
+            public String getServiceAuthority() {
+                return targetUri.getAuthority() == null ? "billing-service" : targetUri.getAuthority();
+            }
+
+            @Override
+            public void start(Listener2 listener) {
+                listener.onResult(ResolutionResult.newBuilder().setAddresses(groups).build());
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+    }
+}
@@ -1,35 +1,111 @@
 package com.jp.patientservice.kafka;
 
-import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.tracing.TraceContexts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Service
 public class KafkaProducer {
 
     private static final Logger log = LoggerFactory.getLogger(
             KafkaProducer.class);
+    static final String TOPIC = "patient";
+    /**
+     * Header marking the records whose value is a PatientEventBatch rather than a single PatientEvent.
+     */
+    static final String FORMAT_HEADER = "patient-event-format";
+    static final String BATCH_FORMAT = "batch";
     private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer ackedTimer;
+    private final Timer failedTimer;
 
-    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+    /**
+     * The send timers measure from the call to the broker acknowledgement, so they include the
+     * time a record waits in the producer buffer for its batch. The producer client's own metrics
+     * (kafka.producer.*) are bound to the same registry by Spring Boot.
+     */
+    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate, MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.ackedTimer = createSendTimer(meterRegistry, "acked");
+        this.failedTimer = createSendTimer(meterRegistry, "failed");
     }
 
-   public void sendEvent(Patient patient) {
-        PatientEvent event = PatientEvent.newBuilder()
-                .setPatientId(patient.getId().toString())
-                .setName(patient.getName())
-                .setEmail(patient.getEmail())
-                .setEventType("PATIENT_CREATED")
-                .build();
+    /**
+     * Sends an encoded PatientEvent keyed by patient ID, so all events of one patient
+     * land on the same partition in order.
+     * @param traceParent W3C traceparent sent as record header so consumers continue the trace, or null.
+     * @return A future completed once the broker acknowledges the record, or failed otherwise.
+     */
+    public CompletableFuture<SendResult<String, byte[]>> sendEvent(String patientId, byte[] event,
+                                                                   String traceParent) {
+        try {
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(TOPIC, patientId, event);
+            if (traceParent != null) {
+                record.headers().add(TraceContexts.TRACEPARENT, traceParent.getBytes(StandardCharsets.UTF_8));
+            }
+            return timed(() -> kafkaTemplate.send(record));
+        } catch (Exception e) {
+            log.error("Error sending PatientEvent for patient {}: {}", patientId, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
+    /**
+     * Sends an encoded PatientEventBatch to one partition of the topic.
+     * The record has no key; its events must all belong to patients whose key maps to this partition.
+     * @return A future completed once the broker acknowledges the record, or failed otherwise.
+     */
+    public CompletableFuture<SendResult<String, byte[]>> sendBatch(int partition, byte[] batch) {
         try {
-            kafkaTemplate.send("patient", event.toByteArray());
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(TOPIC, partition, null, batch);
+            record.headers().add(FORMAT_HEADER, BATCH_FORMAT.getBytes(StandardCharsets.UTF_8));
+            return timed(() -> kafkaTemplate.send(record));
         } catch (Exception e) {
-            log.error("Error sending PatientCreated event: {}", event);
+            log.error("Error sending PatientEventBatch to partition {}: {}", partition, e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The number of partitions of the topic, from the producer's cached metadata.
+     */
+    public int partitionCount() {
+        return kafkaTemplate.partitionsFor(TOPIC).size();
+    }
+
+    /**
+     * Computes the partition that {@link #sendEvent(String, byte[], String)} sends a patient's events to,
+     * using the same hash as the default partitioner, so batched and single events of a patient
+     * stay in one partition and in order.
+     */
+    public static int partitionFor(String patientId, int partitionCount) {
+        return Utils.toPositive(Utils.murmur2(patientId.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> timed(
+            Supplier<CompletableFuture<SendResult<String, byte[]>>> send) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return send.get().whenComplete((result, e) -> sample.stop(e == null ? ackedTimer : failedTimer));
+    }
+
+    private static Timer createSendTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("patient.events.send")
+                .description("Time from sending a patient event record to its acknowledgement by the broker")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
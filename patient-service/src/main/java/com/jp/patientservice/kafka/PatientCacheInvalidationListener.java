@@ -0,0 +1,64 @@
+package com.jp.patientservice.kafka;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.jp.patientservice.config.CacheConfig;
+import com.jp.patientservice.mapping.PatientEventMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Evicts cached patients when any instance publishes an update or delete for them.
+ * Every instance consumes the patient topic under its own consumer group, so each one
+ * sees every event, including the ones it published itself.
+ */
+@Service
+public class PatientCacheInvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(
+            PatientCacheInvalidationListener.class);
+    private static final Set<PatientEventType> INVALIDATING_EVENTS =
+            Set.of(PatientEventType.PATIENT_UPDATED, PatientEventType.PATIENT_DELETED);
+    private final Cache cache;
+
+    public PatientCacheInvalidationListener(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(CacheConfig.PATIENTS_CACHE);
+    }
+
+    @KafkaListener(topics = "patient",
+            groupId = "${patient.cache.invalidation.group-id}",
+            autoStartup = "${patient.cache.invalidation.enabled:true}",
+            batch = "true",
+            properties = "auto.offset.reset=latest")
+    public void onEvents(List<ConsumerRecord<String, byte[]>> records) {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                for (PatientEvent event : PatientEventMapper.fromRecord(record.value(), isBatch(record))) {
+                    if (INVALIDATING_EVENTS.contains(PatientEventMapper.typeOf(event))) {
+                        cache.evict(UUID.fromString(event.getPatientId()));
+                    }
+                }
+            } catch (InvalidProtocolBufferException | IllegalArgumentException e) {
+                log.warn("Skipping undecodable patient event at offset {}: {}", record.offset(), e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isBatch(ConsumerRecord<String, byte[]> record) {
+        Header format = record.headers().lastHeader(KafkaProducer.FORMAT_HEADER);
+        return format != null
+                && KafkaProducer.BATCH_FORMAT.equals(new String(format.value(), StandardCharsets.UTF_8));
+    }
+}
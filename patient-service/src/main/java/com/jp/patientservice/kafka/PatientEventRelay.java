@@ -0,0 +1,250 @@
+package com.jp.patientservice.kafka;
+
+import com.jp.patientservice.mapping.PatientEventMapper;
+import com.jp.patientservice.models.PatientEventOutboxEntry;
+import com.jp.patientservice.repository.PatientEventOutboxRepository;
+import com.jp.patientservice.tracing.TraceContexts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that publishes the patient event outbox to the "patient" topic.
+ * A batch is handed to the producer in one go so it can be compressed and linger-batched,
+ * and rows are only deleted once the broker has acknowledged their record.
+ * Relays on several instances share the outbox by patient: a batch is claimed in a short
+ * transaction, serialized across instances, and an event is only claimed when no other relay
+ * holds an earlier event of its patient. The claim is committed before sending, so no
+ * transaction or row lock stays open while waiting for the broker, and it expires after the
+ * claim timeout, so the events of a relay that died are picked up again.
+ * Each event is stamped with its outbox ID as its sequence. With events-per-record above 1,
+ * the events bound for one partition are wrapped into PatientEventBatch records, which cuts
+ * the per-record overhead; enable it once every consumer of the topic reads the envelope.
+ * Events written during a traced request are published in a span of that trace, from the
+ * moment the relay picks them up until the broker acknowledges them, and carry it to consumers
+ * in the traceparent header. Batch records mix several traces and are sent without one.
+ */
+@Service
+public class PatientEventRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(
+            PatientEventRelay.class);
+    private final PatientEventOutboxRepository patientEventOutboxRepository;
+    private final KafkaProducer kafkaProducer;
+    private final TraceContexts traceContexts;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int eventsPerRecord;
+    private final Duration ackTimeout;
+    private final Duration claimTimeout;
+    private final Counter publishedCounter;
+    private final Counter recordsCounter;
+    private final Counter failedCounter;
+    private final Counter heldBackCounter;
+    private final Timer batchTimer;
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public PatientEventRelay(
+            PatientEventOutboxRepository patientEventOutboxRepository,
+            KafkaProducer kafkaProducer,
+            TraceContexts traceContexts,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${patient.events.relay.batch-size:1000}") int batchSize,
+            @Value("${patient.events.relay.events-per-record:1}") int eventsPerRecord,
+            @Value("${patient.events.relay.ack-timeout-ms:10000}") long ackTimeoutMillis,
+            @Value("${patient.events.relay.claim-timeout-ms:30000}") long claimTimeoutMillis) {
+        this.patientEventOutboxRepository = patientEventOutboxRepository;
+        this.kafkaProducer = kafkaProducer;
+        this.traceContexts = traceContexts;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.eventsPerRecord = Math.max(1, eventsPerRecord);
+        this.ackTimeout = Duration.ofMillis(ackTimeoutMillis);
+        // Another relay must not take over a batch that is still waiting for its acks
+        this.claimTimeout = Duration.ofMillis(Math.max(claimTimeoutMillis, 2 * ackTimeoutMillis));
+        this.publishedCounter = meterRegistry.counter("patient.events.relay.published");
+        this.recordsCounter = meterRegistry.counter("patient.events.relay.records");
+        this.failedCounter = meterRegistry.counter("patient.events.relay.failed");
+        this.heldBackCounter = meterRegistry.counter("patient.events.relay.held.back");
+        this.batchTimer = meterRegistry.timer("patient.events.relay.batch");
+        meterRegistry.gauge("patient.events.relay.lag", lagMillis,
+                lag -> lag.get() / 1000.0);
+    }
+
+    /**
+     * Publishes pending events until the outbox is drained or a batch fails.
+     */
+    @Scheduled(fixedDelayString = "${patient.events.relay.poll-interval-ms:200}")
+    public void relayPending() {
+        Integer claimed;
+        do {
+            claimed = batchTimer.record(this::relayBatch);
+        } while (claimed != null && claimed == batchSize);
+    }
+
+    private int relayBatch() {
+        Instant claimedUntil = Instant.now().plus(claimTimeout);
+        List<PatientEventOutboxEntry> entries = transactionTemplate.execute(status -> claimBatch(claimedUntil));
+        if (entries == null || entries.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Duration.between(entries.get(0).getCreatedAt(), Instant.now()).toMillis());
+
+        // acks.get(i) completes once the record carrying entries.get(i) is acknowledged
+        List<CompletableFuture<?>> acks = eventsPerRecord > 1 ? sendBatched(entries) : sendEach(entries);
+
+        // Once an event of a patient fails, later events of that patient stay in the outbox
+        // even if acknowledged, so a retry republishes them after the failed one, in order.
+        Set<UUID> failedPatients = new HashSet<>();
+        List<Long> acknowledged = new ArrayList<>(entries.size());
+        List<Long> unpublished = new ArrayList<>();
+        int failed = 0;
+        long deadline = System.nanoTime() + ackTimeout.toNanos();
+        for (int i = 0; i < entries.size(); i++) {
+            PatientEventOutboxEntry entry = entries.get(i);
+            boolean acked = awaitAck(acks.get(i), deadline, entry);
+            if (acked && !failedPatients.contains(entry.getPatientId())) {
+                acknowledged.add(entry.getId());
+            } else {
+                if (!acked) {
+                    failedPatients.add(entry.getPatientId());
+                    failed++;
+                }
+                unpublished.add(entry.getId());
+            }
+        }
+        if (Instant.now().isAfter(claimedUntil)) {
+            log.warn("Batch of {} patient events outlived its claim; another relay may have republished them",
+                    entries.size());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            patientEventOutboxRepository.deleteAllByIdInBatch(acknowledged);
+            if (!unpublished.isEmpty()) {
+                patientEventOutboxRepository.setClaimedUntil(unpublished, null);
+            }
+        });
+        publishedCounter.increment(acknowledged.size());
+        failedCounter.increment(failed);
+        heldBackCounter.increment(unpublished.size() - failed);
+        // Stop draining on failure and let the next poll retry after the fixed delay
+        return failedPatients.isEmpty() ? entries.size() : 0;
+    }
+
+    /**
+     * Claims the oldest events no other relay holds, under the claim lock.
+     */
+    private List<PatientEventOutboxEntry> claimBatch(Instant claimedUntil) {
+        patientEventOutboxRepository.lockClaims();
+        List<PatientEventOutboxEntry> entries =
+                patientEventOutboxRepository.findClaimable(Instant.now(), batchSize);
+        if (!entries.isEmpty()) {
+            patientEventOutboxRepository.setClaimedUntil(
+                    entries.stream().map(PatientEventOutboxEntry::getId).toList(), claimedUntil);
+        }
+        return entries;
+    }
+
+    private List<CompletableFuture<?>> sendEach(List<PatientEventOutboxEntry> entries) {
+        List<CompletableFuture<?>> acks = new ArrayList<>(entries.size());
+        for (PatientEventOutboxEntry entry : entries) {
+            acks.add(send(entry));
+        }
+        recordsCounter.increment(entries.size());
+        return acks;
+    }
+
+    /**
+     * Groups the entries by the partition their patient maps to and sends each group as
+     * PatientEventBatch records of at most eventsPerRecord events, keeping the outbox order.
+     */
+    private List<CompletableFuture<?>> sendBatched(List<PatientEventOutboxEntry> entries) {
+        int partitionCount;
+        try {
+            partitionCount = kafkaProducer.partitionCount();
+        } catch (Exception e) {
+            log.warn("Partitions of the patient topic unavailable: {}", e.getMessage());
+            CompletableFuture<?> failed = CompletableFuture.failedFuture(e);
+            return Collections.nCopies(entries.size(), failed);
+        }
+
+        Map<Integer, List<Integer>> indexesByPartition = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            int partition = KafkaProducer.partitionFor(entries.get(i).getPatientId().toString(), partitionCount);
+            indexesByPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(i);
+        }
+
+        CompletableFuture<?>[] acks = new CompletableFuture<?>[entries.size()];
+        indexesByPartition.forEach((partition, indexes) -> {
+            for (int from = 0; from < indexes.size(); from += eventsPerRecord) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + eventsPerRecord, indexes.size()));
+                List<byte[]> events = chunk.stream().map(i -> sequenced(entries.get(i))).toList();
+                CompletableFuture<?> ack = kafkaProducer.sendBatch(partition, PatientEventMapper.toBatch(events));
+                chunk.forEach(i -> acks[i] = ack);
+                recordsCounter.increment();
+            }
+        });
+        return Arrays.asList(acks);
+    }
+
+    private CompletableFuture<?> send(PatientEventOutboxEntry entry) {
+        String patientId = entry.getPatientId().toString();
+        if (entry.getTraceParent() == null) {
+            return kafkaProducer.sendEvent(patientId, sequenced(entry), null);
+        }
+        Span span = traceContexts.startSpan("patient publish", Span.Kind.PRODUCER, entry.getTraceParent())
+                .tag("messaging.destination.name", KafkaProducer.TOPIC)
+                .tag("patient.event.type", entry.getEventType());
+        return kafkaProducer.sendEvent(patientId, sequenced(entry), traceContexts.traceParentOf(span))
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        span.error(e);
+                    }
+                    span.end();
+                });
+    }
+
+    private static byte[] sequenced(PatientEventOutboxEntry entry) {
+        return PatientEventMapper.withSequence(entry.getPayload(), entry.getId());
+    }
+
+    private boolean awaitAck(CompletableFuture<?> ack, long deadline, PatientEventOutboxEntry entry) {
+        try {
+            ack.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("PatientEvent {} for patient {} not acknowledged: {}",
+                    entry.getId(), entry.getPatientId(), e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
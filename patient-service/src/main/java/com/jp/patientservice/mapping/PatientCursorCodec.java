@@ -0,0 +1,41 @@
+package com.jp.patientservice.mapping;
+
+import com.jp.patientservice.exception.InvalidCursorException;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Utility class for encoding and decoding the opaque continuation tokens used by keyset pagination.
+ * The token wraps the ID of the last patient returned, so clients must not rely on its contents.
+ */
+@Schema(description = "Utility class for converting between patient IDs and opaque pagination cursors.")
+public class PatientCursorCodec {
+
+    /**
+     * Encodes the ID of the last patient of a page as a continuation token.
+     * @param lastId The ID of the last patient returned.
+     * @return The URL-safe opaque cursor.
+     */
+    public static String encode(UUID lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastId.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a continuation token back to the patient ID it points after.
+     * @param cursor The opaque cursor received from the client.
+     * @throws InvalidCursorException if the cursor was not produced by {@link #encode(UUID)}.
+     * @return The ID of the last patient of the previous page.
+     */
+    public static UUID decode(String cursor) {
+        try {
+            byte[] raw = Base64.getUrlDecoder().decode(cursor);
+            return UUID.fromString(new String(raw, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid pagination cursor: " + cursor);
+        }
+    }
+}
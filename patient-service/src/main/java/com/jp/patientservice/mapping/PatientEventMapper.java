@@ -0,0 +1,181 @@
+package com.jp.patientservice.mapping;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.models.PatientEventOutboxEntry;
+import com.jp.patientservice.models.PatientRow;
+import io.swagger.v3.oas.annotations.media.Schema;
+import patient.events.PatientEvent;
+import patient.events.PatientEventBatch;
+import patient.events.PatientEventType;
+import patient.events.PatientSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Utility class for mapping Patient entities to PatientEvent messages.
+ * Events carry the full patient snapshot, so consumers never need to call patient-service back.
+ */
+@Schema(description = "Utility class for converting Patient entities into PatientEvent messages.")
+public class PatientEventMapper {
+
+    /**
+     * Converts a Patient entity to a PatientEvent.
+     * @param patient The Patient entity to convert.
+     * @param type The type of the event.
+     * @return The corresponding PatientEvent.
+     */
+    @Schema(description = "Transforms a Patient entity into a PatientEvent message.")
+    public static PatientEvent toEvent(Patient patient, PatientEventType type) {
+        PatientSnapshot snapshot = PatientSnapshot.newBuilder()
+                .setId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .setAddress(patient.getAddress())
+                .setDateOfBirthEpochDay((int) patient.getDateOfBirth().toEpochDay())
+                .setRegisteredDateEpochDay((int) patient.getRegisteredDate().toEpochDay())
+                .setVersion(patient.getVersion())
+                .setUpdatedAtMs(toMillis(patient.getUpdatedAt()))
+                .build();
+        return toEvent(patient.getId(), patient.getVersion(), type, snapshot);
+    }
+
+    /**
+     * Converts a patient row read through R2DBC to a PatientEvent.
+     * @param patient The patient row the event describes.
+     * @param type The type of the event.
+     * @return The corresponding PatientEvent.
+     */
+    @Schema(description = "Transforms a patient row into a PatientEvent message.")
+    public static PatientEvent toEvent(PatientRow patient, PatientEventType type) {
+        long version = patient.getVersion() == null ? 0 : patient.getVersion();
+        PatientSnapshot snapshot = PatientSnapshot.newBuilder()
+                .setId(patient.getId().toString())
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .setAddress(patient.getAddress())
+                .setDateOfBirthEpochDay((int) patient.getDateOfBirth().toEpochDay())
+                .setRegisteredDateEpochDay((int) patient.getRegisteredDate().toEpochDay())
+                .setVersion(version)
+                .setUpdatedAtMs(toMillis(patient.getUpdatedAt()))
+                .build();
+        return toEvent(patient.getId(), version, type, snapshot);
+    }
+
+    /**
+     * Builds a PatientEvent around a patient snapshot.
+     * @param patientId The ID of the patient.
+     * @param version The version of the patient the event describes.
+     * @param type The type of the event.
+     * @param snapshot The state of the patient after the change.
+     * @return The corresponding PatientEvent.
+     */
+    @Schema(description = "Builds a PatientEvent message from a patient snapshot.")
+    @SuppressWarnings("deprecation")
+    public static PatientEvent toEvent(UUID patientId, long version, PatientEventType type, PatientSnapshot snapshot) {
+        return PatientEvent.newBuilder()
+                .setPatientId(patientId.toString())
+                .setName(snapshot.getName())
+                .setEmail(snapshot.getEmail())
+                .setVersion(version)
+                .setType(type)
+                .setEventType(type.name())
+                .setPatient(snapshot)
+                .setOccurredAtMs(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * Converts a Patient entity to an outbox entry carrying the encoded PatientEvent.
+     * @param patient The Patient entity the event describes.
+     * @param type The type of the event.
+     * @return The outbox entry to persist.
+     */
+    @Schema(description = "Transforms a Patient entity into a patient event outbox entry.")
+    public static PatientEventOutboxEntry toOutboxEntry(Patient patient, PatientEventType type) {
+        return new PatientEventOutboxEntry(patient.getId(), type.name(), toEvent(patient, type).toByteArray());
+    }
+
+    /**
+     * Sets the sequence of an encoded PatientEvent without decoding it.
+     * Protobuf merges concatenated messages field by field, so appending an encoded message that
+     * only holds the sequence yields the original event with that sequence.
+     * @param event The encoded PatientEvent.
+     * @param sequence The position of the event among the events of its patient.
+     * @return The encoded PatientEvent with its sequence set.
+     */
+    @Schema(description = "Stamps the publication sequence onto an encoded PatientEvent.")
+    public static byte[] withSequence(byte[] event, long sequence) {
+        byte[] sequenced = PatientEvent.newBuilder().setSequence(sequence).build().toByteArray();
+        byte[] merged = new byte[event.length + sequenced.length];
+        System.arraycopy(event, 0, merged, 0, event.length);
+        System.arraycopy(sequenced, 0, merged, event.length, sequenced.length);
+        return merged;
+    }
+
+    /**
+     * Wraps encoded PatientEvents into an encoded PatientEventBatch without decoding them.
+     * @param events The encoded PatientEvents, in publication order.
+     * @return The encoded PatientEventBatch.
+     */
+    @Schema(description = "Wraps encoded PatientEvent messages into an encoded PatientEventBatch.")
+    public static byte[] toBatch(List<byte[]> events) {
+        int size = 0;
+        for (byte[] event : events) {
+            size += CodedOutputStream.computeByteArraySize(PatientEventBatch.EVENTS_FIELD_NUMBER, event);
+        }
+        byte[] batch = new byte[size];
+        CodedOutputStream out = CodedOutputStream.newInstance(batch);
+        try {
+            for (byte[] event : events) {
+                // A nested message has the same encoding as a bytes field holding its encoded form
+                out.writeByteArray(PatientEventBatch.EVENTS_FIELD_NUMBER, event);
+            }
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return batch;
+    }
+
+    /**
+     * Decodes the events carried by one record of the patient topic.
+     * @param value The record value.
+     * @param batch Whether the record carries a PatientEventBatch rather than a single PatientEvent.
+     * @return The events, in publication order.
+     * @throws InvalidProtocolBufferException if the value cannot be decoded.
+     */
+    @Schema(description = "Decodes the PatientEvent messages carried by a Kafka record.")
+    public static List<PatientEvent> fromRecord(byte[] value, boolean batch) throws InvalidProtocolBufferException {
+        return batch ? PatientEventBatch.parseFrom(value).getEventsList() : List.of(PatientEvent.parseFrom(value));
+    }
+
+    /**
+     * Reads the type of an event, falling back to the event_type name for events written before
+     * the type field existed.
+     * @param event The event to read.
+     * @return The event type, UNSPECIFIED if it is unknown to this version.
+     */
+    @Schema(description = "Reads the type of a PatientEvent, including events written before the type field.")
+    @SuppressWarnings("deprecation")
+    public static PatientEventType typeOf(PatientEvent event) {
+        if (event.getType() != PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED
+                && event.getType() != PatientEventType.UNRECOGNIZED) {
+            return event.getType();
+        }
+        try {
+            return PatientEventType.valueOf(event.getEventType());
+        } catch (IllegalArgumentException e) {
+            return PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED;
+        }
+    }
+
+    private static long toMillis(Instant instant) {
+        return instant == null ? 0 : instant.toEpochMilli();
+    }
+}
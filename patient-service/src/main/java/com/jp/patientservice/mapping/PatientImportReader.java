@@ -0,0 +1,168 @@
+package com.jp.patientservice.mapping;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jp.patientservice.dto.PatientRequestDTO;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads patient rows one line at a time from a CSV or NDJSON import file.
+ * A malformed line yields a row carrying an error instead of aborting the whole import.
+ */
+@Schema(description = "Line-oriented reader converting CSV or NDJSON import rows into PatientRequestDTOs.")
+public class PatientImportReader implements Closeable {
+
+    /**
+     * Supported import formats.
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * One parsed line of the import file.
+     * @param number The 1-based line number in the file.
+     * @param patient The parsed patient, or null if the line could not be parsed.
+     * @param error The parse error, or null if the line was parsed.
+     */
+    public record Row(long number, PatientRequestDTO patient, String error) {
+    }
+
+    private static final List<String> CSV_COLUMNS =
+            List.of("name", "email", "address", "dateOfBirth", "registeredDate");
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectReader jsonReader;
+    private int[] csvColumnIndexes;
+    private long lineNumber;
+
+    /**
+     * Opens a reader over an import file. For CSV, the first line must be a header
+     * naming the columns name, email, address, dateOfBirth and registeredDate in any order.
+     * @throws IllegalArgumentException if the CSV header is missing a required column.
+     */
+    public PatientImportReader(BufferedReader reader, Format format, ObjectMapper objectMapper) throws IOException {
+        this.reader = reader;
+        this.format = format;
+        this.jsonReader = objectMapper.readerFor(PatientRequestDTO.class);
+        if (format == Format.CSV) {
+            readCsvHeader();
+        }
+    }
+
+    /**
+     * Reads the next non-blank line.
+     * @return The parsed row, or null at the end of the file.
+     */
+    public Row next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        try {
+            PatientRequestDTO patient = format == Format.CSV ? parseCsv(line) : jsonReader.readValue(line);
+            return new Row(lineNumber, patient, null);
+        } catch (JsonProcessingException e) {
+            return new Row(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            return new Row(lineNumber, null, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readCsvHeader() throws IOException {
+        String header = reader.readLine();
+        lineNumber++;
+        if (header == null) {
+            throw new IllegalArgumentException("CSV import is empty, a header line is required");
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for (int i = 0; i < names.size(); i++) {
+            positions.put(names.get(i).trim(), i);
+        }
+        csvColumnIndexes = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            Integer position = positions.get(CSV_COLUMNS.get(i));
+            if (position == null) {
+                throw new IllegalArgumentException("CSV header is missing column " + CSV_COLUMNS.get(i));
+            }
+            csvColumnIndexes[i] = position;
+        }
+    }
+
+    private PatientRequestDTO parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        String[] values = new String[CSV_COLUMNS.size()];
+        for (int i = 0; i < values.length; i++) {
+            int index = csvColumnIndexes[i];
+            if (index >= fields.size()) {
+                throw new IllegalArgumentException("Expected at least " + (index + 1)
+                        + " columns but found " + fields.size());
+            }
+            values[i] = fields.get(index);
+        }
+        PatientRequestDTO patient = new PatientRequestDTO();
+        patient.setName(values[0]);
+        patient.setEmail(values[1]);
+        patient.setAddress(values[2]);
+        patient.setDateOfBirth(values[3]);
+        patient.setRegisteredDate(values[4]);
+        return patient;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields and "" escapes.
+     * Fields spanning several lines are not supported.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
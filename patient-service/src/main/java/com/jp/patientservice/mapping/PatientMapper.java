@@ -1,8 +1,12 @@
 package com.jp.patientservice.mapping;
 
+import com.jp.patientservice.dto.PatientChangeDTO;
 import com.jp.patientservice.dto.PatientRequestDTO;
 import com.jp.patientservice.dto.PatientResponseDTO;
 import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.models.PatientRow;
+import com.jp.patientservice.models.PatientTombstone;
+import com.jp.patientservice.models.TimeOrderedUuidGenerator;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.time.LocalDate;
@@ -26,6 +30,7 @@ public class PatientMapper {
         patientDTO.setEmail(patient.getEmail());
         patientDTO.setAddress(patient.getAddress());
         patientDTO.setDateOfBirth(patient.getDateOfBirth().toString());
+        patientDTO.setVersion(patient.getVersion());
         return patientDTO;
     }
 
@@ -45,4 +50,58 @@ public class PatientMapper {
         return patient;
     }
 
+    /**
+     * Converts a patient row read through R2DBC to a PatientResponseDTO.
+     * @param patient The patient row to convert.
+     * @return The corresponding PatientResponseDTO.
+     */
+    @Schema(description = "Transforms a patient row into a PatientResponseDTO representation.")
+    public static PatientResponseDTO toDTO(PatientRow patient) {
+        PatientResponseDTO patientDTO = new PatientResponseDTO();
+        patientDTO.setId(patient.getId().toString());
+        patientDTO.setName(patient.getName());
+        patientDTO.setEmail(patient.getEmail());
+        patientDTO.setAddress(patient.getAddress());
+        patientDTO.setDateOfBirth(patient.getDateOfBirth().toString());
+        patientDTO.setVersion(patient.getVersion() == null ? 0 : patient.getVersion());
+        return patientDTO;
+    }
+
+    /**
+     * Converts a PatientRequestDTO to a new patient row with a generated ID.
+     * @param patientRequestDTO The DTO containing patient data.
+     * @return The patient row to insert.
+     */
+    @Schema(description = "Transforms a PatientRequestDTO into a new patient row.")
+    public static PatientRow toRow(PatientRequestDTO patientRequestDTO) {
+        PatientRow patient = PatientRow.newRow(TimeOrderedUuidGenerator.next());
+        patient.setName(patientRequestDTO.getName());
+        patient.setEmail(patientRequestDTO.getEmail());
+        patient.setAddress(patientRequestDTO.getAddress());
+        patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
+        patient.setRegisteredDate(LocalDate.parse(patientRequestDTO.getRegisteredDate()));
+        return patient;
+    }
+
+    /**
+     * Converts a sequenced Patient entity to an UPSERT entry of the change feed.
+     * @param patient The Patient entity to convert.
+     * @return The corresponding PatientChangeDTO.
+     */
+    @Schema(description = "Transforms a changed Patient entity into a change feed entry.")
+    public static PatientChangeDTO toChangeDTO(Patient patient) {
+        return new PatientChangeDTO(patient.getChangeSeq(), PatientChangeDTO.UPSERT, patient.getId().toString(),
+                patient.getVersion(), patient.getUpdatedAt().toString(), toDTO(patient));
+    }
+
+    /**
+     * Converts a sequenced tombstone to a DELETE entry of the change feed.
+     * @param tombstone The tombstone to convert.
+     * @return The corresponding PatientChangeDTO.
+     */
+    @Schema(description = "Transforms a patient tombstone into a change feed entry.")
+    public static PatientChangeDTO toChangeDTO(PatientTombstone tombstone) {
+        return new PatientChangeDTO(tombstone.getChangeSeq(), PatientChangeDTO.DELETE,
+                tombstone.getPatientId().toString(), tombstone.getVersion(), tombstone.getDeletedAt().toString(), null);
+    }
 }
@@ -0,0 +1,41 @@
+package com.jp.patientservice.mapping;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Utility class for converting between patient versions and the entity tags of the HTTP API.
+ * Responses carry the version as a strong ETag and updates send it back in If-Match.
+ */
+@Schema(description = "Utility class for converting between patient versions and ETag values.")
+public class PatientVersionTag {
+
+    /**
+     * Formats a patient version as an ETag value.
+     * @param version The version of the patient.
+     * @return The quoted entity tag.
+     */
+    public static String format(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Parses the If-Match header of an update.
+     * A tag that was not produced by {@link #format(long)} matches no version.
+     * @param ifMatch The header value, or null when the client sent none.
+     * @return The expected version, null when any version may be overwritten, or -1 for an unknown tag.
+     */
+    public static Long parse(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
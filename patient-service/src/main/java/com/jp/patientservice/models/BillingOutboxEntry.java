@@ -0,0 +1,215 @@
+package com.jp.patientservice.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity representing a billing account creation that still has to be delivered to billing-service.
+ * Written in the same transaction as the Patient it belongs to and keyed by the patient ID,
+ * so each patient produces at most one billing request regardless of retries.
+ */
+@Entity
+@Table(name = "billing_outbox",
+        indexes = @Index(name = "idx_billing_outbox_status_next_attempt", columnList = "status, nextAttemptAt"))
+@Schema(description = "Entity representing a pending billing account creation.")
+public class BillingOutboxEntry implements Persistable<UUID> {
+    @Id
+    @Schema(description = "ID of the patient the billing account belongs to, used as idempotency key",
+            example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
+    private UUID patientId;
+
+    @NotNull
+    @Schema(description = "Full name of the patient", example = "John Doe")
+    private String name;
+
+    @NotNull
+    @Schema(description = "Email address of the patient", example = "juanda@domain.com")
+    private String email;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Schema(description = "Delivery state of the entry", example = "PENDING")
+    private BillingOutboxStatus status;
+
+    @Schema(description = "Number of delivery attempts made so far", example = "0")
+    private int attempts;
+
+    @NotNull
+    @Schema(description = "Earliest instant at which the next delivery attempt may run")
+    private Instant nextAttemptAt;
+
+    @NotNull
+    @Schema(description = "Instant at which the entry was written")
+    private Instant createdAt;
+
+    @Schema(description = "Billing account ID returned by billing-service once delivered", example = "12345")
+    private String accountId;
+
+    @Schema(description = "Error message of the last failed attempt")
+    private String lastError;
+
+    @Column(length = 55)
+    @Schema(description = "W3C traceparent of the request that wrote the entry, continued on delivery",
+            example = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")
+    private String traceParent;
+
+    @Transient
+    private boolean isNew = true;
+
+    protected BillingOutboxEntry() {
+    }
+
+    /**
+     * Creates a pending entry for the given patient, ready to be dispatched immediately.
+     * @param patient The newly saved patient.
+     * @return The outbox entry to persist.
+     */
+    public static BillingOutboxEntry pendingFor(Patient patient) {
+        BillingOutboxEntry entry = new BillingOutboxEntry();
+        Instant now = Instant.now();
+        entry.patientId = patient.getId();
+        entry.name = patient.getName();
+        entry.email = patient.getEmail();
+        entry.status = BillingOutboxStatus.PENDING;
+        entry.createdAt = now;
+        entry.nextAttemptAt = now;
+        return entry;
+    }
+
+    /**
+     * Claims the entry for one delivery attempt. Until the claim ends the entry is not due, so
+     * no other dispatcher picks it up; if the claiming dispatcher dies, it becomes due again.
+     * @param claimedUntil When the claim ends.
+     */
+    public void claim(Instant claimedUntil) {
+        this.status = BillingOutboxStatus.IN_PROGRESS;
+        this.nextAttemptAt = claimedUntil;
+    }
+
+    /**
+     * @param claimedUntil The end of the claim taken with {@link #claim(Instant)}.
+     * @return Whether the entry is still held by that claim.
+     */
+    public boolean isClaimedUntil(Instant claimedUntil) {
+        return status == BillingOutboxStatus.IN_PROGRESS && nextAttemptAt.equals(claimedUntil);
+    }
+
+    /**
+     * Returns a claimed entry to the pending ones without counting an attempt.
+     */
+    public void release() {
+        this.status = BillingOutboxStatus.PENDING;
+        this.nextAttemptAt = Instant.now();
+    }
+
+    /**
+     * Marks the entry as delivered.
+     * @param accountId The billing account ID returned by billing-service.
+     */
+    public void markSent(String accountId) {
+        this.status = BillingOutboxStatus.SENT;
+        this.accountId = accountId;
+        this.lastError = null;
+        this.attempts++;
+    }
+
+    /**
+     * Records a failed attempt and schedules the next one, or gives up once attempts are exhausted.
+     * @param error The error message of the failed attempt.
+     * @param nextAttemptAt When to retry, or null to give up.
+     */
+    public void markFailed(String error, Instant nextAttemptAt) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 255 ? error.substring(0, 255) : error;
+        if (nextAttemptAt == null) {
+            this.status = BillingOutboxStatus.FAILED;
+        } else {
+            this.status = BillingOutboxStatus.PENDING;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+    }
+
+    /**
+     * Schedules the entry for delivery again from scratch, e.g. after reconciliation found that
+     * billing-service has no account for the patient although the entry was sent or abandoned.
+     */
+    public void requeue() {
+        this.status = BillingOutboxStatus.PENDING;
+        this.attempts = 0;
+        this.nextAttemptAt = Instant.now();
+        this.accountId = null;
+        this.lastError = null;
+    }
+
+    /**
+     * The ID is assigned from the patient, so tell Spring Data whether to persist or merge
+     * instead of letting it issue a SELECT to find out.
+     */
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @Override
+    public UUID getId() {
+        return patientId;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public UUID getPatientId() {
+        return patientId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public BillingOutboxStatus getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public String getTraceParent() {
+        return traceParent;
+    }
+
+    public void setTraceParent(String traceParent) {
+        this.traceParent = traceParent;
+    }
+}
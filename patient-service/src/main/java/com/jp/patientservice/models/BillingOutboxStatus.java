@@ -0,0 +1,14 @@
+package com.jp.patientservice.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Delivery state of a billing outbox entry.
+ */
+@Schema(description = "Delivery state of a pending billing account creation.")
+public enum BillingOutboxStatus {
+    PENDING,
+    IN_PROGRESS,
+    SENT,
+    FAILED
+}
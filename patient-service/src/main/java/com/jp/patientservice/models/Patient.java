@@ -4,7 +4,10 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.UuidGenerator;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -12,12 +15,22 @@ import java.util.UUID;
 /**
  * Entity representing a Patient in the system.
  * Uses JPA annotations for persistence and validation constraints to ensure data integrity.
+ * Every write bumps the version, stamps updatedAt and clears changeSeq, which
+ * {@link com.jp.patientservice.service.PatientChangeSequencer} then sets to the next position of
+ * the change feed. Updates only write the columns that changed.
  */
 @Entity
+@DynamicUpdate
+@Table(indexes = {
+        @Index(name = "idx_patient_updated_at", columnList = "updatedAt"),
+        @Index(name = "idx_patient_change_seq", columnList = "changeSeq"),
+        @Index(name = "idx_patient_date_of_birth", columnList = "dateOfBirth")
+})
 @Schema(description = "Entity representing a patient in the system.")
 public class Patient {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue
+    @UuidGenerator(algorithm = TimeOrderedUuidGenerator.class)
     @Schema(description = "Unique identifier for the patient", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
     private UUID id;
 
@@ -43,6 +56,23 @@ public class Patient {
     @Schema(description = "Date when the patient was registered", example = "2025-04-17")
     private LocalDate registeredDate;
 
+    @Version
+    @Schema(description = "Optimistic locking version, incremented on every update", example = "0")
+    private long version;
+
+    @NotNull
+    @Schema(description = "Instant of the last create or update")
+    private Instant updatedAt;
+
+    @Schema(description = "Position in the change feed, assigned shortly after each commit", example = "42")
+    private Long changeSeq;
+
+    @PrePersist
+    @PreUpdate
+    void markChanged() {
+        this.updatedAt = Instant.now();
+        this.changeSeq = null;
+    }
 
     /**
      * Getters and Setters
@@ -90,4 +120,16 @@ public class Patient {
     public void setRegisteredDate(LocalDate registerDate) {
         this.registeredDate = registerDate;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
 }
@@ -0,0 +1,99 @@
+package com.jp.patientservice.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity representing a serialized PatientEvent waiting to be published to Kafka.
+ * Written in the same transaction as the patient change it describes; the relay deletes
+ * the row once the broker has acknowledged the record.
+ * IDs are taken one at a time from the sequence, after the change has locked the patient row,
+ * so the events of one patient get increasing IDs in commit order on every instance. A pooled
+ * allocation would hand each instance its own block of IDs and break that order.
+ */
+@Entity
+@Table(name = "patient_event_outbox")
+@Schema(description = "Entity representing a patient event pending publication.")
+public class PatientEventOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_event_outbox_seq")
+    @SequenceGenerator(name = "patient_event_outbox_seq", sequenceName = "patient_event_outbox_seq",
+            allocationSize = 1)
+    @Schema(description = "ID giving the publication order of the patient's events", example = "1")
+    private Long id;
+
+    @NotNull
+    @Schema(description = "ID of the patient, used as the Kafka record key",
+            example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
+    private UUID patientId;
+
+    @NotNull
+    @Schema(description = "Type of the event", example = "PATIENT_CREATED")
+    private String eventType;
+
+    @NotNull
+    @Column(length = 65535)
+    @Schema(description = "PatientEvent encoded as protobuf")
+    private byte[] payload;
+
+    @NotNull
+    @Schema(description = "Instant at which the event was written")
+    private Instant createdAt;
+
+    @Column(length = 55)
+    @Schema(description = "W3C traceparent of the request that wrote the entry, continued on delivery",
+            example = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")
+    private String traceParent;
+
+    @Schema(description = "Instant until which a relay has claimed the entry for publication")
+    private Instant claimedUntil;
+
+    protected PatientEventOutboxEntry() {
+    }
+
+    public PatientEventOutboxEntry(UUID patientId, String eventType, byte[] payload) {
+        this.patientId = patientId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * Getters and Setters
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getPatientId() {
+        return patientId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getTraceParent() {
+        return traceParent;
+    }
+
+    public void setTraceParent(String traceParent) {
+        this.traceParent = traceParent;
+    }
+
+    public Instant getClaimedUntil() {
+        return claimedUntil;
+    }
+}
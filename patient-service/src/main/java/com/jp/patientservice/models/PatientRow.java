@@ -0,0 +1,120 @@
+package com.jp.patientservice.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Row of the patient table as read and written by the reactive (R2DBC) stack.
+ * Kept apart from the JPA Patient entity so each Spring Data module owns its own type.
+ */
+@Table("patient")
+@Schema(description = "Patient table row used by the reactive stack.")
+public class PatientRow implements Persistable<UUID> {
+    @Id
+    private UUID id;
+    private String name;
+    private String email;
+    private String address;
+    private LocalDate dateOfBirth;
+    private LocalDate registeredDate;
+    @Version
+    private Long version;
+    private Instant updatedAt;
+    private Long changeSeq;
+
+    // IDs are assigned before the insert, so the row must say whether it is new
+    @Transient
+    private boolean isNew;
+
+    /**
+     * Creates a row to be inserted with the given ID.
+     */
+    public static PatientRow newRow(UUID id) {
+        PatientRow row = new PatientRow();
+        row.id = id;
+        row.isNew = true;
+        row.markChanged();
+        return row;
+    }
+
+    /**
+     * Stamps updatedAt and clears changeSeq before a write, like the JPA entity's lifecycle callback.
+     */
+    public void markChanged() {
+        this.updatedAt = Instant.now();
+        this.changeSeq = null;
+    }
+
+    /**
+     * Getters and Setters
+     */
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public LocalDate getDateOfBirth() {
+        return dateOfBirth;
+    }
+
+    public void setDateOfBirth(LocalDate dateOfBirth) {
+        this.dateOfBirth = dateOfBirth;
+    }
+
+    public LocalDate getRegisteredDate() {
+        return registeredDate;
+    }
+
+    public void setRegisteredDate(LocalDate registeredDate) {
+        this.registeredDate = registeredDate;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+}
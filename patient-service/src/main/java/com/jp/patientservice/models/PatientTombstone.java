@@ -0,0 +1,95 @@
+package com.jp.patientservice.models;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity recording that a patient was deleted, so the change feed can report the deletion.
+ * Written in the same transaction as the delete; changeSeq is assigned afterwards by
+ * {@link com.jp.patientservice.service.PatientChangeSequencer}.
+ */
+@Entity
+@Table(name = "patient_tombstone",
+        indexes = @Index(name = "idx_patient_tombstone_change_seq", columnList = "changeSeq"))
+@Schema(description = "Entity representing a deleted patient.")
+public class PatientTombstone implements Persistable<UUID> {
+    @Id
+    @Schema(description = "ID of the deleted patient", example = "f47ac10b-58cc-4372-a567-0e02b2c3d479")
+    private UUID patientId;
+
+    @Schema(description = "Version of the patient when it was deleted", example = "3")
+    private long version;
+
+    @NotNull
+    @Schema(description = "Instant of the delete")
+    private Instant deletedAt;
+
+    @Schema(description = "Position in the change feed, assigned shortly after the commit", example = "42")
+    private Long changeSeq;
+
+    @Transient
+    private boolean isNew = true;
+
+    protected PatientTombstone() {
+    }
+
+    /**
+     * Creates the tombstone of a patient that is being deleted.
+     * @param patient The patient being deleted.
+     * @return A new tombstone.
+     */
+    public static PatientTombstone of(Patient patient) {
+        return of(patient.getId(), patient.getVersion());
+    }
+
+    /**
+     * Creates the tombstone of a patient that is being deleted.
+     * @param patientId The ID of the patient being deleted.
+     * @param version The version of the patient when it was deleted.
+     * @return A new tombstone.
+     */
+    public static PatientTombstone of(UUID patientId, long version) {
+        PatientTombstone tombstone = new PatientTombstone();
+        tombstone.patientId = patientId;
+        tombstone.version = version;
+        tombstone.deletedAt = Instant.now();
+        return tombstone;
+    }
+
+    public UUID getPatientId() {
+        return patientId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @Override
+    public UUID getId() {
+        return patientId;
+    }
+}
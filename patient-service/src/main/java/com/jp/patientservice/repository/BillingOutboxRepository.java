@@ -0,0 +1,39 @@
+package com.jp.patientservice.repository;
+
+import com.jp.patientservice.models.BillingOutboxEntry;
+import com.jp.patientservice.models.BillingOutboxStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing billing outbox entries.
+ */
+@Repository
+@Schema(description = "Repository for managing billing outbox entries in the database.")
+public interface BillingOutboxRepository extends JpaRepository<BillingOutboxEntry, UUID> {
+    /**
+     * Locks the entries that are due for delivery, oldest first, so they can be claimed.
+     * Rows are locked for the current transaction and rows already locked by another
+     * dispatcher instance are skipped, so each entry is claimed by one instance at a time.
+     * @param statuses The statuses to look for: PENDING, and IN_PROGRESS for expired claims.
+     * @param now Entries scheduled at or before this instant are returned.
+     * @param limit Maximum number of entries to claim.
+     * @return The claimed entries.
+     */
+    @Schema(description = "Locks and returns the billing outbox entries that are due for delivery.")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<BillingOutboxEntry> findByStatusInAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+            Collection<BillingOutboxStatus> statuses, Instant now, Limit limit);
+}
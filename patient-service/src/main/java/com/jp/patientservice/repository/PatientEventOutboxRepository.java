@@ -0,0 +1,56 @@
+package com.jp.patientservice.repository;
+
+import com.jp.patientservice.models.PatientEventOutboxEntry;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for managing patient event outbox entries.
+ */
+@Repository
+@Schema(description = "Repository for managing patient event outbox entries in the database.")
+public interface PatientEventOutboxRepository extends JpaRepository<PatientEventOutboxEntry, Long> {
+    /**
+     * Locks the single patient_event_relay_claim row, so relays on different instances claim
+     * events one after the other. Held until the claiming transaction ends.
+     */
+    @Schema(description = "Locks the row serializing the relays' claims.")
+    @Query(value = "SELECT id FROM patient_event_relay_claim WHERE id = 1 FOR UPDATE", nativeQuery = true)
+    Integer lockClaims();
+
+    /**
+     * Retrieves the oldest events that no relay currently holds, in ID order.
+     * An event behind an event of the same patient claimed by another relay is left out, so only
+     * one relay at a time publishes the events of a patient.
+     * @param now The current instant; claims ending before it have expired.
+     * @param limit Maximum number of events to return.
+     * @return The claimable events ordered by ID.
+     */
+    @Schema(description = "Returns the oldest patient events no relay currently holds.")
+    @Query(value = """
+            SELECT * FROM patient_event_outbox o
+            WHERE (o.claimed_until IS NULL OR o.claimed_until < :now)
+              AND NOT EXISTS (SELECT 1 FROM patient_event_outbox e
+                              WHERE e.patient_id = o.patient_id AND e.id < o.id AND e.claimed_until >= :now)
+            ORDER BY o.id
+            LIMIT :limit""", nativeQuery = true)
+    List<PatientEventOutboxEntry> findClaimable(Instant now, int limit);
+
+    /**
+     * Sets or clears the claim on events.
+     * @param ids The IDs of the events.
+     * @param claimedUntil The instant the claim ends, or null to release it.
+     * @return The number of events updated.
+     */
+    @Schema(description = "Claims patient events for publication, or releases them.")
+    @Modifying
+    @Query("update PatientEventOutboxEntry e set e.claimedUntil = :claimedUntil where e.id in :ids")
+    int setClaimedUntil(Collection<Long> ids, Instant claimedUntil);
+}
@@ -2,18 +2,31 @@ package com.jp.patientservice.repository;
 
 import com.jp.patientservice.models.Patient;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Patient entities.
- * Extends JpaRepository to provide CRUD operations and database interaction.
+ * Extends JpaRepository to provide CRUD operations and database interaction, and
+ * JpaSpecificationExecutor for searches built from {@link PatientSpecifications}.
  */
 @Repository
 @Schema(description = "Repository for managing Patient entities in the database.")
-public interface PatientRepository extends JpaRepository<Patient, UUID> {
+public interface PatientRepository extends JpaRepository<Patient, UUID>, JpaSpecificationExecutor<Patient> {
     /**
      * Checks if a patient with the given email exists.
      * @param email The email to check.
@@ -21,12 +34,104 @@ public interface PatientRepository extends JpaRepository<Patient, UUID> {
      */
     @Schema(description = "Verifies if a patient with the given email already exists.")
     boolean existsByEmail(String email);
+
     /**
-     * Checks if an email is already used by another patient excluding a specific ID.
-     * @param email The email to check.
-     * @param id The ID of the patient to exclude from the check.
-     * @return True if the email is used by another patient, otherwise false.
+     * Finds which of the given emails are already registered, in a single query.
+     * @param emails The emails to check.
+     * @return The subset of emails that belong to an existing patient.
+     */
+    @Schema(description = "Returns the subset of the given emails that are already registered.")
+    @Query("select p.email from Patient p where p.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Retrieves the first page of patients in keyset order.
+     * @param limit The maximum number of patients to return.
+     * @return Patients ordered by ID.
+     */
+    @Schema(description = "Retrieves the first page of patients ordered by ID.")
+    List<Patient> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * Retrieves the page of patients that follows the given ID in keyset order.
+     * @param id The ID of the last patient of the previous page.
+     * @param limit The maximum number of patients to return.
+     * @return Patients with an ID greater than the given one, ordered by ID.
+     */
+    @Schema(description = "Retrieves the page of patients following a given ID, ordered by ID.")
+    List<Patient> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+
+    /**
+     * Retrieves the first page of patient IDs in keyset order, without loading the patients.
+     * @param limit The maximum number of IDs to return.
+     * @return Patient IDs in ascending order.
+     */
+    @Schema(description = "Retrieves the first page of patient IDs in ascending order.")
+    @Query("select p.id from Patient p order by p.id")
+    List<UUID> findIdsOrderedById(Limit limit);
+
+    /**
+     * Retrieves the page of patient IDs that follows the given ID in keyset order.
+     * @param id The last ID of the previous page.
+     * @param limit The maximum number of IDs to return.
+     * @return Patient IDs greater than the given one, in ascending order.
+     */
+    @Schema(description = "Retrieves the page of patient IDs following a given ID, in ascending order.")
+    @Query("select p.id from Patient p where p.id > :id order by p.id")
+    List<UUID> findIdsOrderedByIdAfter(UUID id, Limit limit);
+
+    /**
+     * Streams every patient in ID order over a JDBC cursor.
+     * Must be consumed inside a read-only transaction and closed afterwards.
+     * @return A lazily fetched stream of patients.
+     */
+    @Schema(description = "Streams all patients ordered by ID using a server-side cursor.")
+    @Query("select p from Patient p order by p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Patient> streamAllOrderedById();
+
+    /**
+     * Streams every registered email over a JDBC cursor.
+     * Must be consumed inside a read-only transaction and closed afterwards.
+     * @return A lazily fetched stream of emails.
+     */
+    @Schema(description = "Streams all registered emails using a server-side cursor.")
+    @Query("select p.email from Patient p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllEmails();
+
+    /**
+     * Retrieves the patients changed after a position of the change feed.
+     * @param changeSeq The position to start after.
+     * @param limit The maximum number of patients to return.
+     * @return Patients ordered by change feed position.
+     */
+    @Schema(description = "Retrieves the patients changed after a change feed position, in feed order.")
+    List<Patient> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Limit limit);
+
+    /**
+     * Updates a patient in a single statement, checking its version in the same WHERE clause.
+     * Null values keep the current column value. A duplicate email is rejected by the unique index.
+     * The persistence context is cleared afterwards, so a following read sees the new row.
+     * @param id The ID of the patient to update.
+     * @param expectedVersion The version the client read, or null to overwrite any version.
+     * @param name The new name, or null to keep it.
+     * @param email The new email, or null to keep it.
+     * @param address The new address, or null to keep it.
+     * @param dateOfBirth The new date of birth, or null to keep it.
+     * @param updatedAt The instant of the update.
+     * @return 1 if the patient was updated, 0 if it does not exist or its version differs.
      */
-    @Schema(description = "Verifies if an email is used by another patient, excluding a specific ID.")
-    boolean existsByEmailAndIdNot(String email, UUID id);
+    @Schema(description = "Updates the given fields of a patient if its version matches, in one statement.")
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Patient p set p.name = coalesce(:name, p.name), p.email = coalesce(:email, p.email),
+                p.address = coalesce(:address, p.address), p.dateOfBirth = coalesce(:dateOfBirth, p.dateOfBirth),
+                p.version = p.version + 1, p.updatedAt = :updatedAt, p.changeSeq = null
+            where p.id = :id and (:expectedVersion is null or p.version = :expectedVersion)""")
+    int updateIfVersionMatches(UUID id, Long expectedVersion, String name, String email, String address,
+                               LocalDate dateOfBirth, Instant updatedAt);
 }
@@ -0,0 +1,42 @@
+package com.jp.patientservice.repository;
+
+import com.jp.patientservice.models.PatientRow;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Reactive repository for the patient table, used by the reactive profile.
+ */
+@Repository
+@Schema(description = "Reactive repository for patient rows.")
+public interface PatientRowRepository extends R2dbcRepository<PatientRow, UUID> {
+
+    /**
+     * Checks if a patient with the given email exists.
+     */
+    Mono<Boolean> existsByEmail(String email);
+
+    /**
+     * Retrieves the first page of patients in keyset order.
+     */
+    @Query("SELECT * FROM patient ORDER BY id LIMIT :limit")
+    Flux<PatientRow> findFirstPage(int limit);
+
+    /**
+     * Retrieves the page of patients that follows the given ID in keyset order.
+     */
+    @Query("SELECT * FROM patient WHERE id > :id ORDER BY id LIMIT :limit")
+    Flux<PatientRow> findPageAfter(UUID id, int limit);
+
+    /**
+     * Retrieves the patients changed after a position of the change feed.
+     */
+    @Query("SELECT * FROM patient WHERE change_seq > :changeSeq ORDER BY change_seq LIMIT :limit")
+    Flux<PatientRow> findChangedAfter(long changeSeq, int limit);
+}
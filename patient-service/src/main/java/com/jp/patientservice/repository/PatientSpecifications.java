@@ -0,0 +1,63 @@
+package com.jp.patientservice.repository;
+
+import com.jp.patientservice.models.Patient;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Search predicates over Patient, each matching one of the indexes declared for the patient table.
+ * Wildcards in user input are escaped so they match literally.
+ */
+@Schema(description = "Utility class building the predicates of patient searches.")
+public class PatientSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    /**
+     * Matches patients whose name contains the given text, ignoring case.
+     * Served by the trigram index on lower(name) in PostgreSQL.
+     */
+    public static Specification<Patient> nameContains(String text) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")),
+                "%" + escape(text.toLowerCase(Locale.ROOT)) + "%", ESCAPE);
+    }
+
+    /**
+     * Matches patients whose email starts with the given prefix, ignoring case.
+     * Served by the pattern index on lower(email) in PostgreSQL.
+     */
+    public static Specification<Patient> emailStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("email")),
+                escape(prefix.toLowerCase(Locale.ROOT)) + "%", ESCAPE);
+    }
+
+    /**
+     * Matches patients born between the two dates, both inclusive. A null bound leaves that side open.
+     */
+    public static Specification<Patient> bornBetween(LocalDate from, LocalDate to) {
+        return (root, query, cb) -> {
+            if (from == null) {
+                return cb.lessThanOrEqualTo(root.get("dateOfBirth"), to);
+            }
+            if (to == null) {
+                return cb.greaterThanOrEqualTo(root.get("dateOfBirth"), from);
+            }
+            return cb.between(root.get("dateOfBirth"), from, to);
+        };
+    }
+
+    /**
+     * Matches patients whose ID follows the given one, for keyset pagination.
+     */
+    public static Specification<Patient> idAfter(UUID id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
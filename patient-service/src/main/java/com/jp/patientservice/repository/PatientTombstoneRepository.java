@@ -0,0 +1,26 @@
+package com.jp.patientservice.repository;
+
+import com.jp.patientservice.models.PatientTombstone;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing the tombstones of deleted patients.
+ */
+@Repository
+@Schema(description = "Repository for managing patient tombstones in the database.")
+public interface PatientTombstoneRepository extends JpaRepository<PatientTombstone, UUID> {
+    /**
+     * Retrieves the tombstones that follow a position of the change feed.
+     * @param changeSeq The position to start after.
+     * @param limit The maximum number of tombstones to return.
+     * @return Tombstones ordered by change feed position.
+     */
+    @Schema(description = "Retrieves the tombstones after a change feed position, in feed order.")
+    List<PatientTombstone> findByChangeSeqGreaterThanOrderByChangeSeqAsc(long changeSeq, Limit limit);
+}
@@ -0,0 +1,360 @@
+package com.jp.patientservice.service;
+
+import billing.BillingAccountDetails;
+import com.jp.patientservice.grpc.BillingServiceGrpcClient;
+import com.jp.patientservice.models.BillingOutboxEntry;
+import com.jp.patientservice.models.BillingOutboxStatus;
+import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.repository.BillingOutboxRepository;
+import com.jp.patientservice.repository.PatientRepository;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Background job checking that every patient has a billing account and every billing account
+ * a patient, since the billing call is not part of the transaction that saves the patient.
+ * Patient IDs are read in keyset pages and billing-service's accounts are streamed in pages of
+ * the same size, both in ascending order of the ID's string form, and the two are merge-joined.
+ * Memory stays bounded by the page and repair batch sizes however many patients there are.
+ * Patients without an account are repaired through the billing outbox: an entry is written,
+ * or requeued if it was already sent or abandoned, and the dispatcher creates the account.
+ * Patients whose entry is still pending are in flight and left alone. Creates are idempotent,
+ * so repairing a patient whose account appeared meanwhile only costs a redundant call.
+ * Accounts without a patient are only reported, since billing-service cannot delete them.
+ * The schedule fires on every instance, so a run first takes the lease in the single
+ * billing_reconciliation_lock row and the other instances skip theirs. The lease is taken with
+ * one conditional UPDATE rather than a row lock, so no transaction stays open during the run,
+ * expires after lock-at-most in case the instance dies, and is kept for at least lock-at-least
+ * so an instance whose clock is a little behind does not start a second run right after.
+ */
+@Service
+public class BillingReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingReconciliationJob.class);
+    private final PatientRepository patientRepository;
+    private final BillingOutboxRepository billingOutboxRepository;
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Duration lockAtMost;
+    private final Duration lockAtLeast;
+    private final int pageSize;
+    private final int repairBatchSize;
+    private final boolean repair;
+    private final long streamDeadlineMillis;
+    private final int maxStreamResumes;
+    private final int maxReportedMismatches;
+    private final Timer durationTimer;
+    private final AtomicLong lastMissingAccounts = new AtomicLong();
+    private final AtomicLong lastOrphanAccounts = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BillingReconciliationJob(PatientRepository patientRepository,
+                                    BillingOutboxRepository billingOutboxRepository,
+                                    BillingServiceGrpcClient billingServiceGrpcClient,
+                                    TransactionTemplate transactionTemplate,
+                                    JdbcTemplate jdbcTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${billing.reconciliation.page-size:5000}") int pageSize,
+                                    @Value("${billing.reconciliation.repair-batch-size:500}") int repairBatchSize,
+                                    @Value("${billing.reconciliation.repair:true}") boolean repair,
+                                    @Value("${billing.reconciliation.stream-deadline-ms:1800000}") long streamDeadlineMillis,
+                                    @Value("${billing.reconciliation.max-stream-resumes:3}") int maxStreamResumes,
+                                    @Value("${billing.reconciliation.max-reported-mismatches:20}") int maxReportedMismatches,
+                                    @Value("${billing.reconciliation.lock-at-most-ms:7200000}") long lockAtMostMillis,
+                                    @Value("${billing.reconciliation.lock-at-least-ms:60000}") long lockAtLeastMillis) {
+        this.patientRepository = patientRepository;
+        this.billingOutboxRepository = billingOutboxRepository;
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockAtMost = Duration.ofMillis(lockAtMostMillis);
+        this.lockAtLeast = Duration.ofMillis(lockAtLeastMillis);
+        this.pageSize = pageSize;
+        this.repairBatchSize = repairBatchSize;
+        this.repair = repair;
+        this.streamDeadlineMillis = streamDeadlineMillis;
+        this.maxStreamResumes = maxStreamResumes;
+        this.maxReportedMismatches = maxReportedMismatches;
+        this.durationTimer = Timer.builder("billing.reconciliation.duration")
+                .description("Time taken by a complete reconciliation run")
+                .register(meterRegistry);
+        Gauge.builder("billing.reconciliation.mismatches", lastMissingAccounts, AtomicLong::get)
+                .tag("type", "missing_account")
+                .description("Patients without a billing account found by the last run")
+                .register(meterRegistry);
+        Gauge.builder("billing.reconciliation.mismatches", lastOrphanAccounts, AtomicLong::get)
+                .tag("type", "orphan_account")
+                .description("Billing accounts without a patient found by the last run")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Outcome of a reconciliation run.
+     * @param patients Patients read.
+     * @param accounts Billing accounts read.
+     * @param missingAccounts Patients without a billing account.
+     * @param orphanAccounts Billing accounts without a patient.
+     * @param repaired Missing accounts queued for creation through the billing outbox.
+     * @param inFlight Missing accounts whose outbox entry was still pending.
+     * @param duration Time taken by the run.
+     */
+    public record Result(long patients, long accounts, long missingAccounts, long orphanAccounts,
+                         long repaired, long inFlight, Duration duration) {
+    }
+
+    @Scheduled(cron = "${billing.reconciliation.cron:0 0 3 * * *}")
+    public void reconcileScheduled() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Billing reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a complete reconciliation.
+     * @return The outcome, or null if a run is already in progress on this or another instance.
+     * @throws StatusRuntimeException If the account stream fails more often than it may be resumed.
+     * @throws IllegalStateException If either side is not returned in ascending order.
+     */
+    public Result reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Billing reconciliation already running, skipping");
+            return null;
+        }
+        Instant startedAt = Instant.now();
+        if (!acquireLease(startedAt)) {
+            running.set(false);
+            log.info("Billing reconciliation running or recently run on another instance, skipping");
+            return null;
+        }
+        long start = System.nanoTime();
+        try (AccountCursor accounts = new AccountCursor()) {
+            PatientCursor patients = new PatientCursor();
+            Run run = new Run();
+            String patientId = patients.next();
+            String accountPatientId = accounts.next();
+            while (patientId != null || accountPatientId != null) {
+                int order = patientId == null ? 1
+                        : accountPatientId == null ? -1
+                        : patientId.compareTo(accountPatientId);
+                if (order == 0) {
+                    patientId = patients.next();
+                    accountPatientId = accounts.next();
+                } else if (order < 0) {
+                    run.missingAccount(patientId);
+                    patientId = patients.next();
+                } else {
+                    run.orphanAccount(accountPatientId);
+                    accountPatientId = accounts.next();
+                }
+            }
+            run.flushRepairs();
+
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            durationTimer.record(duration);
+            lastMissingAccounts.set(run.missingAccounts);
+            lastOrphanAccounts.set(run.orphanAccounts);
+            Result result = new Result(patients.read, accounts.read, run.missingAccounts, run.orphanAccounts,
+                    run.repaired, run.inFlight, duration);
+            log.info("Billing reconciliation finished: {}", result);
+            return result;
+        } finally {
+            releaseLease(startedAt);
+            running.set(false);
+        }
+    }
+
+    private boolean acquireLease(Instant now) {
+        return jdbcTemplate.update("UPDATE billing_reconciliation_lock SET locked_until = ?, locked_by = ?"
+                        + " WHERE id = 1 AND locked_until <= ?",
+                Timestamp.from(now.plus(lockAtMost)), instanceId, Timestamp.from(now)) == 1;
+    }
+
+    private void releaseLease(Instant startedAt) {
+        Instant earliest = startedAt.plus(lockAtLeast);
+        Instant now = Instant.now();
+        try {
+            jdbcTemplate.update("UPDATE billing_reconciliation_lock SET locked_until = ? WHERE id = 1 AND locked_by = ?",
+                    Timestamp.from(now.isAfter(earliest) ? now : earliest), instanceId);
+        } catch (RuntimeException e) {
+            log.warn("Could not release the billing reconciliation lease, it expires at lock-at-most: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Mismatch counts and the repair batch of one run.
+     */
+    private final class Run {
+        private final List<UUID> pendingRepairs = new ArrayList<>(repairBatchSize);
+        private long missingAccounts;
+        private long orphanAccounts;
+        private long repaired;
+        private long inFlight;
+
+        void missingAccount(String patientId) {
+            if (++missingAccounts <= maxReportedMismatches) {
+                log.warn("Patient {} has no billing account", patientId);
+            }
+            if (repair) {
+                pendingRepairs.add(UUID.fromString(patientId));
+                if (pendingRepairs.size() >= repairBatchSize) {
+                    flushRepairs();
+                }
+            }
+        }
+
+        void orphanAccount(String patientId) {
+            if (++orphanAccounts <= maxReportedMismatches) {
+                log.warn("Billing account of patient {} has no patient", patientId);
+            }
+        }
+
+        void flushRepairs() {
+            if (pendingRepairs.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<UUID, BillingOutboxEntry> entries = billingOutboxRepository.findAllById(pendingRepairs).stream()
+                        .collect(Collectors.toMap(BillingOutboxEntry::getPatientId, Function.identity()));
+                List<BillingOutboxEntry> created = new ArrayList<>();
+                // Patients deleted since their ID was read are not returned and need no account
+                for (Patient patient : patientRepository.findAllById(pendingRepairs)) {
+                    BillingOutboxEntry entry = entries.get(patient.getId());
+                    if (entry == null) {
+                        created.add(BillingOutboxEntry.pendingFor(patient));
+                        repaired++;
+                    } else if (entry.getStatus() == BillingOutboxStatus.PENDING
+                            || entry.getStatus() == BillingOutboxStatus.IN_PROGRESS) {
+                        inFlight++;
+                    } else {
+                        entry.requeue();
+                        repaired++;
+                    }
+                }
+                billingOutboxRepository.saveAll(created);
+            });
+            pendingRepairs.clear();
+        }
+    }
+
+    /**
+     * Patient IDs in ascending order, read one keyset page at a time.
+     */
+    private final class PatientCursor {
+        private List<UUID> page = List.of();
+        private int index;
+        private boolean lastPage;
+        private String previous;
+        private long read;
+
+        /**
+         * @return The next patient ID as a string, or null after the last one.
+         */
+        String next() {
+            if (index == page.size()) {
+                if (lastPage) {
+                    return null;
+                }
+                page = page.isEmpty()
+                        ? patientRepository.findIdsOrderedById(Limit.of(pageSize))
+                        : patientRepository.findIdsOrderedByIdAfter(page.get(page.size() - 1), Limit.of(pageSize));
+                index = 0;
+                lastPage = page.size() < pageSize;
+                if (page.isEmpty()) {
+                    return null;
+                }
+            }
+            String id = page.get(index++).toString();
+            previous = checkAscending("Patient IDs", previous, id);
+            read++;
+            return id;
+        }
+    }
+
+    /**
+     * Patient IDs of billing-service's accounts in ascending order, resuming after the last
+     * one read when the stream breaks.
+     */
+    private final class AccountCursor implements AutoCloseable {
+        private Stream<BillingAccountDetails> stream;
+        private Iterator<BillingAccountDetails> accounts;
+        private String previous;
+        private int resumes;
+        private long read;
+
+        /**
+         * @return The patient ID of the next account, or null after the last one.
+         */
+        String next() {
+            while (true) {
+                try {
+                    if (accounts == null) {
+                        stream = billingServiceGrpcClient.streamAccounts(previous == null ? "" : previous,
+                                pageSize, streamDeadlineMillis);
+                        accounts = stream.iterator();
+                    }
+                    if (!accounts.hasNext()) {
+                        return null;
+                    }
+                    String id = accounts.next().getPatientId();
+                    previous = checkAscending("Billing account patient IDs", previous, id);
+                    read++;
+                    return id;
+                } catch (StatusRuntimeException e) {
+                    close();
+                    if (++resumes > maxStreamResumes) {
+                        throw e;
+                    }
+                    log.warn("Billing account stream failed after patient {}, resuming: {}", previous, e.getStatus());
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (stream != null) {
+                stream.close();
+            }
+            stream = null;
+            accounts = null;
+        }
+    }
+
+    /**
+     * The merge join silently reports wrong mismatches if either side is out of order, so fail instead.
+     */
+    private static String checkAscending(String source, String previous, String next) {
+        if (previous != null && previous.compareTo(next) >= 0) {
+            throw new IllegalStateException(source + " are not in ascending order: " + next + " after " + previous);
+        }
+        return next;
+    }
+}
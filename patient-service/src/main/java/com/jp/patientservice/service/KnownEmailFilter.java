@@ -0,0 +1,246 @@
+package com.jp.patientservice.service;
+
+import com.jp.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of the registered emails, used to skip the uniqueness query for emails that
+ * are certainly new. The filter only answers "maybe taken" or "definitely new"; the unique
+ * constraint on the email column remains the final authority.
+ * Emails cannot be removed from a Bloom filter, so deletes and email changes leave stale
+ * bits that only cost an extra query. The filter is rebuilt from the table periodically.
+ */
+@Component
+public class KnownEmailFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(KnownEmailFilter.class);
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int bitCount;
+    private final int hashFunctions;
+    private final Counter definiteMisses;
+    private final Counter possibleHits;
+    private final Counter falsePositives;
+    private final AtomicLong staleEntries = new AtomicLong();
+    private volatile AtomicLongArray bits;
+    private volatile AtomicLongArray rebuilding;
+    private volatile boolean ready;
+
+    public KnownEmailFilter(PatientRepository patientRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${patient.email-filter.expected-emails:1000000}") long expectedEmails,
+                            @Value("${patient.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.patientRepository = patientRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        // Optimal sizing: m = -n ln(p) / ln(2)^2 bits and k = m/n ln(2) hash functions
+        long optimalBits = (long) Math.ceil(-expectedEmails * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(optimalBits, Long.SIZE), Integer.MAX_VALUE - Long.SIZE);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedEmails * Math.log(2)));
+        this.bits = newBits();
+
+        this.definiteMisses = Counter.builder("patient.email.filter.checks").tag("result", "definite_miss")
+                .description("Email uniqueness checks answered by the filter without a query")
+                .register(meterRegistry);
+        this.possibleHits = Counter.builder("patient.email.filter.checks").tag("result", "possible_hit")
+                .description("Email uniqueness checks that had to query the database")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("patient.email.filter.false.positives")
+                .description("Queried emails that turned out not to be registered")
+                .register(meterRegistry);
+        Gauge.builder("patient.email.filter.size", () -> bitCount).baseUnit("bits")
+                .register(meterRegistry);
+        Gauge.builder("patient.email.filter.configured.false.positive.rate", () -> falsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("patient.email.filter.expected.false.positive.rate", this::expectedFalsePositiveRate)
+                .description("False positive rate implied by the current fill ratio")
+                .register(meterRegistry);
+        Gauge.builder("patient.email.filter.stale.entries", staleEntries, AtomicLong::get)
+                .description("Removed or replaced emails still set in the filter until the next rebuild")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether an email is taken, querying only when the filter cannot rule it out.
+     * Before the filter is warmed every check queries.
+     * @param email The email to check.
+     * @param lookup The database query deciding emails the filter might contain.
+     * @return True if the lookup found the email.
+     */
+    public boolean isTaken(String email, Predicate<String> lookup) {
+        if (!mightContain(email)) {
+            return false;
+        }
+        boolean taken = lookup.test(email);
+        if (!taken) {
+            falsePositives.increment();
+        }
+        return taken;
+    }
+
+    /**
+     * Non-blocking form of {@link #isTaken(String, Predicate)} for callers that run the lookup
+     * themselves and report a miss through {@link #recordFalsePositives(int)}.
+     * @return False if the email is certainly not registered.
+     */
+    public boolean mightBeTaken(String email) {
+        return mightContain(email);
+    }
+
+    /**
+     * Keeps only the emails that might be registered, so a batch lookup can skip the rest.
+     * @param emails The emails to check.
+     * @return The emails the filter cannot rule out.
+     */
+    public List<String> possiblyTaken(Collection<String> emails) {
+        return emails.stream().filter(this::mightContain).toList();
+    }
+
+    /**
+     * Records how many of the emails returned by {@link #possiblyTaken(Collection)} were not registered.
+     */
+    public void recordFalsePositives(int count) {
+        falsePositives.increment(count);
+    }
+
+    /**
+     * Adds a newly registered email. Called before commit; a rollback only leaves a false positive.
+     */
+    public void add(String email) {
+        put(bits, email);
+        AtomicLongArray pending = rebuilding;
+        if (pending != null) {
+            put(pending, email);
+        }
+    }
+
+    /**
+     * Records that an email is no longer registered. Its bits stay set until the next rebuild.
+     */
+    public void removed(String email) {
+        staleEntries.incrementAndGet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the filter from the patient table to drop removed emails.
+     * Emails added while the table is being read go to both the old and the new filter.
+     * Checks keep querying until the first rebuild succeeds.
+     */
+    @Scheduled(fixedDelayString = "${patient.email-filter.rebuild-interval-ms:3600000}",
+            initialDelayString = "${patient.email-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        AtomicLongArray fresh = newBits();
+        rebuilding = fresh;
+        try {
+            long staleBefore = staleEntries.get();
+            AtomicLong count = new AtomicLong();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> emails = patientRepository.streamAllEmails()) {
+                    emails.forEach(email -> {
+                        put(fresh, email);
+                        count.incrementAndGet();
+                    });
+                }
+            });
+            bits = fresh;
+            ready = true;
+            staleEntries.addAndGet(-staleBefore);
+            log.info("Email filter rebuilt with {} emails ({} bits, {} hash functions)", count, bitCount, hashFunctions);
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild the email filter: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private boolean mightContain(String email) {
+        if (!ready) {
+            possibleHits.increment();
+            return true;
+        }
+        AtomicLongArray current = bits;
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = (int) Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((current.get(bit >>> 6) & (1L << bit)) == 0) {
+                definiteMisses.increment();
+                return false;
+            }
+        }
+        possibleHits.increment();
+        return true;
+    }
+
+    private void put(AtomicLongArray target, String email) {
+        long hash1 = hash(email);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = (int) Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long value;
+            while (((value = target.get(word)) & mask) == 0
+                    && !target.compareAndSet(word, value, value | mask)) {
+                // Retry until the bit is set by this or another thread
+            }
+        }
+    }
+
+    private double expectedFalsePositiveRate() {
+        AtomicLongArray current = bits;
+        long set = 0;
+        for (int i = 0; i < current.length(); i++) {
+            set += Long.bitCount(current.get(i));
+        }
+        return Math.pow((double) set / bitCount, hashFunctions);
+    }
+
+    private AtomicLongArray newBits() {
+        return new AtomicLongArray((bitCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private static long hash(String email) {
+        // FNV-1a over the UTF-16 code units, finished with a 64-bit mixer
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            hash ^= email.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,83 @@
+package com.jp.patientservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Background job that assigns change feed positions to committed patient changes.
+ * Writers only clear change_seq; positions are handed out here, under the lock of the single
+ * patient_change_sequence row, so they are assigned in commit order across all instances.
+ * A client that has read up to position N can therefore never later miss a change below N,
+ * which a sequence value taken inside the writing transaction could not guarantee.
+ */
+@Service
+public class PatientChangeSequencer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter sequencedCounter;
+
+    public PatientChangeSequencer(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${patient.changes.sequencer.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sequencedCounter = meterRegistry.counter("patient.changes.sequenced");
+    }
+
+    /**
+     * Sequences pending changes until a batch comes back short.
+     */
+    @Scheduled(fixedDelayString = "${patient.changes.sequencer.poll-interval-ms:200}")
+    public void sequencePending() {
+        Integer sequenced;
+        do {
+            sequenced = transactionTemplate.execute(status -> sequenceBatch());
+        } while (sequenced != null && sequenced >= batchSize);
+    }
+
+    private int sequenceBatch() {
+        long lastSeq = jdbcTemplate.queryForObject(
+                "SELECT last_seq FROM patient_change_sequence WHERE id = 1 FOR UPDATE", Long.class);
+        List<UUID> patients = jdbcTemplate.queryForList(
+                "SELECT id FROM patient WHERE change_seq IS NULL ORDER BY updated_at, id LIMIT ?",
+                UUID.class, batchSize);
+        List<UUID> tombstones = jdbcTemplate.queryForList(
+                "SELECT patient_id FROM patient_tombstone WHERE change_seq IS NULL ORDER BY deleted_at LIMIT ?",
+                UUID.class, batchSize);
+        if (patients.isEmpty() && tombstones.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> patientSeqs = new ArrayList<>(patients.size());
+        for (UUID id : patients) {
+            patientSeqs.add(new Object[]{++lastSeq, id});
+        }
+        List<Object[]> tombstoneSeqs = new ArrayList<>(tombstones.size());
+        for (UUID id : tombstones) {
+            tombstoneSeqs.add(new Object[]{++lastSeq, id});
+        }
+        // A patient updated since it was read keeps change_seq NULL after the writer commits, so
+        // the guard only skips rows that are gone or were sequenced in the meantime
+        jdbcTemplate.batchUpdate("UPDATE patient SET change_seq = ? WHERE id = ? AND change_seq IS NULL",
+                patientSeqs);
+        jdbcTemplate.batchUpdate("UPDATE patient_tombstone SET change_seq = ? WHERE patient_id = ?",
+                tombstoneSeqs);
+        jdbcTemplate.update("UPDATE patient_change_sequence SET last_seq = ? WHERE id = 1", lastSeq);
+
+        sequencedCounter.increment(patients.size() + tombstones.size());
+        return patients.size() + tombstones.size();
+    }
+}
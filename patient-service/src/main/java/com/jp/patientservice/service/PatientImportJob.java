@@ -0,0 +1,119 @@
+package com.jp.patientservice.service;
+
+import com.jp.patientservice.dto.ImportJobDTO;
+import com.jp.patientservice.dto.ImportRowErrorDTO;
+import com.jp.patientservice.mapping.PatientImportReader;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Progress of one bulk import, updated by the import thread and read by status requests.
+ */
+class PatientImportJob {
+
+    enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final UUID id;
+    private final PatientImportReader.Format format;
+    private final int maxReportedErrors;
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private final List<ImportRowErrorDTO> errors = new ArrayList<>();
+    // A j.u.c lock rather than a monitor, so a virtual thread waiting for it does not pin its carrier
+    private final ReentrantLock errorsLock = new ReentrantLock();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String failureReason;
+
+    PatientImportJob(UUID id, PatientImportReader.Format format, int maxReportedErrors) {
+        this.id = id;
+        this.format = format;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    PatientImportReader.Format getFormat() {
+        return format;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String reason) {
+        failureReason = reason;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    /**
+     * @return Whether the job completed or failed.
+     */
+    boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    void rowRead() {
+        processedRows.incrementAndGet();
+    }
+
+    void imported(int count) {
+        importedRows.addAndGet(count);
+    }
+
+    /**
+     * Counts a rejected row; only the first errors are kept so a bad file cannot exhaust memory.
+     */
+    void reject(long row, String message) {
+        rejectedRows.incrementAndGet();
+        errorsLock.lock();
+        try {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportRowErrorDTO(row, message));
+            }
+        } finally {
+            errorsLock.unlock();
+        }
+    }
+
+    ImportJobDTO toDTO() {
+        ImportJobDTO dto = new ImportJobDTO();
+        dto.setId(id.toString());
+        dto.setStatus(status.name());
+        dto.setFormat(format.name());
+        dto.setProcessedRows(processedRows.get());
+        dto.setImportedRows(importedRows.get());
+        dto.setRejectedRows(rejectedRows.get());
+        dto.setStartedAt(startedAt == null ? null : startedAt.toString());
+        dto.setFinishedAt(finishedAt == null ? null : finishedAt.toString());
+        dto.setFailureReason(failureReason);
+        errorsLock.lock();
+        try {
+            dto.setErrors(List.copyOf(errors));
+        } finally {
+            errorsLock.unlock();
+        }
+        return dto;
+    }
+}
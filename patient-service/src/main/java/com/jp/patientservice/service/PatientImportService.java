@@ -0,0 +1,295 @@
+package com.jp.patientservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jp.patientservice.dto.ImportJobDTO;
+import com.jp.patientservice.dto.PatientRequestDTO;
+import com.jp.patientservice.exception.ImportJobNotFoundException;
+import com.jp.patientservice.exception.ImportQueueFullException;
+import com.jp.patientservice.mapping.PatientEventMapper;
+import com.jp.patientservice.mapping.PatientImportReader;
+import com.jp.patientservice.mapping.PatientMapper;
+import com.jp.patientservice.models.BillingOutboxEntry;
+import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.repository.BillingOutboxRepository;
+import com.jp.patientservice.repository.PatientRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import patient.events.PatientEventType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Service class responsible for bulk patient imports.
+ * The uploaded file is spooled to disk so the HTTP request returns immediately, then read
+ * in chunks: each chunk checks email uniqueness with one query and is written with JDBC
+ * batch inserts, together with its billing and event outbox entries, in one transaction.
+ * The chunk's event outbox IDs are taken from the sequence in one statement, rather than one
+ * round trip per event as the unpooled entity ID would.
+ * Finished jobs are kept for status requests until more than the retained number have
+ * finished; queued and running jobs are never dropped, and are bounded by the import queue.
+ */
+@Service
+public class PatientImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientImportService.class);
+    private final PatientRepository patientRepository;
+    private final BillingOutboxRepository billingOutboxRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final KnownEmailFilter knownEmailFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor importExecutor;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+    private final int retainedJobs;
+    // Guarded by jobsLock, a j.u.c lock so request threads never pin a virtual thread's carrier
+    private final Map<UUID, PatientImportJob> jobs = new LinkedHashMap<>();
+    private final ReentrantLock jobsLock = new ReentrantLock();
+
+    public PatientImportService(PatientRepository patientRepository,
+                                BillingOutboxRepository billingOutboxRepository,
+                                JdbcTemplate jdbcTemplate,
+                                KnownEmailFilter knownEmailFilter,
+                                TransactionTemplate transactionTemplate,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                @Value("${patient.import.chunk-size:1000}") int chunkSize,
+                                @Value("${patient.import.concurrency:1}") int concurrency,
+                                @Value("${patient.import.max-reported-errors:1000}") int maxReportedErrors,
+                                @Value("${patient.import.retained-jobs:100}") int retainedJobs) {
+        this.patientRepository = patientRepository;
+        this.billingOutboxRepository = billingOutboxRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.knownEmailFilter = knownEmailFilter;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.retainedJobs = retainedJobs;
+
+        this.importExecutor = new ThreadPoolTaskExecutor();
+        importExecutor.setCorePoolSize(concurrency);
+        importExecutor.setMaxPoolSize(concurrency);
+        importExecutor.setQueueCapacity(retainedJobs);
+        importExecutor.setThreadNamePrefix("patient-import-");
+        importExecutor.initialize();
+    }
+
+    /**
+     * Spools an import file to disk and queues it for processing.
+     * @param body The raw request body.
+     * @param format The format of the body.
+     * @return The status of the queued job.
+     * @throws ImportQueueFullException if the import queue is full.
+     */
+    public ImportJobDTO startImport(InputStream body, PatientImportReader.Format format) throws IOException {
+        Path spool = Files.createTempFile("patient-import-", "." + format.name().toLowerCase());
+        try {
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+            PatientImportJob job = new PatientImportJob(UUID.randomUUID(), format, maxReportedErrors);
+            withJobs(() -> jobs.put(job.getId(), job));
+            try {
+                importExecutor.execute(() -> runImport(job, spool));
+            } catch (TaskRejectedException e) {
+                withJobs(() -> jobs.remove(job.getId()));
+                throw new ImportQueueFullException("Import queue is full, rejected job " + job.getId());
+            }
+            evictFinishedJobs();
+            return job.toDTO();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the progress of an import job.
+     * @param id The UUID of the import job.
+     * @throws ImportJobNotFoundException if the job is unknown or no longer retained.
+     * @return The current job status.
+     */
+    public ImportJobDTO getImportJob(UUID id) {
+        PatientImportJob job = withJobs(() -> jobs.get(id));
+        if (job == null) {
+            throw new ImportJobNotFoundException("Import job not found with ID " + id);
+        }
+        return job.toDTO();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        importExecutor.shutdown();
+    }
+
+    private void evictFinishedJobs() {
+        withJobs(() -> {
+            long finished = jobs.values().stream().filter(PatientImportJob::isFinished).count();
+            Iterator<PatientImportJob> oldestFirst = jobs.values().iterator();
+            while (finished > retainedJobs && oldestFirst.hasNext()) {
+                if (oldestFirst.next().isFinished()) {
+                    oldestFirst.remove();
+                    finished--;
+                }
+            }
+            return null;
+        });
+    }
+
+    private <T> T withJobs(Supplier<T> action) {
+        jobsLock.lock();
+        try {
+            return action.get();
+        } finally {
+            jobsLock.unlock();
+        }
+    }
+
+    private void runImport(PatientImportJob job, Path spool) {
+        job.start();
+        try (PatientImportReader reader = new PatientImportReader(
+                Files.newBufferedReader(spool, StandardCharsets.UTF_8), job.getFormat(), objectMapper)) {
+            List<PatientImportReader.Row> chunk = new ArrayList<>(chunkSize);
+            PatientImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                job.rowRead();
+                String error = row.error() != null ? row.error() : validate(row.patient());
+                if (error != null) {
+                    job.reject(row.number(), error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(job, chunk);
+            }
+            job.complete();
+            log.info("Import job {} completed", job.getId());
+        } catch (IOException | RuntimeException e) {
+            log.error("Import job {} failed: {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete import spool file {}", spool);
+            }
+        }
+    }
+
+    private void importChunk(PatientImportJob job, List<PatientImportReader.Row> rows) {
+        Map<String, PatientImportReader.Row> byEmail = new LinkedHashMap<>();
+        for (PatientImportReader.Row row : rows) {
+            if (byEmail.putIfAbsent(row.patient().getEmail(), row) != null) {
+                job.reject(row.number(), "email: Duplicate email in import file");
+            }
+        }
+        List<String> candidates = knownEmailFilter.possiblyTaken(byEmail.keySet());
+        Set<String> existing = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(patientRepository.findExistingEmails(candidates));
+        knownEmailFilter.recordFalsePositives(candidates.size() - existing.size());
+
+        List<PatientImportReader.Row> accepted = new ArrayList<>(byEmail.size());
+        List<Patient> patients = new ArrayList<>(byEmail.size());
+        for (PatientImportReader.Row row : byEmail.values()) {
+            if (existing.contains(row.patient().getEmail())) {
+                job.reject(row.number(), "email: Email address already exists");
+                continue;
+            }
+            try {
+                patients.add(PatientMapper.toModel(row.patient()));
+                accepted.add(row);
+            } catch (DateTimeParseException e) {
+                job.reject(row.number(), "Invalid date, expected YYYY-MM-DD: " + e.getParsedString());
+            }
+        }
+        if (patients.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(patients));
+            job.imported(patients.size());
+        } catch (DataIntegrityViolationException e) {
+            // A row broke a constraint, typically an email registered concurrently after the
+            // check, so isolate the offending rows
+            for (PatientImportReader.Row row : accepted) {
+                try {
+                    transactionTemplate.executeWithoutResult(
+                            status -> persist(List.of(PatientMapper.toModel(row.patient()))));
+                    job.imported(1);
+                } catch (DataIntegrityViolationException rowError) {
+                    job.reject(row.number(), PatientService.uniqueViolation(rowError)
+                            ? "email: Email address already exists"
+                            // The driver's first line names the constraint; the rest repeats the SQL
+                            : rowError.getMostSpecificCause().getMessage().lines().findFirst().orElse(""));
+                }
+            }
+        }
+    }
+
+    private void persist(List<Patient> patients) {
+        List<Patient> saved = patientRepository.saveAll(patients);
+        saved.forEach(patient -> knownEmailFilter.add(patient.getEmail()));
+        billingOutboxRepository.saveAll(saved.stream().map(BillingOutboxEntry::pendingFor).toList());
+
+        // New patients have no earlier events, so their IDs need not wait for a row lock
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval('patient_event_outbox_seq') FROM generate_series(1, ?)", Long.class, saved.size());
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        List<Object[]> events = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Patient patient = saved.get(i);
+            events.add(new Object[]{ids.get(i), patient.getId(), PatientEventType.PATIENT_CREATED.name(),
+                    PatientEventMapper.toEvent(patient, PatientEventType.PATIENT_CREATED).toByteArray(), createdAt});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO patient_event_outbox (id, patient_id, event_type, payload, created_at)"
+                + " VALUES (?, ?, ?, ?, ?)", events);
+    }
+
+    private String validate(PatientRequestDTO patient) {
+        Set<ConstraintViolation<PatientRequestDTO>> violations = validator.validate(patient);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,137 @@
+package com.jp.patientservice.service;
+
+import com.jp.patientservice.dto.PatientPageDTO;
+import com.jp.patientservice.exception.InvalidSearchException;
+import com.jp.patientservice.mapping.PatientCursorCodec;
+import com.jp.patientservice.mapping.PatientMapper;
+import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.repository.PatientRepository;
+import com.jp.patientservice.repository.PatientSpecifications;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class searching patients by name, email prefix and date of birth range.
+ * A search is only run when at least one criterion can be served from an index and is selective
+ * enough, so no request degrades into a scan of the patient table.
+ * Pages are in ID order, which none of the criteria's indexes provide: every match is read and
+ * sorted before the first page is returned, however small the page. The transaction timeout,
+ * applied to the query as a statement timeout, is therefore the only bound on the cost of a
+ * criterion that passes the checks but matches a large part of the table.
+ * Not tied to a profile: the reactive controller runs it on a worker thread.
+ */
+@Service
+public class PatientSearchService {
+
+    private final PatientRepository patientRepository;
+    private final int minNameLength;
+    private final int minEmailPrefixLength;
+    private final long maxBirthDateRangeDays;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public PatientSearchService(PatientRepository patientRepository,
+                                @Value("${patient.search.min-name-length:3}") int minNameLength,
+                                @Value("${patient.search.min-email-prefix-length:3}") int minEmailPrefixLength,
+                                @Value("${patient.search.max-birth-date-range-days:366}") long maxBirthDateRangeDays,
+                                @Value("${patient.pagination.default-size:50}") int defaultPageSize,
+                                @Value("${patient.pagination.max-size:500}") int maxPageSize) {
+        this.patientRepository = patientRepository;
+        this.minNameLength = minNameLength;
+        this.minEmailPrefixLength = minEmailPrefixLength;
+        this.maxBirthDateRangeDays = maxBirthDateRangeDays;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Retrieves one page of the patients matching every given criterion, in ID order.
+     * @param name Text the name must contain, ignoring case, or null.
+     * @param emailPrefix Prefix the email must start with, ignoring case, or null.
+     * @param bornFrom First date of birth of the range, or null.
+     * @param bornTo Last date of birth of the range, or null.
+     * @param cursor Opaque token returned with the previous page, or null for the first page.
+     * @param size Requested page size, or null for the default. Clamped to the configured maximum.
+     * @throws InvalidSearchException if no criterion is selective enough to be served from an index.
+     * @return A PatientPageDTO with the matching patients and the token for the next page.
+     */
+    @Operation(
+            summary = "Search patients",
+            description = "Returns a page of the patients matching a name, an email prefix and a date of birth range",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved page"),
+                    @ApiResponse(responseCode = "400", description = "Criteria not selective enough or invalid cursor")
+            }
+    )
+    @Transactional(readOnly = true, timeoutString = "${patient.search.timeout-seconds:2}")
+    public PatientPageDTO search(String name, String emailPrefix, LocalDate bornFrom, LocalDate bornTo,
+                                 String cursor, Integer size) {
+        List<Specification<Patient>> criteria = plan(trim(name), trim(emailPrefix), bornFrom, bornTo);
+        if (cursor != null && !cursor.isBlank()) {
+            criteria.add(PatientSpecifications.idAfter(PatientCursorCodec.decode(cursor)));
+        }
+
+        int pageSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        // Fetch one extra row to know whether another page exists without a count query. The limit
+        // applies after all matches are sorted by ID, so it does not shorten the index lookup
+        List<Patient> patients = patientRepository.findBy(Specification.allOf(criteria),
+                query -> query.sortBy(Sort.by("id")).limit(pageSize + 1).all());
+
+        boolean hasNext = patients.size() > pageSize;
+        List<Patient> page = hasNext ? patients.subList(0, pageSize) : patients;
+        String nextCursor = hasNext ? PatientCursorCodec.encode(page.get(pageSize - 1).getId()) : null;
+        return new PatientPageDTO(page.stream().map(PatientMapper::toDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Turns the criteria into predicates, refusing a search that none of them keeps selective.
+     * Short name or email fragments match too much of the table to be worth an index lookup,
+     * and a date of birth range on its own must be narrow enough.
+     */
+    private List<Specification<Patient>> plan(String name, String emailPrefix, LocalDate bornFrom, LocalDate bornTo) {
+        List<Specification<Patient>> criteria = new ArrayList<>();
+        boolean selective = false;
+        if (name != null) {
+            if (name.length() < minNameLength) {
+                throw new InvalidSearchException("Name must have at least " + minNameLength + " characters");
+            }
+            criteria.add(PatientSpecifications.nameContains(name));
+            selective = true;
+        }
+        if (emailPrefix != null) {
+            if (emailPrefix.length() < minEmailPrefixLength) {
+                throw new InvalidSearchException("Email prefix must have at least "
+                        + minEmailPrefixLength + " characters");
+            }
+            criteria.add(PatientSpecifications.emailStartsWith(emailPrefix));
+            selective = true;
+        }
+        if (bornFrom != null || bornTo != null) {
+            if (bornFrom != null && bornTo != null && bornFrom.isAfter(bornTo)) {
+                throw new InvalidSearchException("bornFrom must not be after bornTo");
+            }
+            criteria.add(PatientSpecifications.bornBetween(bornFrom, bornTo));
+            selective |= bornFrom != null && bornTo != null
+                    && ChronoUnit.DAYS.between(bornFrom, bornTo) <= maxBirthDateRangeDays;
+        }
+        if (!selective) {
+            throw new InvalidSearchException("Search needs a name, an email prefix or a date of birth range of at most "
+                    + maxBirthDateRangeDays + " days");
+        }
+        return criteria;
+    }
+
+    private static String trim(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -1,62 +1,212 @@
 package com.jp.patientservice.service;
 
-import billing.BillingServiceGrpc;
+import com.jp.patientservice.config.CacheConfig;
+import com.jp.patientservice.dto.PatientChangeDTO;
+import com.jp.patientservice.dto.PatientChangesDTO;
+import com.jp.patientservice.dto.PatientPageDTO;
+import com.jp.patientservice.dto.PatientPatchDTO;
 import com.jp.patientservice.dto.PatientRequestDTO;
 import com.jp.patientservice.dto.PatientResponseDTO;
 import com.jp.patientservice.exception.EmailAlreadyExistsException;
 import com.jp.patientservice.exception.PatientNotFoundException;
-import com.jp.patientservice.grpc.BillingServiceGrpcClient;
-import com.jp.patientservice.kafka.KafkaProducer;
+import com.jp.patientservice.exception.PatientVersionConflictException;
+import com.jp.patientservice.mapping.PatientCursorCodec;
+import com.jp.patientservice.mapping.PatientEventMapper;
 import com.jp.patientservice.mapping.PatientMapper;
+import com.jp.patientservice.models.BillingOutboxEntry;
 import com.jp.patientservice.models.Patient;
+import com.jp.patientservice.models.PatientEventOutboxEntry;
+import com.jp.patientservice.models.PatientTombstone;
+import com.jp.patientservice.repository.BillingOutboxRepository;
+import com.jp.patientservice.repository.PatientEventOutboxRepository;
 import com.jp.patientservice.repository.PatientRepository;
+import com.jp.patientservice.repository.PatientTombstoneRepository;
+import com.jp.patientservice.tracing.TraceContexts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import patient.events.PatientEventType;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service class responsible for handling business logic related to Patient operations.
  */
 @Service
 public class PatientService {
-    private final KafkaProducer kafkaProducer;
+    private static final int DELETE_ATTEMPTS = 3;
+    private final PatientEventOutboxRepository patientEventOutboxRepository;
     private PatientRepository patientRepository;
-    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final BillingOutboxRepository billingOutboxRepository;
+    private final PatientTombstoneRepository patientTombstoneRepository;
+    private final EntityManager entityManager;
+    private final KnownEmailFilter knownEmailFilter;
+    private final TraceContexts traceContexts;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final Timer emailCheckTimer;
+    private final Timer saveTimer;
+    private final Timer outboxTimer;
 
     /**
      * Constructor for dependency injection.
      * @param patientRepository Repository for managing patient data.
+     * @param billingOutboxRepository Repository for the billing accounts pending creation.
+     * @param patientEventOutboxRepository Repository for the patient events pending publication.
+     * @param patientTombstoneRepository Repository for the tombstones of deleted patients.
+     * @param knownEmailFilter Filter ruling out emails that are certainly not registered.
+     * @param traceContexts Source of the trace context stored with the outbox entries.
+     * @param transactionTemplate Transaction of each attempt of a deletion.
+     * @param meterRegistry Registry of the per-stage timers of patient creation.
+     * @param defaultPageSize Page size used when the client does not request one.
+     * @param maxPageSize Upper bound applied to the page size requested by the client.
      */
-    public PatientService(PatientRepository patientRepository, BillingServiceGrpcClient billingServiceGrpcClient, KafkaProducer kafkaProducer) {
+    public PatientService(PatientRepository patientRepository, BillingOutboxRepository billingOutboxRepository,
+                          PatientEventOutboxRepository patientEventOutboxRepository,
+                          PatientTombstoneRepository patientTombstoneRepository, EntityManager entityManager,
+                          KnownEmailFilter knownEmailFilter, TraceContexts traceContexts,
+                          TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                          @Value("${patient.pagination.default-size:50}") int defaultPageSize,
+                          @Value("${patient.pagination.max-size:500}") int maxPageSize) {
         this.patientRepository = patientRepository;
-        this.billingServiceGrpcClient = billingServiceGrpcClient;
-        this.kafkaProducer = kafkaProducer;
+        this.billingOutboxRepository = billingOutboxRepository;
+        this.patientEventOutboxRepository = patientEventOutboxRepository;
+        this.patientTombstoneRepository = patientTombstoneRepository;
+        this.entityManager = entityManager;
+        this.knownEmailFilter = knownEmailFilter;
+        this.traceContexts = traceContexts;
+        this.transactionTemplate = transactionTemplate;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.emailCheckTimer = createStageTimer(meterRegistry, "email_check");
+        this.saveTimer = createStageTimer(meterRegistry, "save");
+        this.outboxTimer = createStageTimer(meterRegistry, "outbox");
     }
 
     /**
-     * Retrieves all patients from the database and converts them to DTOs.
-     * @return List of PatientResponseDTO objects.
+     * Retrieves one page of patients in ID order using keyset pagination.
+     * @param cursor Opaque token returned with the previous page, or null for the first page.
+     * @param size Requested page size, or null for the default. Clamped to the configured maximum.
+     * @throws com.jp.patientservice.exception.InvalidCursorException if the cursor cannot be decoded.
+     * @return A PatientPageDTO with the patients and the token for the next page.
      */
     @Operation(
-            summary = "Get all patients",
-            description = "Returns a list of all registered patients",
+            summary = "Get a page of patients",
+            description = "Returns a page of registered patients ordered by ID",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Successfully retrieved list"),
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved page"),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
-    public List<PatientResponseDTO> getPatients() {
-        List<Patient> patients = patientRepository.findAll();
-        return patients.stream()
-                .map(PatientMapper::toDTO).toList();
+    @Transactional(readOnly = true)
+    public PatientPageDTO getPatients(String cursor, Integer size) {
+        int pageSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        // Fetch one extra row to know whether another page exists without a count query
+        Limit limit = Limit.of(pageSize + 1);
+        List<Patient> patients = cursor == null || cursor.isBlank()
+                ? patientRepository.findAllByOrderByIdAsc(limit)
+                : patientRepository.findByIdGreaterThanOrderByIdAsc(PatientCursorCodec.decode(cursor), limit);
+
+        boolean hasNext = patients.size() > pageSize;
+        List<Patient> page = hasNext ? patients.subList(0, pageSize) : patients;
+        String nextCursor = hasNext ? PatientCursorCodec.encode(page.get(pageSize - 1).getId()) : null;
+        return new PatientPageDTO(page.stream().map(PatientMapper::toDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Retrieves the patient changes that follow a position of the change feed.
+     * Created and updated patients are reported with their current state, deleted ones by
+     * their tombstone, so the cost of a sync grows with the number of changes since the last one.
+     * @param since The last position the client has seen, 0 to start from the beginning.
+     * @param size Requested number of changes, or null for the default. Clamped to the configured maximum.
+     * @return A PatientChangesDTO with the changes in feed order and the position to continue from.
+     */
+    @Operation(
+            summary = "Get patient changes",
+            description = "Returns the patients created, updated or deleted after a change feed position",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved changes")
+            }
+    )
+    @Transactional(readOnly = true)
+    public PatientChangesDTO getChanges(long since, Integer size) {
+        int batchSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        Limit limit = Limit.of(batchSize + 1);
+        List<PatientChangeDTO> changes = new ArrayList<>();
+        patientRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(since, limit)
+                .forEach(patient -> changes.add(PatientMapper.toChangeDTO(patient)));
+        patientTombstoneRepository.findByChangeSeqGreaterThanOrderByChangeSeqAsc(since, limit)
+                .forEach(tombstone -> changes.add(PatientMapper.toChangeDTO(tombstone)));
+        changes.sort(Comparator.comparingLong(PatientChangeDTO::getSeq));
+
+        boolean hasMore = changes.size() > batchSize;
+        List<PatientChangeDTO> batch = hasMore ? changes.subList(0, batchSize) : changes;
+        long nextSince = batch.isEmpty() ? since : batch.get(batch.size() - 1).getSeq();
+        return new PatientChangesDTO(List.copyOf(batch), nextSince, hasMore);
+    }
+
+    /**
+     * Retrieves a single patient by ID, served from the patient cache when present.
+     * @param id The UUID of the patient.
+     * @throws PatientNotFoundException if no patient has this ID.
+     * @return PatientResponseDTO with the patient's details.
+     */
+    @Operation(
+            summary = "Get a patient",
+            description = "Returns the patient with the given ID",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully retrieved patient"),
+                    @ApiResponse(responseCode = "404", description = "Patient not found")
+            }
+    )
+    @Cacheable(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+    @Transactional(readOnly = true)
+    public PatientResponseDTO getPatient(UUID id) {
+        return patientRepository.findById(id)
+                .map(PatientMapper::toDTO)
+                .orElseThrow(() -> new PatientNotFoundException("Patient not found with ID" + id));
+    }
+
+    /**
+     * Streams every patient in ID order to the given sink as rows come off the JDBC cursor.
+     * Each entity is detached once mapped so the persistence context does not grow with the table.
+     * @param sink Consumer receiving each patient DTO.
+     */
+    @Transactional(readOnly = true)
+    public void streamPatients(Consumer<PatientResponseDTO> sink) {
+        try (Stream<Patient> patients = patientRepository.streamAllOrderedById()) {
+            patients.forEach(patient -> {
+                sink.accept(PatientMapper.toDTO(patient));
+                entityManager.detach(patient);
+            });
+        }
     }
 
     /**
      * Creates a new patient entity from the provided DTO, saves it, and returns the response DTO.
+     * The billing account and the PATIENT_CREATED event are written to their outboxes in the
+     * same transaction and delivered to billing-service and Kafka in the background.
      * @param patientRequestDTO DTO containing patient details.
      * @throws EmailAlreadyExistsException if the updated email is already in use.
      * @return PatientResponseDTO with the saved patient's details.
@@ -69,23 +219,35 @@ public class PatientService {
                     @ApiResponse(responseCode = "400", description = "Invalid patient data")
             }
     )
+    @Transactional
     public PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
-    if (patientRepository.existsByEmail(patientRequestDTO.getEmail())) {
+    if (emailCheckTimer.record(() -> knownEmailFilter.isTaken(patientRequestDTO.getEmail(),
+            patientRepository::existsByEmail))) {
         throw new EmailAlreadyExistsException("A patient with this email "
         + "Already exists: " + patientRequestDTO.getEmail());
     }
-        Patient newPatient = patientRepository.save(
-            PatientMapper.toModel(patientRequestDTO));
+        Patient newPatient = saveTimer.record(() -> saveAndFlush(PatientMapper.toModel(patientRequestDTO)));
+        knownEmailFilter.add(newPatient.getEmail());
 
-    billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(), newPatient.getName(), newPatient.getEmail());
-    kafkaProducer.sendEvent(newPatient);
+    outboxTimer.record(() -> {
+        BillingOutboxEntry billingEntry = BillingOutboxEntry.pendingFor(newPatient);
+        billingEntry.setTraceParent(traceContexts.currentTraceParent());
+        billingOutboxRepository.save(billingEntry);
+        saveEvent(newPatient, PatientEventType.PATIENT_CREATED);
+    });
     return PatientMapper.toDTO(newPatient);
     }
 
     /**
      * Updates an existing patient's details.
+     * The cached copy is evicted after the commit and a PATIENT_UPDATED event is written to
+     * the outbox, which evicts the copies held by the other instances.
      * @param id The UUID of the patient to update.
      * @param patientRequestDTO The updated patient data.
+     * @param expectedVersion The version the client read, or null to overwrite any version.
+     * @throws PatientNotFoundException if no patient has this ID.
+     * @throws PatientVersionConflictException if the patient is no longer at the expected version.
+     * @throws EmailAlreadyExistsException if the updated email is already in use.
      * @return A DTO containing the updated patient information.
      */
     @Operation(
@@ -94,30 +256,82 @@ public class PatientService {
             responses = {
                     @ApiResponse(responseCode = "200", description = "Successfully updated"),
                     @ApiResponse(responseCode = "404", description = "Patient not found"),
+                    @ApiResponse(responseCode = "409", description = "Patient modified since it was read"),
                     @ApiResponse(responseCode = "400", description = "Invalid update data")
             }
     )
-    public PatientResponseDTO updatePatient(UUID id, PatientRequestDTO patientRequestDTO) {
-        Patient patient = patientRepository.findById(id).orElseThrow(
-                () -> new PatientNotFoundException("Patient not found with ID" + id));
-        if (patientRepository.existsByEmailAndIdNot(patientRequestDTO.getEmail(), id)) {
-            throw new EmailAlreadyExistsException("A patient with this email "
-                    + "Already exists: " + patientRequestDTO.getEmail());
-        }
+    @CacheEvict(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+    @Transactional
+    public PatientResponseDTO updatePatient(UUID id, PatientRequestDTO patientRequestDTO, Long expectedVersion) {
+        return update(id, expectedVersion, patientRequestDTO.getName(), patientRequestDTO.getEmail(),
+                patientRequestDTO.getAddress(), patientRequestDTO.getDateOfBirth());
+    }
+
+    /**
+     * Updates only the fields present in the request, leaving the others unchanged.
+     * @param id The UUID of the patient to update.
+     * @param patientPatchDTO The fields to change.
+     * @param expectedVersion The version the client read, or null to overwrite any version.
+     * @throws PatientNotFoundException if no patient has this ID.
+     * @throws PatientVersionConflictException if the patient is no longer at the expected version.
+     * @throws EmailAlreadyExistsException if the new email is already in use.
+     * @return A DTO containing the updated patient information.
+     */
+    @Operation(
+            summary = "Partially update a patient",
+            description = "Changes the given fields of an existing patient",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Successfully updated"),
+                    @ApiResponse(responseCode = "404", description = "Patient not found"),
+                    @ApiResponse(responseCode = "409", description = "Patient modified since it was read"),
+                    @ApiResponse(responseCode = "400", description = "Invalid update data")
+            }
+    )
+    @CacheEvict(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+    @Transactional
+    public PatientResponseDTO patchPatient(UUID id, PatientPatchDTO patientPatchDTO, Long expectedVersion) {
+        return update(id, expectedVersion, patientPatchDTO.getName(), patientPatchDTO.getEmail(),
+                patientPatchDTO.getAddress(), patientPatchDTO.getDateOfBirth());
+    }
 
-        //Update patient details
-        patient.setName(patientRequestDTO.getName());
-        patient.setAddress(patientRequestDTO.getAddress());
-        patient.setEmail(patientRequestDTO.getEmail());
-        patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
+    /**
+     * Writes the update as one version-checked statement and reads the new row back for the
+     * response and the event. The row is not read first: a missing patient, a stale version and
+     * a duplicate email are told apart only when the statement fails.
+     */
+    private PatientResponseDTO update(UUID id, Long expectedVersion, String name, String email,
+                                      String address, String dateOfBirth) {
+        int updated;
+        try {
+            updated = patientRepository.updateIfVersionMatches(id, expectedVersion, name, email, address,
+                    dateOfBirth == null ? null : LocalDate.parse(dateOfBirth), Instant.now());
+        } catch (DataIntegrityViolationException e) {
+            throw uniqueViolation(e) ? new EmailAlreadyExistsException("A patient with this email "
+                    + "Already exists: " + email) : e;
+        }
+        if (updated == 0) {
+            if (expectedVersion != null && patientRepository.existsById(id)) {
+                throw new PatientVersionConflictException("Patient " + id
+                        + " is no longer at version " + expectedVersion);
+            }
+            throw new PatientNotFoundException("Patient not found with ID" + id);
+        }
 
-        // Save the updated patient entity
-        Patient updatedPatient = patientRepository.save(patient);
+        Patient updatedPatient = patientRepository.findById(id).orElseThrow(
+                () -> new PatientNotFoundException("Patient not found with ID" + id));
+        if (email != null) {
+            // The previous email is not read, so it stays in the filter until the next rebuild
+            knownEmailFilter.add(email);
+        }
+        saveEvent(updatedPatient, PatientEventType.PATIENT_UPDATED);
         return PatientMapper.toDTO(updatedPatient);
     }
 
     /**
      * Deletes a patient from the database by their unique ID.
+     * Like updates, the deletion evicts the cached copy here and, through a PATIENT_DELETED
+     * event, on the other instances. A tombstone reports the deletion on the change feed.
+     * Deleting an unknown ID is a no-op, and so is a retry after a concurrent deletion.
      * @param id The UUID of the patient to be deleted.
      */
     @Operation(
@@ -128,7 +342,74 @@ public class PatientService {
                     @ApiResponse(responseCode = "404", description = "Patient not found")
             }
     )
+    @CacheEvict(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
     public void deletePatient(UUID id) {
-        patientRepository.deleteById(id);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> delete(id));
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                // The row changed or went between the read and the delete: read it again, it is
+                // then either deleted with its current version or already gone
+                if (attempt == DELETE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void delete(UUID id) {
+        patientRepository.findById(id).ifPresent(patient -> {
+            patientRepository.delete(patient);
+            // Lock the row before the event takes its outbox ID, so the ID follows any update
+            // committed in the meantime
+            patientRepository.flush();
+            patientTombstoneRepository.save(PatientTombstone.of(patient));
+            knownEmailFilter.removed(patient.getEmail());
+            saveEvent(patient, PatientEventType.PATIENT_DELETED);
+        });
+    }
+
+    /**
+     * Saves and flushes a patient so a duplicate email surfaces here rather than at commit.
+     * This is the final uniqueness check behind the email filter and the existence queries.
+     * @throws EmailAlreadyExistsException if the email unique constraint is violated.
+     */
+    private Patient saveAndFlush(Patient patient) {
+        try {
+            return patientRepository.saveAndFlush(patient);
+        } catch (DataIntegrityViolationException e) {
+            if (uniqueViolation(e)) {
+                throw new EmailAlreadyExistsException("A patient with this email "
+                        + "Already exists: " + patient.getEmail());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes an event to the outbox with the current trace context, so the relay publishes it
+     * as part of the request's trace.
+     */
+    private void saveEvent(Patient patient, PatientEventType type) {
+        PatientEventOutboxEntry entry = PatientEventMapper.toOutboxEntry(patient, type);
+        entry.setTraceParent(traceContexts.currentTraceParent());
+        patientEventOutboxRepository.save(entry);
+    }
+
+    /**
+     * Tells a unique constraint violation, i.e. a duplicate email, from other integrity errors.
+     */
+    static boolean uniqueViolation(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
+    }
+
+    private static Timer createStageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("patient.create.stage")
+                .description("Time spent in each stage of patient creation, inside its transaction")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,369 @@
+package com.jp.patientservice.service;
+
+import com.jp.patientservice.config.CacheConfig;
+import com.jp.patientservice.dto.PatientChangeDTO;
+import com.jp.patientservice.dto.PatientChangesDTO;
+import com.jp.patientservice.dto.PatientPageDTO;
+import com.jp.patientservice.dto.PatientPatchDTO;
+import com.jp.patientservice.dto.PatientRequestDTO;
+import com.jp.patientservice.dto.PatientResponseDTO;
+import com.jp.patientservice.exception.EmailAlreadyExistsException;
+import com.jp.patientservice.exception.PatientNotFoundException;
+import com.jp.patientservice.exception.PatientVersionConflictException;
+import com.jp.patientservice.grpc.BillingServiceGrpcClient;
+import com.jp.patientservice.mapping.PatientCursorCodec;
+import com.jp.patientservice.mapping.PatientEventMapper;
+import com.jp.patientservice.mapping.PatientMapper;
+import com.jp.patientservice.models.PatientRow;
+import com.jp.patientservice.repository.PatientRowRepository;
+import com.jp.patientservice.tracing.TraceContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import patient.events.PatientEventType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Non-blocking counterpart of {@link PatientService}, active under the reactive profile.
+ * Rows are read and written through R2DBC and the billing account is created with the async
+ * gRPC stub, so a create request holds no thread while it waits on the database or
+ * billing-service.
+ * The billing outbox entry is still written with the patient, so the dispatcher retries
+ * whatever the direct call could not create. Events are written to the event outbox in the
+ * same transaction as the change and published by the relay, as in servlet mode, so they
+ * keep their per-patient order and are not lost if the instance stops after the commit.
+ */
+@Service
+@Profile("reactive")
+public class ReactivePatientService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactivePatientService.class);
+    private static final int DELETE_ATTEMPTS = 3;
+    private final PatientRowRepository patientRowRepository;
+    private final R2dbcEntityTemplate r2dbcEntityTemplate;
+    private final TransactionalOperator transactionalOperator;
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final KnownEmailFilter knownEmailFilter;
+    private final TraceContexts traceContexts;
+    private final Cache patientCache;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final long billingDeadlineMillis;
+
+    public ReactivePatientService(PatientRowRepository patientRowRepository,
+                                  R2dbcEntityTemplate r2dbcEntityTemplate,
+                                  TransactionalOperator transactionalOperator,
+                                  BillingServiceGrpcClient billingServiceGrpcClient,
+                                  KnownEmailFilter knownEmailFilter,
+                                  TraceContexts traceContexts,
+                                  CacheManager cacheManager,
+                                  @Value("${patient.pagination.default-size:50}") int defaultPageSize,
+                                  @Value("${patient.pagination.max-size:500}") int maxPageSize,
+                                  @Value("${billing.service.grpc.deadline-ms:2000}") long billingDeadlineMillis) {
+        this.patientRowRepository = patientRowRepository;
+        this.r2dbcEntityTemplate = r2dbcEntityTemplate;
+        this.transactionalOperator = transactionalOperator;
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.knownEmailFilter = knownEmailFilter;
+        this.traceContexts = traceContexts;
+        this.patientCache = cacheManager.getCache(CacheConfig.PATIENTS_CACHE);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.billingDeadlineMillis = billingDeadlineMillis;
+    }
+
+    /**
+     * Retrieves one page of patients in ID order using keyset pagination.
+     * @see PatientService#getPatients(String, Integer)
+     */
+    public Mono<PatientPageDTO> getPatients(String cursor, Integer size) {
+        int pageSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        Flux<PatientRow> patients = cursor == null || cursor.isBlank()
+                ? patientRowRepository.findFirstPage(pageSize + 1)
+                : Mono.fromSupplier(() -> PatientCursorCodec.decode(cursor))
+                .flatMapMany(after -> patientRowRepository.findPageAfter(after, pageSize + 1));
+
+        return patients.collectList().map(rows -> {
+            boolean hasNext = rows.size() > pageSize;
+            List<PatientRow> page = hasNext ? rows.subList(0, pageSize) : rows;
+            String nextCursor = hasNext ? PatientCursorCodec.encode(page.get(pageSize - 1).getId()) : null;
+            return new PatientPageDTO(page.stream().map(PatientMapper::toDTO).toList(), nextCursor);
+        });
+    }
+
+    /**
+     * Streams every patient in ID order. Rows are fetched as the subscriber requests them,
+     * so a slow client slows the database cursor instead of filling memory.
+     */
+    public Flux<PatientResponseDTO> streamPatients() {
+        return r2dbcEntityTemplate.getDatabaseClient()
+                .sql("SELECT * FROM patient ORDER BY id")
+                .filter(statement -> statement.fetchSize(500))
+                .map((row, metadata) -> r2dbcEntityTemplate.getConverter().read(PatientRow.class, row, metadata))
+                .all()
+                .map(PatientMapper::toDTO);
+    }
+
+    /**
+     * Retrieves the patient changes that follow a position of the change feed.
+     * @see PatientService#getChanges(long, Integer)
+     */
+    public Mono<PatientChangesDTO> getChanges(long since, Integer size) {
+        int batchSize = size == null || size < 1 ? defaultPageSize : Math.min(size, maxPageSize);
+        Flux<PatientChangeDTO> upserts = patientRowRepository.findChangedAfter(since, batchSize + 1)
+                .map(patient -> new PatientChangeDTO(patient.getChangeSeq(), PatientChangeDTO.UPSERT,
+                        patient.getId().toString(), patient.getVersion(), patient.getUpdatedAt().toString(),
+                        PatientMapper.toDTO(patient)));
+        Flux<PatientChangeDTO> deletes = r2dbcEntityTemplate.getDatabaseClient()
+                .sql("SELECT patient_id, version, deleted_at, change_seq FROM patient_tombstone"
+                        + " WHERE change_seq > :since ORDER BY change_seq LIMIT :limit")
+                .bind("since", since)
+                .bind("limit", batchSize + 1)
+                .map(row -> new PatientChangeDTO(row.get("change_seq", Long.class), PatientChangeDTO.DELETE,
+                        row.get("patient_id", UUID.class).toString(), row.get("version", Long.class),
+                        row.get("deleted_at", LocalDateTime.class).toInstant(ZoneOffset.UTC).toString(), null))
+                .all();
+
+        return Flux.concat(upserts, deletes).collectList().map(collected -> {
+            List<PatientChangeDTO> changes = new ArrayList<>(collected);
+            changes.sort(Comparator.comparingLong(PatientChangeDTO::getSeq));
+            boolean hasMore = changes.size() > batchSize;
+            List<PatientChangeDTO> batch = hasMore ? changes.subList(0, batchSize) : changes;
+            long nextSince = batch.isEmpty() ? since : batch.get(batch.size() - 1).getSeq();
+            return new PatientChangesDTO(List.copyOf(batch), nextSince, hasMore);
+        });
+    }
+
+    /**
+     * Retrieves a single patient by ID, served from the patient cache when present.
+     * @throws PatientNotFoundException if no patient has this ID.
+     */
+    public Mono<PatientResponseDTO> getPatient(UUID id) {
+        PatientResponseDTO cached = patientCache.get(id, PatientResponseDTO.class);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return patientRowRepository.findById(id)
+                .map(PatientMapper::toDTO)
+                .doOnNext(patient -> patientCache.put(id, patient))
+                .switchIfEmpty(Mono.error(() -> new PatientNotFoundException("Patient not found with ID" + id)));
+    }
+
+    /**
+     * Creates a new patient with its billing outbox entry and PATIENT_CREATED event in one
+     * transaction, then creates the billing account without blocking.
+     * @throws EmailAlreadyExistsException if the email is already in use.
+     */
+    public Mono<PatientResponseDTO> createPatient(PatientRequestDTO patientRequestDTO) {
+        return Mono.fromSupplier(() -> PatientMapper.toRow(patientRequestDTO))
+                .flatMap(row -> emailTaken(row.getEmail(), patientRowRepository.existsByEmail(row.getEmail()))
+                        .flatMap(taken -> taken ? Mono.error(emailAlreadyExists(row.getEmail()))
+                                : patientRowRepository.save(row)
+                                .flatMap(saved -> insertBillingOutboxEntry(saved)
+                                        .then(insertEvent(saved, PatientEventType.PATIENT_CREATED))
+                                        .thenReturn(saved)))
+                        .as(transactionalOperator::transactional)
+                        .onErrorMap(DuplicateKeyException.class, e -> emailAlreadyExists(row.getEmail())))
+                .doOnNext(saved -> knownEmailFilter.add(saved.getEmail()))
+                .flatMap(saved -> createBillingAccount(saved).thenReturn(PatientMapper.toDTO(saved)));
+    }
+
+    /**
+     * Updates an existing patient's details and writes PATIENT_UPDATED.
+     * @param expectedVersion The version the client read, or null to overwrite any version.
+     * @throws PatientNotFoundException if no patient has this ID.
+     * @throws PatientVersionConflictException if the patient is no longer at the expected version.
+     * @throws EmailAlreadyExistsException if the new email is already in use.
+     */
+    public Mono<PatientResponseDTO> updatePatient(UUID id, PatientRequestDTO patientRequestDTO, Long expectedVersion) {
+        return update(id, expectedVersion, patientRequestDTO.getName(), patientRequestDTO.getEmail(),
+                patientRequestDTO.getAddress(), patientRequestDTO.getDateOfBirth());
+    }
+
+    /**
+     * Updates only the fields present in the request and writes PATIENT_UPDATED.
+     * @param expectedVersion The version the client read, or null to overwrite any version.
+     * @throws PatientNotFoundException if no patient has this ID.
+     * @throws PatientVersionConflictException if the patient is no longer at the expected version.
+     * @throws EmailAlreadyExistsException if the new email is already in use.
+     */
+    public Mono<PatientResponseDTO> patchPatient(UUID id, PatientPatchDTO patientPatchDTO, Long expectedVersion) {
+        return update(id, expectedVersion, patientPatchDTO.getName(), patientPatchDTO.getEmail(),
+                patientPatchDTO.getAddress(), patientPatchDTO.getDateOfBirth());
+    }
+
+    /**
+     * Writes the non-null fields in one version-checked UPDATE and reads the new row back.
+     * As in {@link PatientService}, the unique index is the only email check.
+     */
+    private Mono<PatientResponseDTO> update(UUID id, Long expectedVersion, String name, String email,
+                                            String address, String dateOfBirth) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        if (name != null) {
+            columns.put("name", name);
+        }
+        if (email != null) {
+            columns.put("email", email);
+        }
+        if (address != null) {
+            columns.put("address", address);
+        }
+        if (dateOfBirth != null) {
+            columns.put("date_of_birth", LocalDate.parse(dateOfBirth));
+        }
+        StringBuilder sql = new StringBuilder("UPDATE patient SET ");
+        columns.keySet().forEach(column -> sql.append(column).append(" = :").append(column).append(", "));
+        sql.append("version = version + 1, updated_at = :updatedAt, change_seq = NULL WHERE id = :id");
+        if (expectedVersion != null) {
+            sql.append(" AND version = :expectedVersion");
+        }
+
+        DatabaseClient.GenericExecuteSpec statement = r2dbcEntityTemplate.getDatabaseClient().sql(sql.toString())
+                .bind("id", id)
+                .bind("updatedAt", Instant.now());
+        for (Map.Entry<String, Object> column : columns.entrySet()) {
+            statement = statement.bind(column.getKey(), column.getValue());
+        }
+        if (expectedVersion != null) {
+            statement = statement.bind("expectedVersion", expectedVersion);
+        }
+        return statement.fetch().rowsUpdated()
+                .flatMap(updated -> updated == 0 ? notUpdated(id, expectedVersion) : patientRowRepository.findById(id))
+                .flatMap(saved -> insertEvent(saved, PatientEventType.PATIENT_UPDATED).thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .onErrorMap(DuplicateKeyException.class, e -> emailAlreadyExists(email))
+                .doOnNext(saved -> {
+                    patientCache.evict(id);
+                    if (email != null) {
+                        knownEmailFilter.add(email);
+                    }
+                })
+                .map(PatientMapper::toDTO);
+    }
+
+    private Mono<PatientRow> notUpdated(UUID id, Long expectedVersion) {
+        Mono<Boolean> exists = expectedVersion == null ? Mono.just(false) : patientRowRepository.existsById(id);
+        return exists.flatMap(found -> Mono.error(found
+                ? new PatientVersionConflictException("Patient " + id + " is no longer at version " + expectedVersion)
+                : new PatientNotFoundException("Patient not found with ID" + id)));
+    }
+
+    /**
+     * Deletes a patient, leaves a tombstone for the change feed and writes PATIENT_DELETED.
+     * Deleting an unknown ID is a no-op.
+     */
+    public Mono<Void> deletePatient(UUID id) {
+        return patientRowRepository.findById(id)
+                .flatMap(patient -> patientRowRepository.delete(patient)
+                        .then(insertTombstone(patient))
+                        .then(insertEvent(patient, PatientEventType.PATIENT_DELETED))
+                        .thenReturn(patient))
+                .as(transactionalOperator::transactional)
+                // The row changed or went between the read and the delete: read it again, it is
+                // then either deleted with its current version or already gone
+                .retryWhen(Retry.max(DELETE_ATTEMPTS - 1)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnNext(patient -> {
+                    patientCache.evict(id);
+                    knownEmailFilter.removed(patient.getEmail());
+                })
+                .then();
+    }
+
+    private Mono<Boolean> emailTaken(String email, Mono<Boolean> lookup) {
+        if (!knownEmailFilter.mightBeTaken(email)) {
+            return Mono.just(false);
+        }
+        return lookup.doOnNext(taken -> {
+            if (!taken) {
+                knownEmailFilter.recordFalsePositives(1);
+            }
+        });
+    }
+
+    private Mono<Void> insertBillingOutboxEntry(PatientRow patient) {
+        // Not due until the direct call below has had its chance, so the dispatcher does not race it
+        Instant now = Instant.now();
+        String traceParent = traceContexts.currentTraceParent();
+        DatabaseClient.GenericExecuteSpec insert = r2dbcEntityTemplate.getDatabaseClient()
+                .sql("INSERT INTO billing_outbox (patient_id, name, email, status, attempts, next_attempt_at, created_at,"
+                        + " trace_parent) VALUES (:patientId, :name, :email, 'PENDING', 0, :nextAttemptAt, :createdAt,"
+                        + " :traceParent)")
+                .bind("patientId", patient.getId())
+                .bind("name", patient.getName())
+                .bind("email", patient.getEmail())
+                .bind("nextAttemptAt", now.plusMillis(2 * billingDeadlineMillis))
+                .bind("createdAt", now);
+        return (traceParent == null ? insert.bindNull("traceParent", String.class)
+                : insert.bind("traceParent", traceParent)).then();
+    }
+
+    private Mono<Void> insertTombstone(PatientRow patient) {
+        return r2dbcEntityTemplate.getDatabaseClient()
+                .sql("INSERT INTO patient_tombstone (patient_id, version, deleted_at) VALUES (:patientId, :version, :deletedAt)")
+                .bind("patientId", patient.getId())
+                .bind("version", patient.getVersion())
+                .bind("deletedAt", Instant.now())
+                .then();
+    }
+
+    private Mono<Void> createBillingAccount(PatientRow patient) {
+        return Mono.fromFuture(() -> billingServiceGrpcClient.createBillingAccountAsync(
+                        patient.getId().toString(), patient.getName(), patient.getEmail()))
+                .flatMap(response -> r2dbcEntityTemplate.getDatabaseClient()
+                        .sql("UPDATE billing_outbox SET status = 'SENT', account_id = :accountId,"
+                                + " attempts = attempts + 1 WHERE patient_id = :patientId AND status = 'PENDING'")
+                        .bind("accountId", response.getAccountId())
+                        .bind("patientId", patient.getId())
+                        .then())
+                .onErrorResume(e -> {
+                    log.warn("Billing account for patient {} left to the outbox: {}", patient.getId(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Writes an event to the outbox. Runs after the statement that wrote the patient row, so the
+     * row is locked when the event takes its ID, as in {@link PatientService}.
+     */
+    private Mono<Void> insertEvent(PatientRow patient, PatientEventType eventType) {
+        String traceParent = traceContexts.currentTraceParent();
+        DatabaseClient.GenericExecuteSpec insert = r2dbcEntityTemplate.getDatabaseClient()
+                .sql("INSERT INTO patient_event_outbox (id, patient_id, event_type, payload, created_at, trace_parent)"
+                        + " VALUES (nextval('patient_event_outbox_seq'), :patientId, :eventType, :payload, :createdAt,"
+                        + " :traceParent)")
+                .bind("patientId", patient.getId())
+                .bind("eventType", eventType.name())
+                .bind("payload", PatientEventMapper.toEvent(patient, eventType).toByteArray())
+                .bind("createdAt", Instant.now());
+        return (traceParent == null ? insert.bindNull("traceParent", String.class)
+                : insert.bind("traceParent", traceParent)).then();
+    }
+
+    private EmailAlreadyExistsException emailAlreadyExists(String email) {
+        return new EmailAlreadyExistsException("A patient with this email Already exists: " + email);
+    }
+}
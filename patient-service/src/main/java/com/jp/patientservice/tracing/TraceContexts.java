@@ -0,0 +1,70 @@
+package com.jp.patientservice.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carries trace context across the outboxes, whose rows are delivered by background jobs
+ * long after the request that wrote them has finished.
+ * The context is stored as a W3C traceparent string, the same value sent in HTTP and Kafka
+ * headers, so the job can continue the trace of the request that wrote the row.
+ */
+@Component
+public class TraceContexts {
+
+    /**
+     * Name of the W3C trace context header.
+     */
+    public static final String TRACEPARENT = "traceparent";
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public TraceContexts(Tracer tracer, Propagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    /**
+     * @return The traceparent of the span current on this thread, or null outside of a trace.
+     */
+    public String currentTraceParent() {
+        Span span = tracer.currentSpan();
+        return span == null ? null : traceParentOf(span);
+    }
+
+    /**
+     * @return The trace ID of the span current on this thread, or null outside of a trace.
+     */
+    public String currentTraceId() {
+        Span span = tracer.currentSpan();
+        return span == null ? null : span.context().traceId();
+    }
+
+    /**
+     * @return The traceparent identifying the given span as parent.
+     */
+    public String traceParentOf(Span span) {
+        Map<String, String> carrier = new HashMap<>(2);
+        propagator.inject(span.context(), carrier, Map::put);
+        return carrier.get(TRACEPARENT);
+    }
+
+    /**
+     * Starts a span continuing a stored trace.
+     * @param name The name of the span.
+     * @param kind The kind of the span.
+     * @param traceParent The stored traceparent, or null to start a new trace.
+     * @return The started span, to be ended by the caller.
+     */
+    public Span startSpan(String name, Span.Kind kind, String traceParent) {
+        Span.Builder builder = traceParent == null
+                ? tracer.spanBuilder()
+                : propagator.extract(Map.of(TRACEPARENT, traceParent), Map::get);
+        return builder.name(name).kind(kind).start();
+    }
+}
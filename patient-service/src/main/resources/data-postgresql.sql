@@ -0,0 +1,9 @@
+-- PostgreSQL-only search indexes, run after data.sql when spring.sql.init.platform=postgresql
+
+-- Name search matches a substring of lower(name), which only a trigram index can serve
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_patient_name_trgm ON patient USING gin (lower(name) gin_trgm_ops);
+
+-- Email search matches a prefix of lower(email); text_pattern_ops makes LIKE 'prefix%' use the index
+-- whatever the database collation
+CREATE INDEX IF NOT EXISTS idx_patient_email_prefix ON patient (lower(email) text_pattern_ops);
@@ -6,9 +6,102 @@ CREATE TABLE IF NOT EXISTS patient
     email           VARCHAR(255) UNIQUE NOT NULL,
     address         VARCHAR(255)        NOT NULL,
     date_of_birth   DATE                NOT NULL,
-    registered_date DATE                NOT NULL
+    registered_date DATE                NOT NULL,
+    version         BIGINT    DEFAULT 0 NOT NULL,
+    updated_at      TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    change_seq      BIGINT
     );
 
+-- Versioning and change feed columns for databases created before they existed
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL;
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS change_seq BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_patient_updated_at ON patient (updated_at);
+CREATE INDEX IF NOT EXISTS idx_patient_change_seq ON patient (change_seq);
+
+-- Search (GET /patients/search). The name and email indexes are PostgreSQL-specific, see data-postgresql.sql
+CREATE INDEX IF NOT EXISTS idx_patient_date_of_birth ON patient (date_of_birth);
+
+-- Deleted patients, reported as DELETE entries on the change feed
+CREATE TABLE IF NOT EXISTS patient_tombstone
+(
+    patient_id UUID PRIMARY KEY,
+    version    BIGINT    NOT NULL,
+    deleted_at TIMESTAMP NOT NULL,
+    change_seq BIGINT
+    );
+
+CREATE INDEX IF NOT EXISTS idx_patient_tombstone_change_seq ON patient_tombstone (change_seq);
+
+-- Last change feed position handed out; its row lock serializes the sequencer across instances
+CREATE TABLE IF NOT EXISTS patient_change_sequence
+(
+    id       INTEGER PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+    );
+
+INSERT INTO patient_change_sequence (id, last_seq)
+SELECT 1, 0
+    WHERE NOT EXISTS (SELECT 1 FROM patient_change_sequence WHERE id = 1);
+
+-- Billing accounts pending creation, written in the same transaction as the patient
+CREATE TABLE IF NOT EXISTS billing_outbox
+(
+    patient_id      UUID PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL,
+    email           VARCHAR(255) NOT NULL,
+    status          VARCHAR(16)  NOT NULL,
+    attempts        INTEGER      NOT NULL,
+    next_attempt_at TIMESTAMP    NOT NULL,
+    created_at      TIMESTAMP    NOT NULL,
+    account_id      VARCHAR(255),
+    last_error      VARCHAR(255),
+    trace_parent    VARCHAR(55)
+    );
+
+CREATE INDEX IF NOT EXISTS idx_billing_outbox_status_next_attempt
+    ON billing_outbox (status, next_attempt_at);
+
+-- Lease of the billing reconciliation run, so only one instance runs it at a time
+CREATE TABLE IF NOT EXISTS billing_reconciliation_lock
+(
+    id           INTEGER PRIMARY KEY,
+    locked_until TIMESTAMP NOT NULL,
+    locked_by    VARCHAR(64)
+    );
+
+INSERT INTO billing_reconciliation_lock (id, locked_until)
+SELECT 1, TIMESTAMP '1970-01-01 00:00:00'
+    WHERE NOT EXISTS (SELECT 1 FROM billing_reconciliation_lock WHERE id = 1);
+
+-- Patient events pending publication to Kafka, deleted once acknowledged by the broker.
+-- IDs are not pooled, so one patient's events get increasing IDs on every instance
+CREATE SEQUENCE IF NOT EXISTS patient_event_outbox_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS patient_event_outbox
+(
+    id            BIGINT PRIMARY KEY,
+    patient_id    UUID         NOT NULL,
+    event_type    VARCHAR(64)  NOT NULL,
+    payload       BYTEA        NOT NULL,
+    created_at    TIMESTAMP    NOT NULL,
+    trace_parent  VARCHAR(55),
+    claimed_until TIMESTAMP
+    );
+
+CREATE INDEX IF NOT EXISTS idx_patient_event_outbox_patient ON patient_event_outbox (patient_id, id);
+
+-- Its row lock serializes the relays' claims across instances
+CREATE TABLE IF NOT EXISTS patient_event_relay_claim
+(
+    id INTEGER PRIMARY KEY
+    );
+
+INSERT INTO patient_event_relay_claim (id)
+SELECT 1
+    WHERE NOT EXISTS (SELECT 1 FROM patient_event_relay_claim WHERE id = 1);
+
 -- Insert well-known UUIDs for specific patients
 INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
 SELECT '123e4567-e89b-12d3-a456-426614174000',
@@ -0,0 +1,120 @@
+package com.jp.patientservice.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Same configuration as the service tests, so they share one application context
+@SpringBootTest(properties = {"patient.changes.sequencer.poll-interval-ms=3600000", "grpc.server.port=-1"})
+class PatientControllerTest {
+
+    @Autowired
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void updatesWithTheCurrentETag() throws Exception {
+        String id = create("Before", uniqueEmail());
+
+        mockMvc.perform(put("/patients/" + id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(body("After", uniqueEmail())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.name", equalTo("After")));
+    }
+
+    @Test
+    void rejectsAStaleIfMatchWithConflict() throws Exception {
+        String id = create("Original", uniqueEmail());
+        mockMvc.perform(patch("/patients/" + id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"First writer\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/patients/" + id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(body("Second writer", uniqueEmail())))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.version").exists());
+        mockMvc.perform(get("/patients/" + id))
+                .andExpect(jsonPath("$.name", equalTo("First writer")));
+    }
+
+    @Test
+    void reportsAMissingPatientAsNotFound() throws Exception {
+        String missing = UUID.randomUUID().toString();
+
+        mockMvc.perform(put("/patients/" + missing).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(body("Nobody", uniqueEmail())))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/patients/" + missing)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Nobody\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/patients/" + missing))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchLeavesAbsentFieldsUntouched() throws Exception {
+        String email = uniqueEmail();
+        String id = create("Unchanged", email);
+
+        mockMvc.perform(patch("/patients/" + id)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"address\":\"Elsewhere 2\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.address", equalTo("Elsewhere 2")))
+                .andExpect(jsonPath("$.name", equalTo("Unchanged")))
+                .andExpect(jsonPath("$.email", equalTo(email)))
+                .andExpect(jsonPath("$.dateOfBirth", equalTo("1990-01-01")));
+    }
+
+    @Test
+    void rejectsAnUpdateToAnEmailInUse() throws Exception {
+        String taken = uniqueEmail();
+        create("Owner", taken);
+        String id = create("Other", uniqueEmail());
+
+        mockMvc.perform(patch("/patients/" + id)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"email\":\"" + taken + "\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.email").exists());
+    }
+
+    private String create(String name, String email) throws Exception {
+        String response = mockMvc.perform(post("/patients")
+                        .contentType(MediaType.APPLICATION_JSON).content(body(name, email)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.id");
+    }
+
+    private static String body(String name, String email) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\",\"address\":\"Main Street 1\","
+                + "\"dateOfBirth\":\"1990-01-01\",\"registeredDate\":\"2024-01-01\"}";
+    }
+
+    private static String uniqueEmail() {
+        return UUID.randomUUID() + "@example.com";
+    }
+}
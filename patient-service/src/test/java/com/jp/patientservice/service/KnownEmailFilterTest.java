@@ -0,0 +1,103 @@
+package com.jp.patientservice.service;
+
+import com.jp.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KnownEmailFilterTest {
+
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KnownEmailFilter filter = new KnownEmailFilter(patientRepository,
+            mock(PlatformTransactionManager.class), meterRegistry, 10_000, 0.01);
+
+    @Test
+    void queriesEveryCheckBeforeWarmUp() {
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertThat(filter.isTaken("new@example.com", email -> lookups.incrementAndGet() < 0)).isFalse();
+        assertThat(filter.mightBeTaken("other@example.com")).isTrue();
+        assertThat(filter.possiblyTaken(List.of("a@example.com", "b@example.com"))).hasSize(2);
+        assertThat(lookups).hasValue(1);
+        assertThat(checks("definite_miss")).isZero();
+        assertThat(checks("possible_hit")).isEqualTo(4);
+    }
+
+    @Test
+    void keepsQueryingWhileTheFirstRebuildFails() {
+        when(patientRepository.streamAllEmails()).thenThrow(new IllegalStateException("database down"));
+
+        filter.rebuild();
+
+        assertThat(filter.mightBeTaken("new@example.com")).isTrue();
+    }
+
+    @Test
+    void hasNoFalseNegativesAfterRebuild() {
+        List<String> emails = emails("stored", 5_000);
+        when(patientRepository.streamAllEmails()).thenAnswer(invocation -> emails.stream());
+
+        filter.rebuild();
+
+        assertThat(emails).allMatch(filter::mightBeTaken);
+        assertThat(filter.possiblyTaken(emails)).containsExactlyElementsOf(emails);
+    }
+
+    @Test
+    void hasNoFalseNegativesAfterAdd() {
+        when(patientRepository.streamAllEmails()).thenAnswer(invocation -> Stream.empty());
+        filter.rebuild();
+        List<String> emails = emails("added", 5_000);
+
+        emails.forEach(filter::add);
+
+        AtomicInteger lookups = new AtomicInteger();
+        assertThat(emails).allMatch(email -> filter.isTaken(email, e -> lookups.incrementAndGet() > 0));
+        assertThat(lookups).hasValue(emails.size());
+    }
+
+    @Test
+    void keepsEmailsAddedDuringARebuild() {
+        List<String> added = emails("concurrent", 100);
+        // Emails registered while the table is read are not in the rows the rebuild sees
+        when(patientRepository.streamAllEmails()).thenAnswer(invocation -> Stream.of("stored@example.com")
+                .peek(email -> added.forEach(filter::add)));
+
+        filter.rebuild();
+
+        assertThat(filter.mightBeTaken("stored@example.com")).isTrue();
+        assertThat(added).allMatch(filter::mightBeTaken);
+    }
+
+    @Test
+    void answersMostNewEmailsWithoutAQuery() {
+        List<String> stored = emails("stored", 5_000);
+        when(patientRepository.streamAllEmails()).thenAnswer(invocation -> stored.stream());
+        filter.rebuild();
+
+        long possibleHits = emails("new", 10_000).stream().filter(filter::mightBeTaken).count();
+
+        // Sized for 1% at 10k emails, so half full it stays well below that
+        assertThat(possibleHits).isLessThan(100);
+        assertThat(checks("definite_miss")).isEqualTo(10_000 - possibleHits);
+    }
+
+    private double checks(String result) {
+        return meterRegistry.get("patient.email.filter.checks").tag("result", result).counter().count();
+    }
+
+    private static List<String> emails(String prefix, int count) {
+        return new ArrayList<>(IntStream.range(0, count).mapToObj(i -> prefix + i + "@example.com").toList());
+    }
+}
@@ -0,0 +1,110 @@
+package com.jp.patientservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.jp.patientservice.service.PatientServiceTest.request;
+import static com.jp.patientservice.service.PatientServiceTest.uniqueEmail;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The scheduled run only happens at startup, so each test sequences when it chooses.
+// Without the gRPC server, this context can run next to the default one.
+@SpringBootTest(properties = {"patient.changes.sequencer.poll-interval-ms=3600000", "grpc.server.port=-1"})
+class PatientChangeSequencerTest {
+
+    @Autowired
+    private PatientChangeSequencer sequencer;
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void sequenceEarlierChanges() {
+        sequencer.sequencePending();
+    }
+
+    @Test
+    void leavesNewChangesUnsequencedUntilItRuns() {
+        UUID id = create("Pending");
+
+        assertThat(patientSeq(id)).isNull();
+        sequencer.sequencePending();
+        assertThat(patientSeq(id)).isEqualTo(lastSeq());
+    }
+
+    @Test
+    void assignsPositionsInCommitOrder() {
+        long before = lastSeq();
+        UUID first = create("First");
+        UUID second = create("Second");
+
+        sequencer.sequencePending();
+
+        assertThat(patientSeq(first)).isEqualTo(before + 1);
+        assertThat(patientSeq(second)).isEqualTo(before + 2);
+        assertThat(lastSeq()).isEqualTo(before + 2);
+    }
+
+    @Test
+    void movesAnUpdatedPatientToTheEndOfTheFeed() {
+        UUID updated = create("Updated");
+        UUID other = create("Other");
+        sequencer.sequencePending();
+
+        patientService.updatePatient(updated, request("Renamed", uniqueEmail()), null);
+        sequencer.sequencePending();
+
+        assertThat(patientSeq(updated)).isGreaterThan(patientSeq(other)).isEqualTo(lastSeq());
+    }
+
+    @Test
+    void sequencesTombstonesAfterTheChangesBeforeThem() {
+        UUID deleted = create("Deleted");
+        sequencer.sequencePending();
+        long created = patientSeq(deleted);
+
+        patientService.deletePatient(deleted);
+        sequencer.sequencePending();
+
+        Long tombstoneSeq = jdbcTemplate.queryForObject(
+                "SELECT change_seq FROM patient_tombstone WHERE patient_id = ?", Long.class, deleted);
+        assertThat(tombstoneSeq).isGreaterThan(created).isEqualTo(lastSeq());
+    }
+
+    @Test
+    void sequencesEveryPendingChangeInBatches() {
+        long before = lastSeq();
+        List<UUID> ids = IntStream.range(0, 5).mapToObj(i -> create("Batched " + i)).toList();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        new PatientChangeSequencer(jdbcTemplate, transactionTemplate, meterRegistry, 2).sequencePending();
+
+        assertThat(ids).extracting(this::patientSeq)
+                .containsExactly(before + 1, before + 2, before + 3, before + 4, before + 5);
+        assertThat(meterRegistry.get("patient.changes.sequenced").counter().count()).isEqualTo(5);
+    }
+
+    private UUID create(String name) {
+        return UUID.fromString(patientService.createPatient(request(name, uniqueEmail())).getId());
+    }
+
+    private Long patientSeq(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT change_seq FROM patient WHERE id = ?", Long.class, id);
+    }
+
+    private long lastSeq() {
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM patient_change_sequence WHERE id = 1", Long.class);
+    }
+}
@@ -0,0 +1,266 @@
+package com.jp.patientservice.service;
+
+import com.jp.patientservice.dto.PatientChangeDTO;
+import com.jp.patientservice.dto.PatientChangesDTO;
+import com.jp.patientservice.dto.PatientPatchDTO;
+import com.jp.patientservice.dto.PatientRequestDTO;
+import com.jp.patientservice.dto.PatientResponseDTO;
+import com.jp.patientservice.exception.EmailAlreadyExistsException;
+import com.jp.patientservice.exception.PatientNotFoundException;
+import com.jp.patientservice.exception.PatientVersionConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// The scheduled run only happens at startup, so the change feed tests sequence when they choose.
+// Without the gRPC server, this context can run next to the default one.
+@SpringBootTest(properties = {"patient.changes.sequencer.poll-interval-ms=3600000", "grpc.server.port=-1"})
+class PatientServiceTest {
+
+    @Autowired
+    private PatientService patientService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private PatientChangeSequencer sequencer;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void mapsADuplicateMissedByTheEmailFilterToEmailAlreadyExists() {
+        String email = uniqueEmail();
+        // Written behind the filter's back, as by another instance since the last rebuild
+        jdbcTemplate.update("INSERT INTO patient (id, name, email, address, date_of_birth, registered_date,"
+                + " version, updated_at) VALUES (?, 'Existing', ?, 'Somewhere 1', DATE '1990-01-01',"
+                + " DATE '2024-01-01', 0, CURRENT_TIMESTAMP)",
+                UUID.randomUUID(), email);
+        double definiteMisses = definiteMisses();
+
+        assertThatThrownBy(() -> patientService.createPatient(request("Duplicate", email)))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        assertThat(definiteMisses()).isEqualTo(definiteMisses + 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM patient WHERE email = ?", Long.class, email))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAnEmailRegisteredThroughTheService() {
+        String email = uniqueEmail();
+        patientService.createPatient(request("First", email));
+
+        assertThatThrownBy(() -> patientService.createPatient(request("Second", email)))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+    }
+
+    @Test
+    void updatesThePatientAtTheExpectedVersion() {
+        PatientResponseDTO created = patientService.createPatient(request("Before", uniqueEmail()));
+        UUID id = UUID.fromString(created.getId());
+
+        PatientResponseDTO updated = patientService.updatePatient(id, request("After", uniqueEmail()),
+                created.getVersion());
+
+        assertThat(updated.getName()).isEqualTo("After");
+        assertThat(updated.getVersion()).isEqualTo(created.getVersion() + 1);
+        assertThat(patientService.getPatient(id).getName()).isEqualTo("After");
+    }
+
+    @Test
+    void rejectsAnUpdateOfAStaleVersion() {
+        PatientResponseDTO created = patientService.createPatient(request("Original", uniqueEmail()));
+        UUID id = UUID.fromString(created.getId());
+        patientService.updatePatient(id, request("First writer", uniqueEmail()), created.getVersion());
+
+        assertThatThrownBy(() -> patientService.updatePatient(id, request("Second writer", uniqueEmail()),
+                created.getVersion())).isInstanceOf(PatientVersionConflictException.class);
+        assertThatThrownBy(() -> patientService.patchPatient(id, patch(null, null, "Elsewhere 2"),
+                created.getVersion())).isInstanceOf(PatientVersionConflictException.class);
+        PatientResponseDTO current = patientService.getPatient(id);
+        assertThat(current.getName()).isEqualTo("First writer");
+        assertThat(current.getVersion()).isEqualTo(created.getVersion() + 1);
+    }
+
+    @Test
+    void overwritesAnyVersionWithoutAnExpectedOne() {
+        PatientResponseDTO created = patientService.createPatient(request("Original", uniqueEmail()));
+        UUID id = UUID.fromString(created.getId());
+        patientService.updatePatient(id, request("First writer", uniqueEmail()), null);
+
+        assertThat(patientService.updatePatient(id, request("Second writer", uniqueEmail()), null).getVersion())
+                .isEqualTo(created.getVersion() + 2);
+    }
+
+    @Test
+    void reportsAnUpdateOfAMissingPatientAsNotFound() {
+        UUID missing = UUID.randomUUID();
+
+        assertThatThrownBy(() -> patientService.updatePatient(missing, request("Nobody", uniqueEmail()), null))
+                .isInstanceOf(PatientNotFoundException.class);
+        // A missing patient is not reported as a version conflict, whatever version the client names
+        assertThatThrownBy(() -> patientService.updatePatient(missing, request("Nobody", uniqueEmail()), 3L))
+                .isInstanceOf(PatientNotFoundException.class);
+        assertThatThrownBy(() -> patientService.patchPatient(missing, patch("Nobody", null, null), 3L))
+                .isInstanceOf(PatientNotFoundException.class);
+    }
+
+    @Test
+    void patchLeavesAbsentFieldsUntouched() {
+        String email = uniqueEmail();
+        PatientResponseDTO created = patientService.createPatient(request("Unchanged", email));
+        UUID id = UUID.fromString(created.getId());
+
+        PatientResponseDTO patched = patientService.patchPatient(id, patch(null, null, "Elsewhere 2"),
+                created.getVersion());
+
+        assertThat(patched.getAddress()).isEqualTo("Elsewhere 2");
+        assertThat(patched.getName()).isEqualTo("Unchanged");
+        assertThat(patched.getEmail()).isEqualTo(email);
+        assertThat(patched.getDateOfBirth()).isEqualTo(created.getDateOfBirth());
+        assertThat(patched.getVersion()).isEqualTo(created.getVersion() + 1);
+    }
+
+    @Test
+    void rejectsAnUpdateToAnEmailInUse() {
+        String taken = uniqueEmail();
+        patientService.createPatient(request("Owner", taken));
+        String email = uniqueEmail();
+        UUID id = UUID.fromString(patientService.createPatient(request("Other", email)).getId());
+
+        assertThatThrownBy(() -> patientService.updatePatient(id, request("Other", taken), null))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        assertThatThrownBy(() -> patientService.patchPatient(id, patch(null, taken, null), null))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        assertThat(patientService.getPatient(id).getEmail()).isEqualTo(email);
+    }
+
+    @Test
+    void mergesPatientsAndTombstonesInFeedOrder() {
+        sequencer.sequencePending();
+        long since = lastSeq();
+        String kept = create("Kept");
+        String deleted = create("Deleted");
+        String updated = create("Updated");
+        sequencer.sequencePending();
+        patientService.deletePatient(UUID.fromString(deleted));
+        sequencer.sequencePending();
+        patientService.updatePatient(UUID.fromString(updated), request("Renamed", uniqueEmail()), null);
+        sequencer.sequencePending();
+
+        PatientChangesDTO changes = patientService.getChanges(since, null);
+
+        assertThat(changes.getChanges()).extracting(PatientChangeDTO::getId, PatientChangeDTO::getType)
+                .containsExactly(tuple(kept, PatientChangeDTO.UPSERT), tuple(deleted, PatientChangeDTO.DELETE),
+                        tuple(updated, PatientChangeDTO.UPSERT));
+        assertThat(changes.getChanges()).extracting(PatientChangeDTO::getSeq).isSorted();
+        assertThat(changes.getChanges().get(1).getPatient()).isNull();
+        assertThat(changes.getChanges().get(2).getPatient().getName()).isEqualTo("Renamed");
+        assertThat(changes.getNextSince()).isEqualTo(lastSeq());
+        assertThat(changes.isHasMore()).isFalse();
+    }
+
+    @Test
+    void continuesTheFeedFromTheLastPositionOfABatch() {
+        sequencer.sequencePending();
+        long since = lastSeq();
+        String first = create("First");
+        String deleted = create("Deleted");
+        String last = create("Last");
+        sequencer.sequencePending();
+        patientService.deletePatient(UUID.fromString(deleted));
+        sequencer.sequencePending();
+
+        PatientChangesDTO batch = patientService.getChanges(since, 2);
+        PatientChangesDTO rest = patientService.getChanges(batch.getNextSince(), 2);
+
+        assertThat(batch.getChanges()).extracting(PatientChangeDTO::getId).containsExactly(first, last);
+        assertThat(batch.isHasMore()).isTrue();
+        assertThat(rest.getChanges()).extracting(PatientChangeDTO::getId, PatientChangeDTO::getType)
+                .containsExactly(tuple(deleted, PatientChangeDTO.DELETE));
+        assertThat(rest.isHasMore()).isFalse();
+        assertThat(patientService.getChanges(rest.getNextSince(), 2).getChanges()).isEmpty();
+    }
+
+    @Test
+    void deletesAPatientUpdatedBetweenTheReadAndTheDelete() throws Exception {
+        UUID id = UUID.fromString(create("Raced"));
+        CountDownLatch updating = new CountDownLatch(1);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> update = writer.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("UPDATE patient SET name = 'Renamed', version = version + 1,"
+                        + " change_seq = NULL WHERE id = ?", id);
+                updating.countDown();
+                // Hold the row lock while the delete reads the previous version
+                sleep(500);
+            }));
+            updating.await();
+
+            patientService.deletePatient(id);
+
+            update.get();
+        } finally {
+            writer.shutdown();
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM patient WHERE id = ?", Long.class, id))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM patient_tombstone WHERE patient_id = ?",
+                Long.class, id)).isEqualTo(1);
+    }
+
+    private String create(String name) {
+        return patientService.createPatient(request(name, uniqueEmail())).getId();
+    }
+
+    private long lastSeq() {
+        return jdbcTemplate.queryForObject("SELECT last_seq FROM patient_change_sequence WHERE id = 1", Long.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double definiteMisses() {
+        return meterRegistry.get("patient.email.filter.checks").tag("result", "definite_miss").counter().count();
+    }
+
+    static String uniqueEmail() {
+        return UUID.randomUUID() + "@example.com";
+    }
+
+    private static PatientPatchDTO patch(String name, String email, String address) {
+        PatientPatchDTO patch = new PatientPatchDTO();
+        patch.setName(name);
+        patch.setEmail(email);
+        patch.setAddress(address);
+        return patch;
+    }
+
+    static PatientRequestDTO request(String name, String email) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName(name);
+        request.setEmail(email);
+        request.setAddress("Main Street 1");
+        request.setDateOfBirth("1990-01-01");
+        request.setRegisteredDate("2024-01-01");
+        return request;
+    }
+}
@@ -0,0 +1,13 @@
+package com.jp.tracecollector;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class TraceCollectorApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(TraceCollectorApplication.class, args);
+    }
+
+}
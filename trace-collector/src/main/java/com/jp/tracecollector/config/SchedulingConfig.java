@@ -0,0 +1,12 @@
+package com.jp.tracecollector.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the periodic sampling decisions.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
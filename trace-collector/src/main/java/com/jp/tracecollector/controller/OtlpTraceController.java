@@ -0,0 +1,39 @@
+package com.jp.tracecollector.controller;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.jp.tracecollector.sampling.TailSampler;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceRequest;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * OTLP/HTTP trace receiver, the endpoint the services' span exporters send to.
+ * Only the binary protobuf encoding is accepted, which is what the OpenTelemetry Java exporter sends.
+ */
+@RestController
+public class OtlpTraceController {
+
+    private static final String PROTOBUF = "application/x-protobuf";
+    private final TailSampler tailSampler;
+
+    public OtlpTraceController(TailSampler tailSampler) {
+        this.tailSampler = tailSampler;
+    }
+
+    @PostMapping(path = "/v1/traces", consumes = PROTOBUF, produces = PROTOBUF)
+    public byte[] export(@RequestBody byte[] body) throws InvalidProtocolBufferException {
+        tailSampler.accept(ExportTraceServiceRequest.parseFrom(body));
+        return ExportTraceServiceResponse.getDefaultInstance().toByteArray();
+    }
+
+    @ExceptionHandler(InvalidProtocolBufferException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public void handleInvalidRequest() {
+        // The exporter drops the batch; there is nothing useful to return in OTLP terms
+    }
+}
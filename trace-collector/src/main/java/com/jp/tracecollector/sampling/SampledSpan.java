@@ -0,0 +1,76 @@
+package com.jp.tracecollector.sampling;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.opentelemetry.proto.common.v1.AnyValue;
+import io.opentelemetry.proto.common.v1.KeyValue;
+import io.opentelemetry.proto.trace.v1.Span;
+import io.opentelemetry.proto.trace.v1.Status;
+
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One span of a sampled trace, as written to the output file.
+ * @param service Name of the service that recorded the span.
+ * @param name Name of the span.
+ * @param kind Kind of the span, e.g. SERVER or PRODUCER.
+ * @param spanId ID of the span, in hex.
+ * @param parentSpanId ID of the parent span, in hex, or null for a root span.
+ * @param startEpochNanos Start of the span, in nanoseconds since the epoch.
+ * @param endEpochNanos End of the span, in nanoseconds since the epoch.
+ * @param error Whether the span ended with an error status.
+ * @param attributes Attributes of the span, rendered as strings.
+ */
+public record SampledSpan(String service, String name, String kind, String spanId, String parentSpanId,
+                          long startEpochNanos, long endEpochNanos, boolean error,
+                          Map<String, String> attributes) {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Converts an OTLP span.
+     * @param service Name of the service that recorded the span.
+     * @param span The span as received.
+     */
+    static SampledSpan of(String service, Span span) {
+        return new SampledSpan(service, span.getName(), span.getKind().name().replace("SPAN_KIND_", ""),
+                HEX.formatHex(span.getSpanId().toByteArray()),
+                span.getParentSpanId().isEmpty() ? null : HEX.formatHex(span.getParentSpanId().toByteArray()),
+                span.getStartTimeUnixNano(), span.getEndTimeUnixNano(),
+                span.getStatus().getCode() == Status.StatusCode.STATUS_CODE_ERROR,
+                attributes(span.getAttributesList()));
+    }
+
+    static String traceId(Span span) {
+        return HEX.formatHex(span.getTraceId().toByteArray());
+    }
+
+    long durationNanos() {
+        return endEpochNanos - startEpochNanos;
+    }
+
+    @JsonProperty("durationMs")
+    public double durationMs() {
+        return durationNanos() / 1e6;
+    }
+
+    static String stringValue(AnyValue value) {
+        return switch (value.getValueCase()) {
+            case STRING_VALUE -> value.getStringValue();
+            case BOOL_VALUE -> String.valueOf(value.getBoolValue());
+            case INT_VALUE -> String.valueOf(value.getIntValue());
+            case DOUBLE_VALUE -> String.valueOf(value.getDoubleValue());
+            default -> value.toString().strip();
+        };
+    }
+
+    private static Map<String, String> attributes(List<KeyValue> keyValues) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (KeyValue keyValue : keyValues) {
+            attributes.put(keyValue.getKey(), stringValue(keyValue.getValue()));
+        }
+        return attributes;
+    }
+}
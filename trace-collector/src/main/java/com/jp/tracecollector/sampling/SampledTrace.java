@@ -0,0 +1,13 @@
+package com.jp.tracecollector.sampling;
+
+import java.util.List;
+
+/**
+ * A trace kept by the tail sampler, written as one line of the output file.
+ * @param traceId ID of the trace, in hex.
+ * @param reason The policy that kept the trace: error, latency or baseline.
+ * @param durationMs Time from the start of the first span to the end of the last one.
+ * @param spans The spans of the trace, ordered by start time.
+ */
+public record SampledTrace(String traceId, String reason, double durationMs, List<SampledSpan> spans) {
+}
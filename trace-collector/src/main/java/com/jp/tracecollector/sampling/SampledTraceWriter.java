@@ -0,0 +1,55 @@
+package com.jp.tracecollector.sampling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends sampled traces to a local file, one JSON document per line, so they can be
+ * searched with jq or grep without a tracing backend.
+ */
+@Component
+public class SampledTraceWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SampledTraceWriter.class);
+    private final ObjectMapper objectMapper;
+    private final Path outputPath;
+
+    public SampledTraceWriter(ObjectMapper objectMapper,
+                              @Value("${trace-collector.output.path:data/sampled-traces.jsonl}") String outputPath) {
+        this.objectMapper = objectMapper;
+        this.outputPath = Path.of(outputPath);
+    }
+
+    /**
+     * Appends the traces of one sampling round.
+     * @param traces The traces to write.
+     */
+    public synchronized void write(List<SampledTrace> traces) {
+        if (traces.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(outputPath.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (SampledTrace trace : traces) {
+                    writer.write(objectMapper.writeValueAsString(trace));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not write {} sampled traces to {}: {}", traces.size(), outputPath, e.getMessage());
+        }
+    }
+}
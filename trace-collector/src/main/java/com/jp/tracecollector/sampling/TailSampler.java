@@ -0,0 +1,193 @@
+package com.jp.tracecollector.sampling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceRequest;
+import io.opentelemetry.proto.common.v1.KeyValue;
+import io.opentelemetry.proto.resource.v1.Resource;
+import io.opentelemetry.proto.trace.v1.ResourceSpans;
+import io.opentelemetry.proto.trace.v1.ScopeSpans;
+import io.opentelemetry.proto.trace.v1.Span;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tail-based sampler: spans are held per trace until the trace is complete, then the whole
+ * trace is kept or dropped. A trace counts as complete once no span of it has arrived for the
+ * decision wait, which has to cover the asynchronous hops (outbox relays, Kafka consumers).
+ * A trace is kept when one of its spans failed, when it lasted at least the latency threshold
+ * from its first span's start to its last span's end, or for a baseline fraction of the other
+ * traces chosen by trace ID. Spans arriving after their trace was decided form a new fragment
+ * that is decided on its own.
+ */
+@Service
+public class TailSampler {
+
+    private static final int TRACE_ID_BYTES = 16;
+
+    private final Map<String, List<SampledSpan>> pendingSpans = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSpanAt = new ConcurrentHashMap<>();
+    private final SampledTraceWriter writer;
+    private final long decisionWaitNanos;
+    private final long latencyThresholdNanos;
+    private final double baselineRatio;
+    private final int maxPendingTraces;
+    private final Counter receivedSpans;
+    private final Counter rejectedSpans;
+    private final Counter invalidSpans;
+    private final Counter keptTraces;
+    private final Counter droppedTraces;
+
+    public TailSampler(SampledTraceWriter writer,
+                       MeterRegistry meterRegistry,
+                       @Value("${trace-collector.decision-wait-ms:5000}") long decisionWaitMillis,
+                       @Value("${trace-collector.latency-threshold-ms:500}") long latencyThresholdMillis,
+                       @Value("${trace-collector.baseline-ratio:0.01}") double baselineRatio,
+                       @Value("${trace-collector.max-pending-traces:100000}") int maxPendingTraces) {
+        this.writer = writer;
+        this.decisionWaitNanos = TimeUnit.MILLISECONDS.toNanos(decisionWaitMillis);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.baselineRatio = baselineRatio;
+        this.maxPendingTraces = maxPendingTraces;
+        this.receivedSpans = meterRegistry.counter("trace.collector.spans", "result", "accepted");
+        this.rejectedSpans = meterRegistry.counter("trace.collector.spans", "result", "rejected");
+        this.invalidSpans = meterRegistry.counter("trace.collector.spans", "result", "invalid");
+        this.keptTraces = meterRegistry.counter("trace.collector.traces", "decision", "kept");
+        this.droppedTraces = meterRegistry.counter("trace.collector.traces", "decision", "dropped");
+        Gauge.builder("trace.collector.pending", pendingSpans, Map::size)
+                .description("Traces waiting for a sampling decision")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers the spans of an export request until their traces are decided.
+     * Spans of new traces are rejected while max-pending-traces traces are waiting, so a burst
+     * cannot exhaust memory; spans of traces already pending are always accepted. Spans without
+     * a valid trace ID (16 bytes, not all zero) are dropped.
+     * @param request The export request sent by a service.
+     */
+    public void accept(ExportTraceServiceRequest request) {
+        long now = System.nanoTime();
+        for (ResourceSpans resourceSpans : request.getResourceSpansList()) {
+            String service = serviceName(resourceSpans.getResource());
+            for (ScopeSpans scopeSpans : resourceSpans.getScopeSpansList()) {
+                for (Span span : scopeSpans.getSpansList()) {
+                    if (!hasValidTraceId(span)) {
+                        invalidSpans.increment();
+                        continue;
+                    }
+                    add(SampledSpan.traceId(span), SampledSpan.of(service, span), now);
+                }
+            }
+        }
+    }
+
+    private static boolean hasValidTraceId(Span span) {
+        if (span.getTraceId().size() != TRACE_ID_BYTES) {
+            return false;
+        }
+        for (int i = 0; i < TRACE_ID_BYTES; i++) {
+            if (span.getTraceId().byteAt(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String traceId, SampledSpan span, long now) {
+        if (!pendingSpans.containsKey(traceId) && pendingSpans.size() >= maxPendingTraces) {
+            rejectedSpans.increment();
+            return;
+        }
+        pendingSpans.compute(traceId, (id, spans) -> {
+            List<SampledSpan> trace = spans == null ? new ArrayList<>() : spans;
+            trace.add(span);
+            lastSpanAt.put(id, now);
+            return trace;
+        });
+        receivedSpans.increment();
+    }
+
+    /**
+     * Decides every trace that has been quiet for the decision wait and writes the kept ones.
+     */
+    @Scheduled(fixedDelayString = "${trace-collector.decision-interval-ms:1000}")
+    public void decide() {
+        long now = System.nanoTime();
+        List<SampledTrace> kept = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> quiet = lastSpanAt.entrySet().iterator();
+        while (quiet.hasNext()) {
+            Map.Entry<String, Long> entry = quiet.next();
+            if (now - entry.getValue() < decisionWaitNanos) {
+                continue;
+            }
+            String traceId = entry.getKey();
+            List<SampledSpan> spans = new ArrayList<>();
+            // Removed under the map's lock for this trace, so no span is added to a decided trace
+            pendingSpans.computeIfPresent(traceId, (id, pending) -> {
+                if (now - lastSpanAt.get(id) < decisionWaitNanos) {
+                    return pending;
+                }
+                quiet.remove();
+                spans.addAll(pending);
+                return null;
+            });
+            if (!spans.isEmpty()) {
+                SampledTrace trace = decide(traceId, spans);
+                if (trace == null) {
+                    droppedTraces.increment();
+                } else {
+                    kept.add(trace);
+                    keptTraces.increment();
+                }
+            }
+        }
+        writer.write(kept);
+    }
+
+    private SampledTrace decide(String traceId, List<SampledSpan> spans) {
+        spans.sort(Comparator.comparingLong(SampledSpan::startEpochNanos));
+        long start = spans.get(0).startEpochNanos();
+        long end = spans.stream().mapToLong(SampledSpan::endEpochNanos).max().orElse(start);
+        String reason;
+        if (spans.stream().anyMatch(SampledSpan::error)) {
+            reason = "error";
+        } else if (end - start >= latencyThresholdNanos) {
+            reason = "latency";
+        } else if (inBaseline(traceId)) {
+            reason = "baseline";
+        } else {
+            return null;
+        }
+        return new SampledTrace(traceId, reason, (end - start) / 1e6, spans);
+    }
+
+    /**
+     * Picks the baseline from the random low half of the trace ID, so the choice is the same
+     * for every fragment of a trace and for any other collector applying the same ratio.
+     * Trace IDs are validated on arrival, so this is always 16 hex digits.
+     */
+    private boolean inBaseline(String traceId) {
+        long random = Long.parseUnsignedLong(traceId.substring(16), 16);
+        return (random >>> 11) * 0x1.0p-53 < baselineRatio;
+    }
+
+    private static String serviceName(Resource resource) {
+        for (KeyValue attribute : resource.getAttributesList()) {
+            if (attribute.getKey().equals("service.name")) {
+                return SampledSpan.stringValue(attribute.getValue());
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,13 @@
+package com.jp.tracecollector;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class TraceCollectorApplicationTests {
+
+    @Test
+    void contextLoads() {
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.jp.tracecollector.sampling;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.proto.collector.trace.v1.ExportTraceServiceRequest;
+import io.opentelemetry.proto.common.v1.AnyValue;
+import io.opentelemetry.proto.common.v1.KeyValue;
+import io.opentelemetry.proto.resource.v1.Resource;
+import io.opentelemetry.proto.trace.v1.ResourceSpans;
+import io.opentelemetry.proto.trace.v1.ScopeSpans;
+import io.opentelemetry.proto.trace.v1.Span;
+import io.opentelemetry.proto.trace.v1.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailSamplerTest {
+
+    private static final long MILLIS = 1_000_000L;
+    // Low half all zero: inside any baseline ratio above zero
+    private static final String LOW_TRACE_ID = "0af7651916cd43dd0000000000000000";
+    // Low half all ones: outside any baseline ratio below one
+    private static final String HIGH_TRACE_ID = "0af7651916cd43ddffffffffffffffff";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<SampledTrace> written = new ArrayList<>();
+    private final SampledTraceWriter writer = new SampledTraceWriter(new ObjectMapper(), "unused.jsonl") {
+        @Override
+        public synchronized void write(List<SampledTrace> traces) {
+            written.addAll(traces);
+        }
+    };
+
+    @Test
+    void keepsTracesWithAnError() {
+        TailSampler sampler = sampler(0.0, 100);
+        sampler.accept(request(span(HIGH_TRACE_ID, 0, 10, false), span(HIGH_TRACE_ID, 2, 5, true)));
+
+        sampler.decide();
+
+        assertThat(written).singleElement().satisfies(trace -> {
+            assertThat(trace.traceId()).isEqualTo(HIGH_TRACE_ID);
+            assertThat(trace.reason()).isEqualTo("error");
+            assertThat(trace.spans()).hasSize(2);
+        });
+    }
+
+    @Test
+    void keepsSlowTracesAcrossExportRequests() {
+        TailSampler sampler = sampler(0.0, 100);
+        sampler.accept(request(span(HIGH_TRACE_ID, 300, 600, false)));
+        sampler.accept(request(span(HIGH_TRACE_ID, 0, 100, false)));
+
+        sampler.decide();
+
+        assertThat(written).singleElement().satisfies(trace -> {
+            assertThat(trace.reason()).isEqualTo("latency");
+            assertThat(trace.durationMs()).isEqualTo(600.0);
+            assertThat(trace.spans()).extracting(SampledSpan::startEpochNanos)
+                    .containsExactly(0L, 300 * MILLIS);
+        });
+    }
+
+    @Test
+    void keepsFastTracesOnlyInTheBaseline() {
+        TailSampler sampler = sampler(0.5, 100);
+        sampler.accept(request(span(LOW_TRACE_ID, 0, 10, false), span(HIGH_TRACE_ID, 0, 10, false)));
+
+        sampler.decide();
+
+        assertThat(written).singleElement().satisfies(trace -> {
+            assertThat(trace.traceId()).isEqualTo(LOW_TRACE_ID);
+            assertThat(trace.reason()).isEqualTo("baseline");
+        });
+        assertThat(meterRegistry.get("trace.collector.traces").tag("decision", "dropped").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void waitsForTheTraceToBeQuiet() {
+        TailSampler sampler = new TailSampler(writer, meterRegistry, 60_000, 500, 1.0, 100);
+        sampler.accept(request(span(LOW_TRACE_ID, 0, 10, true)));
+
+        sampler.decide();
+
+        assertThat(written).isEmpty();
+        assertThat(meterRegistry.get("trace.collector.pending").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsSpansWithoutAValidTraceId() {
+        TailSampler sampler = sampler(1.0, 100);
+        sampler.accept(request(
+                span("0af7651916cd43dd", 0, 10, true),
+                span("", 0, 10, true),
+                span("00000000000000000000000000000000", 0, 10, true),
+                span("0af7651916cd43dd8448eb211c80319c00", 0, 10, true)));
+
+        sampler.decide();
+
+        assertThat(written).isEmpty();
+        assertThat(meterRegistry.get("trace.collector.spans").tag("result", "invalid").counter().count())
+                .isEqualTo(4);
+        assertThat(meterRegistry.get("trace.collector.spans").tag("result", "accepted").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void rejectsNewTracesWhilePendingTracesAreAtTheLimit() {
+        TailSampler sampler = sampler(1.0, 1);
+        sampler.accept(request(span(LOW_TRACE_ID, 0, 10, false)));
+        sampler.accept(request(span(HIGH_TRACE_ID, 0, 10, false), span(LOW_TRACE_ID, 2, 8, false)));
+
+        sampler.decide();
+
+        assertThat(written).singleElement().satisfies(trace -> {
+            assertThat(trace.traceId()).isEqualTo(LOW_TRACE_ID);
+            assertThat(trace.spans()).hasSize(2);
+        });
+        assertThat(meterRegistry.get("trace.collector.spans").tag("result", "rejected").counter().count())
+                .isEqualTo(1);
+    }
+
+    private TailSampler sampler(double baselineRatio, int maxPendingTraces) {
+        return new TailSampler(writer, meterRegistry, 0, 500, baselineRatio, maxPendingTraces);
+    }
+
+    private static Span span(String traceId, long startMillis, long endMillis, boolean error) {
+        return Span.newBuilder()
+                .setTraceId(ByteString.copyFrom(HexFormat.of().parseHex(traceId)))
+                .setSpanId(ByteString.copyFrom(HexFormat.of().parseHex("b7ad6b7169203331")))
+                .setName("GET /patients")
+                .setKind(Span.SpanKind.SPAN_KIND_SERVER)
+                .setStartTimeUnixNano(startMillis * MILLIS)
+                .setEndTimeUnixNano(endMillis * MILLIS)
+                .setStatus(Status.newBuilder().setCode(error
+                        ? Status.StatusCode.STATUS_CODE_ERROR
+                        : Status.StatusCode.STATUS_CODE_UNSET))
+                .build();
+    }
+
+    private static ExportTraceServiceRequest request(Span... spans) {
+        KeyValue serviceName = KeyValue.newBuilder()
+                .setKey("service.name")
+                .setValue(AnyValue.newBuilder().setStringValue("patient-service"))
+                .build();
+        return ExportTraceServiceRequest.newBuilder()
+                .addResourceSpans(ResourceSpans.newBuilder()
+                        .setResource(Resource.newBuilder().addAttributes(serviceName))
+                        .addScopeSpans(ScopeSpans.newBuilder().addAllSpans(List.of(spans))))
+                .build();
+    }
+}